@@ -0,0 +1,109 @@
+package domain.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import domain.facade.ISong;
+import domain.playlists.ManualPlaylist;
+import domain.playlists.MostLikedSongsPlaylist;
+import domain.playlists.MostRecentlyAddedSongsPlaylist;
+import util.bench.SongGenerator;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Benchmarks of the operations of the music library: searching it, going
+ * through its songs, adding and removing songs and rating them, with the
+ * playlists of a typical session registered as listeners of the library
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx4g" })
+public class MusicLibraryBenchmark {
+
+	//songs in the manual playlist registered in the library
+	private static final int MANUAL_SONGS = 1_000;
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int size;
+
+	//regular expression matched by about one song in sixteen
+	@Param({ ".*fire.*" })
+	public String regexp;
+
+	private MusicLibrary library;
+	private SongGenerator generator;
+	private List<Song> songs;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.generator = new SongGenerator(42);
+		this.songs = this.generator.songs(this.size);
+		this.library = new MusicLibrary();
+		this.library.addAll(this.songs);
+		ManualPlaylist manual = new ManualPlaylist("Manual", this.library);
+		for (int i = 0; i < Math.min(MANUAL_SONGS, this.size); i++) {
+			manual.add(this.songs.get(this.generator.nextInt(this.size)));
+		}
+		this.library.registerListener(manual);
+		this.library.registerListener(new MostLikedSongsPlaylist(this.library));
+		this.library.registerListener(new MostRecentlyAddedSongsPlaylist(this.library));
+		this.next = 0;
+	}
+
+	@Benchmark
+	public void getMatches(Blackhole bh) {
+		for (ISong song : this.library.getMatches(this.regexp)) {
+			bh.consume(song);
+		}
+	}
+
+	@Benchmark
+	public void getSongs(Blackhole bh) {
+		for (ISong song : this.library.getSongs()) {
+			bh.consume(song);
+		}
+	}
+
+	/**
+	 * Adds a new song and removes it again, so the library keeps its size
+	 */
+	@Benchmark
+	public boolean addRemove() {
+		Song song = this.generator.nextSong();
+		this.library.add(song);
+		return this.library.remove(song);
+	}
+
+	/**
+	 * Rates songs of the library with random rates, so the most liked
+	 * songs playlist keeps changing
+	 */
+	@Benchmark
+	public void rateChurn() {
+		Rate[] rates = Rate.values();
+		Song song = this.songs.get(this.next);
+		this.next = (this.next + 1) % this.size;
+		this.library.rate(song, rates[this.generator.nextInt(rates.length)]);
+	}
+
+}
@@ -0,0 +1,80 @@
+package domain.playlists;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import util.bench.SongGenerator;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Benchmarks of the operations of a playlist holding the whole library:
+ * checking if a song is in it and moving the selected song. The benchmarks
+ * are in this package because contains is only visible to the playlists
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx4g" })
+public class PlaylistBenchmark {
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int size;
+
+	private ManualPlaylist playlist;
+	private SongGenerator generator;
+	private List<Song> songs;
+	private Song absent;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.generator = new SongGenerator(42);
+		this.songs = this.generator.songs(this.size);
+		MusicLibrary library = new MusicLibrary();
+		library.addAll(this.songs);
+		this.playlist = new ManualPlaylist("Benchmark", library);
+		for (Song song : this.songs) {
+			this.playlist.add(song);
+		}
+		this.absent = this.generator.nextSong();
+	}
+
+	@Benchmark
+	public boolean containsPresent() {
+		return this.playlist.contains(this.songs.get(this.generator.nextInt(this.size)));
+	}
+
+	@Benchmark
+	public boolean containsAbsent() {
+		return this.playlist.contains(this.absent);
+	}
+
+	/**
+	 * Moves the last song to the top of the playlist and back, so the
+	 * playlist is the same after each invocation
+	 */
+	@Benchmark
+	public boolean moveUpSelected() {
+		this.playlist.select(this.size - 1);
+		return this.playlist.moveUpSelected(0) && this.playlist.moveDownSelected(this.size - 1);
+	}
+
+}
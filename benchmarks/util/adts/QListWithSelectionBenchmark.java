@@ -0,0 +1,78 @@
+package util.adts;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Benchmarks of moving the selection of the lists with selection, one
+ * element at a time and through the whole list
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx4g" })
+public class QListWithSelectionBenchmark {
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int size;
+
+	@Param({ "array", "ring" })
+	public String list;
+
+	private AbsQListWithSelection<Integer> elements;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.elements = "ring".equals(this.list) ? new RingQListWithSelection<>() : new ArrayQListWithSelection<>();
+		for (int i = 0; i < this.size; i++) {
+			this.elements.add(i);
+		}
+		this.elements.select(0);
+	}
+
+	/**
+	 * Selects the next element, going back to the first one after the last
+	 */
+	@Benchmark
+	public int next() {
+		this.elements.next();
+		if (!this.elements.someSelected()) {
+			this.elements.select(0);
+		}
+		return this.elements.getIndexSelected();
+	}
+
+	/**
+	 * Selects every element of the list, from the first to the last
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int traverse() {
+		int steps = 0;
+		this.elements.select(0);
+		while (this.elements.someSelected()) {
+			this.elements.next();
+			steps++;
+		}
+		this.elements.select(0);
+		return steps;
+	}
+
+}
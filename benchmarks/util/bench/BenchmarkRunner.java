@@ -0,0 +1,32 @@
+package util.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Runs the benchmarks and saves the results as JSON, so runs before and
+ * after a change can be compared. The arguments are the ones of the JMH
+ * command line (e.g. a regular expression with the benchmarks to run or
+ * -p size=1000 to run a single size); the results go to the file given
+ * by the system property "bench.result", jmh-result.json by default.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.resultFormat(ResultFormatType.JSON)
+				.result(System.getProperty("bench.result", "jmh-result.json"))
+				.build();
+		new Runner(options).run();
+	}
+
+}
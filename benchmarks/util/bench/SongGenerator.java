@@ -0,0 +1,105 @@
+package util.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type create synthetic songs for the benchmarks. The
+ * songs are made from fixed vocabularies of words, artists, albums and
+ * genres, so the same seed always creates the same library and searches
+ * match a known fraction of it.
+ */
+public class SongGenerator {
+
+	private static final String[] WORDS = { "love", "night", "blue", "fire", "rain", "heart", "dream", "road",
+			"light", "river", "stone", "summer", "shadow", "gold", "wild", "home" };
+	private static final String[] GENRES = { "Rock", "Pop", "Jazz", "Blues", "Metal", "Classical", "Country",
+			"Reggae", "Funk", "Soul", "Folk", "Disco" };
+	private static final int ARTISTS = 5_000;
+	private static final int ALBUMS = 20_000;
+
+	private final SplittableRandom random;
+	private int created;
+
+	/**
+	 * SongGenerator constructor
+	 *
+	 * @param seed the seed of the songs created
+	 */
+	public SongGenerator(long seed) {
+		this.random = new SplittableRandom(seed);
+		this.created = 0;
+	}
+
+	/**
+	 * Creates the tags of a new song
+	 *
+	 * @return tags with a title of two or three words, one album, one genre
+	 *         and one or two artists
+	 * @ensures \result != null
+	 */
+	public SongMetaInfo nextInfo() {
+		StringBuilder title = new StringBuilder(word()).append(' ').append(word());
+		if (this.random.nextInt(3) == 0) {
+			title.append(' ').append(word());
+		}
+		List<String> artists = new ArrayList<>(2);
+		artists.add("Artist " + this.random.nextInt(ARTISTS));
+		if (this.random.nextInt(4) == 0) {
+			artists.add("Artist " + this.random.nextInt(ARTISTS));
+		}
+		return new SongMetaInfo(title.toString(), "Album " + this.random.nextInt(ALBUMS),
+				GENRES[this.random.nextInt(GENRES.length)], artists);
+	}
+
+	/**
+	 * Creates a new song, with a random rating and number of times played
+	 *
+	 * @return a song with a filename no other song of this generator has
+	 * @ensures \result != null
+	 */
+	public Song nextSong() {
+		Rate[] rates = Rate.values();
+		return new Song("songs/synthetic-" + this.created++ + ".mp3", nextInfo(),
+				rates[this.random.nextInt(rates.length)], this.random.nextInt(100));
+	}
+
+	/**
+	 * Creates the given number of songs
+	 *
+	 * @param n the number of songs
+	 * @return a new list with n new songs
+	 * @requires n >= 0
+	 */
+	public List<Song> songs(int n) {
+		List<Song> songs = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			songs.add(nextSong());
+		}
+		return songs;
+	}
+
+	/**
+	 * Returns a random number
+	 *
+	 * @param bound the upper bound
+	 * @return a number between 0, inclusive, and bound, exclusive
+	 * @requires bound > 0
+	 */
+	public int nextInt(int bound) {
+		return this.random.nextInt(bound);
+	}
+
+	private String word() {
+		return WORDS[this.random.nextInt(WORDS.length)];
+	}
+
+}
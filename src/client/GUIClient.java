@@ -1,21 +1,55 @@
 package client;
 
+import java.io.IOException;
+
 import domain.facade.LEITunes;
 import ui.UI;
+import util.metrics.MetricsRegistry;
+import util.metrics.MetricsServer;
 
 /**
  * @author antonialopes
  * Class responsible for starting up the system (GUI version)
  */
 public class GUIClient {
+
+	//system property with the local port where the metrics are served
+	private static final String METRICS_PORT = "leitunes.metrics.port";
 	
 	/**
 	 * The method for the start up of the system 
 	 */
 	public static void main (String [] args) {
 		LEITunes leiTunes = new LEITunes ();
+		MetricsServer metrics = startMetrics();
 		UI ui = new UI (leiTunes.getPlaylistController(), 
 						leiTunes.getMusicLibraryController());
 		ui.run ();
+		try {
+			leiTunes.close();
+		} catch (IOException e) {
+			System.out.println("Could not save the cache of tags");
+		}
+		if (metrics != null) {
+			metrics.close();
+		}
+	}
+
+	/**
+	 * Starts serving the metrics on the port given by the system property
+	 * leitunes.metrics.port, if it is set
+	 * @return the server of the metrics, or null if they are not served
+	 */
+	private static MetricsServer startMetrics() {
+		Integer port = Integer.getInteger(METRICS_PORT);
+		if (port == null) {
+			return null;
+		}
+		try {
+			return new MetricsServer(MetricsRegistry.getDefault(), port);
+		} catch (IOException e) {
+			System.out.println("Could not serve the metrics on port " + port);
+			return null;
+		}
 	}
 }
@@ -130,7 +130,7 @@ public class SimpleClient {
 		System.out.println("            Search songs in library by "+ regExp);
 		System.out.println("----------------------------------------------- ");
 
-		Iterable<ISong> matches = slc.getMatches(regExp);
+		Iterable<ISong> matches = slc.getLazyMatches(regExp);
 		for (ISong s: matches) {
 			System.out.println(s);
 		}
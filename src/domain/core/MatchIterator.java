@@ -0,0 +1,69 @@
+package domain.core;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+
+import domain.facade.ISong;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type represent iterators over the songs of another
+ * iterator that match a pattern. Songs are only checked when the
+ * iteration reaches them and a single matcher is reused for all of them.
+ */
+class MatchIterator implements Iterator<ISong> {
+
+	private final Iterator<Song> songs;
+	private final Matcher matcher;
+	private Song next;
+
+	/**
+	 * MatchIterator constructor
+	 *
+	 * @param songs   the iterator over the songs to filter
+	 * @param matcher the matcher of the pattern the songs must match
+	 * @requires songs != null && matcher != null
+	 */
+	MatchIterator(Iterator<Song> songs, Matcher matcher) {
+		this.songs = songs;
+		this.matcher = matcher;
+		this.next = null;
+	}
+
+	/**
+	 * Checks if there is another song that matches the pattern
+	 *
+	 * @return true if there is another matching song, false otherwise
+	 */
+	@Override
+	public boolean hasNext() {
+		while (this.next == null && this.songs.hasNext()) {
+			Song song = this.songs.next();
+			if (song.matches(this.matcher)) {
+				this.next = song;
+			}
+		}
+		return this.next != null;
+	}
+
+	/**
+	 * Returns the next song that matches the pattern
+	 *
+	 * @requires hasNext()
+	 * @return the next matching song
+	 * @ensures \result != null
+	 */
+	@Override
+	public ISong next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Song song = this.next;
+		this.next = null;
+		return song;
+	}
+
+}
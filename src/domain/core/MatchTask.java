@@ -0,0 +1,85 @@
+package domain.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type represent the search of a range of a list of songs
+ * for the ones that match a pattern. Ranges larger than the chunk size are
+ * split in two halves searched in parallel and the results are merged back
+ * in the order of the list.
+ */
+class MatchTask extends RecursiveTask<List<Song>> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient List<Song> songs;
+	private final transient Pattern pattern;
+	private final int from;
+	private final int to;
+	private final int chunk;
+
+	/**
+	 * MatchTask constructor
+	 *
+	 * @param songs   the list of songs to search
+	 * @param pattern the pattern to match
+	 * @param from    first index of the range (inclusive)
+	 * @param to      last index of the range (exclusive)
+	 * @param chunk   maximum size of a range searched by a single thread
+	 * @requires 0 <= from <= to <= songs.size() && chunk > 0
+	 */
+	MatchTask(List<Song> songs, Pattern pattern, int from, int to, int chunk) {
+		this.songs = songs;
+		this.pattern = pattern;
+		this.from = from;
+		this.to = to;
+		this.chunk = chunk;
+	}
+
+	/**
+	 * Searches the range, splitting it if it is larger than the chunk size
+	 *
+	 * @return the songs of the range that match the pattern, in list order
+	 * @ensures \result != null
+	 */
+	@Override
+	protected List<Song> compute() {
+		if (this.to - this.from <= this.chunk) {
+			return scan();
+		}
+		int middle = (this.from + this.to) >>> 1;
+		MatchTask left = new MatchTask(this.songs, this.pattern, this.from, middle, this.chunk);
+		MatchTask right = new MatchTask(this.songs, this.pattern, middle, this.to, this.chunk);
+		left.fork();
+		List<Song> rightMatches = right.compute();
+		List<Song> leftMatches = left.join();
+		leftMatches.addAll(rightMatches);
+		return leftMatches;
+	}
+
+	/**
+	 * Searches the range sequentially with a single matcher
+	 *
+	 * @return the songs of the range that match the pattern, in list order
+	 * @ensures \result != null
+	 */
+	private List<Song> scan() {
+		List<Song> matches = new ArrayList<>();
+		Matcher matcher = this.pattern.matcher("");
+		for (int i = this.from; i < this.to; i++) {
+			Song song = this.songs.get(i);
+			if (song.matches(matcher)) {
+				matches.add(song);
+			}
+		}
+		return matches;
+	}
+
+}
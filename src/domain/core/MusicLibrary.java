@@ -3,12 +3,21 @@ package domain.core;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import domain.facade.ISong;
 import domain.player.Player;
 import domain.player.PlayerFactory;
 import util.adts.AbsQListWithSelection;
-import util.adts.ArrayQListWithSelection;
+import util.adts.PatternCache;
+import util.metrics.Counter;
+import util.metrics.Histogram;
+import util.metrics.MetricsRegistry;
+import util.observer.AsyncDispatcher;
 import util.observer.Listener;
 import util.observer.Subject;
 
@@ -21,7 +30,27 @@ import util.observer.Subject;
 public class MusicLibrary extends AbsQListWithSelection<Song>
 		implements Subject<SongLibraryEvent>, PropertyChangeListener {
 
+	//maximum number of compiled search expressions kept by the library
+	private static final int PATTERN_CACHE_CAPACITY = 32;
+	//library size from which regular expression searches are done in parallel
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 20000;
+	//smallest range of songs searched by a single thread in parallel searches
+	private static final int MIN_PARALLEL_CHUNK = 2048;
+
+	private static final Counter EVENTS = MetricsRegistry.getDefault()
+			.counter("leitunes_library_events_total", "Events emitted by the music library");
+	private static final Histogram EVENT_DISPATCH = MetricsRegistry.getDefault()
+			.histogram("leitunes_event_dispatch_seconds", "Time to update the indexes and notify the listeners of an event");
+
 	private List<Listener<SongLibraryEvent>> listeners;
+	private PatternCache patterns;
+	private SongIndex index;
+	private RatingIndex ratings;
+	private RecencyIndex recency;
+	private SongColumns columns;
+	private volatile AsyncDispatcher<SongLibraryEvent> dispatcher;
+	private int parallelThreshold;
+	private List<ISong> songsView;
 	private Song playing;
 	private Player player;
 
@@ -31,6 +60,14 @@ public class MusicLibrary extends AbsQListWithSelection<Song>
 	public MusicLibrary() {
 		super();
 		this.listeners = new ArrayList<>();
+		this.patterns = new PatternCache(PATTERN_CACHE_CAPACITY);
+		this.index = new SongIndex();
+		this.ratings = new RatingIndex();
+		this.recency = new RecencyIndex();
+		this.columns = new SongColumns();
+		this.dispatcher = null;
+		this.parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+		this.songsView = Collections.unmodifiableList(super.getList());
 		this.player = PlayerFactory.INSTANCE.getPlayer();
 		player.addListener(this);
 	}
@@ -73,6 +110,127 @@ public class MusicLibrary extends AbsQListWithSelection<Song>
 		return this.listeners;
 	}
 
+	/**
+	 * Method that gets the cache of compiled expressions used in searches
+	 *
+	 * @return the pattern cache of the library
+	 * @ensures \result != null
+	 */
+	public PatternCache getPatternCache() {
+		return this.patterns;
+	}
+
+	/**
+	 * Method that gets the word index of the songs in the library
+	 *
+	 * @return the index of the library
+	 * @ensures \result != null
+	 */
+	public SongIndex getIndex() {
+		return this.index;
+	}
+
+	/**
+	 * Method that gets the songs of the library grouped by rating
+	 *
+	 * @return the rating index of the library
+	 * @ensures \result != null
+	 */
+	public RatingIndex getRatings() {
+		return this.ratings;
+	}
+
+	/**
+	 * Method that gets the songs of the library ordered by
+	 * the moment they were added
+	 *
+	 * @return the recency index of the library
+	 * @ensures \result != null
+	 */
+	public RecencyIndex getRecency() {
+		return this.recency;
+	}
+
+	/**
+	 * Method that gets the columns with the play counts and the ratings
+	 * of the songs of the library, for statistics over the whole library.
+	 * Callers must hold the lock of the library while reading them
+	 *
+	 * @return the columns of the library
+	 * @ensures \result != null
+	 */
+	public SongColumns getColumns() {
+		return this.columns;
+	}
+
+	/**
+	 * Returns the number of times the songs of the library were played
+	 *
+	 * @return the sum of the play counts of the songs
+	 * @ensures \result >= 0
+	 */
+	public synchronized long getTotalPlays() {
+		return this.columns.totalPlays();
+	}
+
+	/**
+	 * Returns how many songs of the library have each rating
+	 *
+	 * @return the number of songs with each rating, by the ordinal of the rating
+	 * @ensures \result.length == Rate.values().length
+	 */
+	public synchronized int[] getRatingDistribution() {
+		return this.columns.ratingDistribution();
+	}
+
+	/**
+	 * Returns the songs of the library played the most times
+	 *
+	 * @param n the maximum number of songs
+	 * @requires n >= 0
+	 * @return the at most n most played songs, from the most played down
+	 * @ensures \result != null
+	 */
+	public synchronized List<ISong> getMostPlayed(int n) {
+		return this.columns.mostPlayed(n);
+	}
+
+	/**
+	 * Method that gets the insertion sequence of the given song. Songs
+	 * added later always have greater sequences than songs added before
+	 *
+	 * @param song the song
+	 * @return the sequence of song or RecencyIndex.NO_SEQUENCE if song
+	 *         is not in the library
+	 */
+	public long getSequence(ISong song) {
+		return this.recency.sequenceOf(song);
+	}
+
+	/**
+	 * Method that gets the number of songs from which getMatches
+	 * searches the library in parallel
+	 *
+	 * @return the parallel search threshold
+	 * @ensures \result > 0
+	 */
+	public int getParallelThreshold() {
+		return this.parallelThreshold;
+	}
+
+	/**
+	 * Method that sets the number of songs from which getMatches
+	 * searches the library in parallel. Smaller libraries are
+	 * searched sequentially by the calling thread
+	 *
+	 * @param threshold the new parallel search threshold
+	 * @requires threshold > 0
+	 * @ensures getParallelThreshold() == threshold
+	 */
+	public void setParallelThreshold(int threshold) {
+		this.parallelThreshold = threshold;
+	}
+
 	/**
 	 * Method that reacts to the events happening in the player
 	 * (if a current playing song has ended or if the song was stopped),
@@ -84,8 +242,8 @@ public class MusicLibrary extends AbsQListWithSelection<Song>
 	public void propertyChange(PropertyChangeEvent evt) {
 		if (isPlaying()) {
 			if (evt.getNewValue().equals(Player.PlayingState.ENDED)) {
-				this.playing.incTimesPlayed();
-				if (getSelected().equals(playing)) {
+				incTimesPlayed(this.playing);
+				if (someSelected() && getSelected() == this.playing) {
 					next();
 				}
 				if (someSelected()) {
@@ -101,7 +259,8 @@ public class MusicLibrary extends AbsQListWithSelection<Song>
 
 	/**
 	 * Interrupts the current song and starts playing
-	 * the selected song in the library
+	 * the selected song in the library, preloading the
+	 * song after it so it can follow without a gap
 	 *
 	 * @requires someSelected()
 	 */
@@ -112,6 +271,10 @@ public class MusicLibrary extends AbsQListWithSelection<Song>
 		this.player.load(getSelected().getFilename());
 		this.playing = getSelected();
 		this.player.play();
+		int next = getIndexSelected() + 1;
+		if (next < size()) {
+			this.player.preload(get(next).getFilename());
+		}
 	}
 
 	/**
@@ -137,14 +300,110 @@ public class MusicLibrary extends AbsQListWithSelection<Song>
 	}
 
 	/**
-	 * Emits the given library related event
+	 * Emits the given library related event, updating the
+	 * indexes of the library before notifying the listeners.
+	 * If the events are delivered asynchronously the listeners are
+	 * notified later by the worker threads of the dispatcher.
+	 * The time taken is recorded in leitunes_event_dispatch_seconds
 	 *
 	 * @param e the event given
 	 */
 	@Override
-	public void emitEvent(SongLibraryEvent e) {
+	public synchronized void emitEvent(SongLibraryEvent e) {
+		long start = System.nanoTime();
+		this.index.processEvent(e);
+		this.ratings.processEvent(e);
+		this.recency.processEvent(e);
 		for (Listener<SongLibraryEvent> l : listeners) {
-			l.processEvent(e);
+			if (this.dispatcher == null) {
+				l.processEvent(e);
+			} else {
+				this.dispatcher.dispatch(l, e);
+			}
+		}
+		EVENTS.inc();
+		EVENT_DISPATCH.recordSince(start);
+	}
+
+	/**
+	 * Method that starts delivering the events of the library to its listeners
+	 * in batches on the given number of worker threads. Each listener still gets
+	 * the events in the order they happened. Events are delivered without the
+	 * lock of the library, so its changes never wait for a batch; the indexes
+	 * of the library are still updated before each change returns. Listeners
+	 * that read the library take its lock for each event, as the playlists do,
+	 * and see it as it is then, which may already include later changes; the
+	 * events carry what changed. Callers that need to see the effects of their
+	 * changes on the listeners must call flush() first
+	 *
+	 * @param threads number of worker threads
+	 * @requires threads > 0
+	 * @ensures isAsync()
+	 */
+	public void enableAsyncEvents(int threads) {
+		disableAsyncEvents();
+		this.dispatcher = new AsyncDispatcher<>(threads);
+	}
+
+	/**
+	 * Method that delivers the pending events and goes back to notifying the
+	 * listeners in the thread that changes the library
+	 *
+	 * @ensures !isAsync()
+	 */
+	public void disableAsyncEvents() {
+		AsyncDispatcher<SongLibraryEvent> old = this.dispatcher;
+		if (old == null) {
+			return;
+		}
+		boolean drained = false;
+		while (!drained && !Thread.currentThread().isInterrupted()) {
+			old.flush();
+			synchronized (this) {
+				drained = old.getPending() == 0;
+				if (drained) {
+					this.dispatcher = null;
+				}
+			}
+		}
+		if (drained) {
+			old.close();
+		}
+	}
+
+	/**
+	 * Method that checks if the events of the library are delivered
+	 * asynchronously
+	 *
+	 * @return true if the listeners are notified by worker threads,
+	 *         false otherwise
+	 */
+	public boolean isAsync() {
+		return this.dispatcher != null;
+	}
+
+	/**
+	 * Method that checks if there are events emitted but not yet delivered
+	 * to the listeners. While the lock of the library is held no events are
+	 * emitted, so an answer of false stays valid until it is released
+	 *
+	 * @return true if some event is still waiting to be delivered,
+	 *         false otherwise
+	 */
+	public boolean hasPendingEvents() {
+		AsyncDispatcher<SongLibraryEvent> current = this.dispatcher;
+		return current != null && current.getPending() > 0;
+	}
+
+	/**
+	 * Method that waits until every event emitted so far has been delivered
+	 * to the listeners. Does nothing if the events are delivered synchronously.
+	 * Must not be called by a listener of the library
+	 */
+	public void flush() {
+		AsyncDispatcher<SongLibraryEvent> current = this.dispatcher;
+		if (current != null) {
+			current.flush();
 		}
 	}
 
@@ -182,21 +441,109 @@ public class MusicLibrary extends AbsQListWithSelection<Song>
 	 * @ensures getSelected() == e
 	 */
 	@Override
-	public void add(Song e) {
+	public synchronized void add(Song e) {
 		super.add(e);
+		e.attach(this.columns);
 		emitEvent(new SongAddedLibraryEvent(e, this));
 	}
 
+	/**
+	 * Adds the given songs to the end of the list, in the given order, and
+	 * emits a single SongsAddedLibraryEvent for all of them
+	 *
+	 * @param songs the songs to add
+	 * @requires songs != null
+	 * @ensures !songs.isEmpty() ==> getSelected() == songs.get(songs.size() - 1)
+	 */
+	public synchronized void addAll(List<Song> songs) {
+		if (songs.isEmpty()) {
+			return;
+		}
+		for (Song song : songs) {
+			super.add(song);
+			song.attach(this.columns);
+		}
+		emitEvent(new SongsAddedLibraryEvent(new ArrayList<>(songs), this));
+	}
+
 	/**
 	 * Removes the selected song from the list, if possible
 	 *
 	 * @ensures !someSelected()
 	 */
 	@Override
-	public void remove() {
+	public synchronized void remove() {
 		if (someSelected()) {
-			emitEvent(new SongRemovedLibraryEvent(getSelected(), this));
+			Song removed = getSelected();
+			emitEvent(new SongRemovedLibraryEvent(removed, this));
 			super.remove();
+			removed.detach(this.columns);
+		}
+	}
+
+	/**
+	 * Removes the given song from the list, if it is there, keeping the
+	 * selection on the song that was selected before, if it is not the
+	 * one removed. Songs are identified by reference
+	 *
+	 * @param song the song to remove
+	 * @return true if the song was removed, false otherwise
+	 */
+	public synchronized boolean remove(ISong song) {
+		List<Song> songs = super.getList();
+		int index = -1;
+		for (int i = 0; i < songs.size() && index < 0; i++) {
+			if (songs.get(i) == song) {
+				index = i;
+			}
+		}
+		if (index < 0) {
+			return false;
+		}
+		int selected = getIndexSelected();
+		select(index);
+		remove();
+		if (selected > index) {
+			select(selected - 1);
+		} else if (0 <= selected && selected < index) {
+			select(selected);
+		}
+		return true;
+	}
+
+	/**
+	 * Increments the number of times the given song was played and
+	 * emits a SongPlayedLibraryEvent
+	 *
+	 * @param song the song played
+	 * @requires song != null
+	 */
+	public synchronized void incTimesPlayed(ISong song) {
+		song.incTimesPlayed();
+		emitEvent(new SongPlayedLibraryEvent(song, this));
+	}
+
+	/**
+	 * Changes the rating of the given song to the given rating, as far as
+	 * increasing and decreasing it allows, emitting a SongRatedLibraryEvent
+	 * if the rate was changed
+	 *
+	 * @param song the song to rate
+	 * @param rate the new rating
+	 * @requires song != null && rate != null
+	 */
+	public synchronized void rate(ISong song, Rate rate) {
+		Rate before = song.getRating();
+		while (song.getRating().compareTo(rate) < 0) {
+			song.incRating();
+		}
+		Rate current = song.getRating();
+		while (current.compareTo(rate) > 0 && current.decRate() != current) {
+			song.decRating();
+			current = song.getRating();
+		}
+		if (current != before) {
+			emitEvent(new SongRatedLibraryEvent(song, this, before, current));
 		}
 	}
 
@@ -204,7 +551,7 @@ public class MusicLibrary extends AbsQListWithSelection<Song>
 	 * Increases the selected song's rating to the next higher rating based on the
 	 * current rating, emitting a SongRatedLibraryEvent if the rate was changed
 	 */
-	public void incRateSelected() {
+	public synchronized void incRateSelected() {
 		if (someSelected()) {
 			Rate before = getSelected().getRating();
 			getSelected().incRating();
@@ -216,7 +563,7 @@ public class MusicLibrary extends AbsQListWithSelection<Song>
 	 * Decreses the selected song's rating to the precious lower rating based on the
 	 * current rating, emitting a SongRatedLibraryEvent if the rate was changed
 	 */
-	public void decRateSelected() {
+	public synchronized void decRateSelected() {
 		if (someSelected()) {
 			Rate before = getSelected().getRating();
 			getSelected().decRating();
@@ -231,36 +578,102 @@ public class MusicLibrary extends AbsQListWithSelection<Song>
 	 * @param reexp regex expression to match
 	 *
 	 * @requires reexp != null
-	 * @return iterable structure with elements form the library that match the
-	 *         reexp
+	 * @return unmodifiable list with the elements from the library that match
+	 *         the reexp, in library order
 	 * @ensures \result != null
 	 *
 	 */
 	public Iterable<ISong> getMatches(String reexp) {
-		ArrayQListWithSelection<ISong> matches = new ArrayQListWithSelection<>();
-		Iterable<ISong> iterable = getSongs();
-		for (ISong iSong : iterable) {
-			if (iSong.matches(reexp)) {
-				matches.add(iSong);
+		Pattern pattern = this.patterns.get(reexp);
+		List<Song> found = size() >= this.parallelThreshold
+				? parallelMatches(pattern)
+				: sequentialMatches(pattern);
+		return Collections.unmodifiableList(found);
+	}
+
+	/**
+	 * Method that returns an iterable structure over the elements from the
+	 * library that match the given regex expression, without searching the
+	 * library in advance. Each iteration goes through the library as it is
+	 * at that moment and checks the songs only as it reaches them
+	 *
+	 * @param reexp regex expression to match
+	 *
+	 * @requires reexp != null
+	 * @return lazy iterable structure with elements from the library that
+	 *         match the reexp, in library order
+	 * @ensures \result != null
+	 *
+	 */
+	public Iterable<ISong> getLazyMatches(String reexp) {
+		Pattern pattern = this.patterns.get(reexp);
+		return () -> new MatchIterator(super.getList().iterator(), pattern.matcher(""));
+	}
+
+	/**
+	 * Method that searches the whole library in the calling thread
+	 * for the songs that match the given pattern
+	 *
+	 * @param pattern the pattern to match
+	 * @return the songs that match pattern, in library order
+	 * @ensures \result != null
+	 */
+	private List<Song> sequentialMatches(Pattern pattern) {
+		List<Song> found = new ArrayList<>();
+		Matcher matcher = pattern.matcher("");
+		for (Song song : super.getList()) {
+			if (song.matches(matcher)) {
+				found.add(song);
 			}
 		}
-		return matches;
+		return found;
+	}
+
+	/**
+	 * Method that searches the library for the songs that match the given
+	 * pattern, splitting it in chunks searched in the common ForkJoinPool
+	 *
+	 * @param pattern the pattern to match
+	 * @return the songs that match pattern, in library order
+	 * @ensures \result != null
+	 */
+	private List<Song> parallelMatches(Pattern pattern) {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int chunk = Math.max(MIN_PARALLEL_CHUNK, size() / (pool.getParallelism() * 4));
+		return pool.invoke(new MatchTask(super.getList(), pattern, 0, size(), chunk));
 	}
 
 	/**
 	 * Method that returns an iterable structure with all the elements from the
-	 * library in the same order
+	 * library that contain every word of the given query, answered by the index
+	 * of the library without going through the songs. Words are compared ignoring
+	 * case and accents and a word ending in '*' matches by prefix; a '*' elsewhere
+	 * in a word is taken literally.
+	 * Arbitrary regular expressions must use getMatches.
 	 *
-	 * @return iterable structure with all elements from library
+	 * @param query words to search for
+	 *
+	 * @requires query != null
+	 * @return iterable structure with elements from the library that contain
+	 *         the words of query, in library order
+	 * @ensures \result != null
+	 *
+	 */
+	public synchronized Iterable<ISong> search(String query) {
+		return this.index.search(query);
+	}
+
+	/**
+	 * Method that returns an iterable structure with all the elements from the
+	 * library in the same order. The structure is an unmodifiable view of the
+	 * library, so it reflects later changes to the library without copying it
+	 *
+	 * @return unmodifiable view of all elements from library
 	 * @ensures \result != null
 	 *
 	 */
 	public Iterable<ISong> getSongs() {
-		ArrayQListWithSelection<ISong> ret = new ArrayQListWithSelection<>();
-		for (ISong song : super.getList()) {
-			ret.add(song);
-		}
-		return ret;
+		return this.songsView;
 	}
 
 	/**
@@ -0,0 +1,123 @@
+package domain.core;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import domain.facade.ISong;
+import util.observer.Listener;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type represent the songs of a Music Library grouped by
+ * their rating. The buckets are kept up to date by the SongAddedLibraryEvent,
+ * SongsAddedLibraryEvent, SongRemovedLibraryEvent and SongRatedLibraryEvent
+ * of the library.
+ *
+ * Inside a bucket songs are ordered by the moment they got that rating.
+ */
+public class RatingIndex implements Listener<SongLibraryEvent> {
+
+	private Map<Rate, NavigableMap<Long, ISong>> buckets;
+	private Map<ISong, Long> stamps;
+	private long clock;
+
+	/**
+	 * RatingIndex constructor
+	 */
+	public RatingIndex() {
+		this.buckets = new EnumMap<>(Rate.class);
+		for (Rate rate : Rate.values()) {
+			this.buckets.put(rate, new TreeMap<>());
+		}
+		this.stamps = new IdentityHashMap<>();
+		this.clock = 0;
+	}
+
+	/**
+	 * Processes a SongLibraryEvent, moving the song of the event to
+	 * the bucket of its current rating
+	 *
+	 * @param e the SongLibraryEvent given
+	 */
+	@Override
+	public void processEvent(SongLibraryEvent e) {
+		if (e instanceof SongAddedLibraryEvent) {
+			put(e.getSong(), e.getSong().getRating());
+		} else if (e instanceof SongsAddedLibraryEvent) {
+			for (ISong song : ((SongsAddedLibraryEvent) e).getSongs()) {
+				put(song, song.getRating());
+			}
+		} else if (e instanceof SongRemovedLibraryEvent) {
+			drop(e.getSong());
+		} else if (e instanceof SongRatedLibraryEvent) {
+			SongRatedLibraryEvent evt = (SongRatedLibraryEvent) e;
+			if (!evt.getBefore().equals(evt.getAfter()) && drop(evt.getSong()) != null) {
+				put(evt.getSong(), evt.getAfter());
+			}
+		}
+	}
+
+	/**
+	 * Method that returns the songs with the given rating, from the most
+	 * recently rated to the least recently rated
+	 *
+	 * @param rate the rating
+	 * @requires rate != null
+	 * @return unmodifiable view of the songs with rating rate
+	 * @ensures \result != null
+	 */
+	public Iterable<ISong> songsRated(Rate rate) {
+		return Collections.unmodifiableCollection(this.buckets.get(rate).descendingMap().values());
+	}
+
+	/**
+	 * Returns the number of songs with the given rating
+	 *
+	 * @param rate the rating
+	 * @requires rate != null
+	 * @return the number of songs with rating rate
+	 * @ensures \result >= 0
+	 */
+	public int count(Rate rate) {
+		return this.buckets.get(rate).size();
+	}
+
+	/**
+	 * Puts the given song in the bucket of the given rating
+	 *
+	 * @param song the song
+	 * @param rate the rating of song
+	 */
+	private void put(ISong song, Rate rate) {
+		long stamp = this.clock++;
+		this.stamps.put(song, stamp);
+		this.buckets.get(rate).put(stamp, song);
+	}
+
+	/**
+	 * Removes the given song from the bucket where it is
+	 *
+	 * @param song the song
+	 * @return the song removed or null if it was not in any bucket
+	 */
+	private ISong drop(ISong song) {
+		Long stamp = this.stamps.remove(song);
+		if (stamp == null) {
+			return null;
+		}
+		for (NavigableMap<Long, ISong> bucket : this.buckets.values()) {
+			ISong removed = bucket.remove(stamp);
+			if (removed != null) {
+				return removed;
+			}
+		}
+		return null;
+	}
+
+}
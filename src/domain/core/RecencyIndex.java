@@ -0,0 +1,158 @@
+package domain.core;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import domain.facade.ISong;
+import util.observer.Listener;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type represent the songs of a Music Library ordered by
+ * the moment they were added. Every added song gets a sequence number
+ * greater than the ones of all songs added before it. The index is kept up
+ * to date by the SongAddedLibraryEvent, SongsAddedLibraryEvent and
+ * SongRemovedLibraryEvent of the library.
+ */
+public class RecencyIndex implements Listener<SongLibraryEvent> {
+
+	//sequence of the songs that are not in the index
+	public static final long NO_SEQUENCE = -1;
+
+	private NavigableMap<Long, ISong> songs;
+	private Map<ISong, Long> sequences;
+	private long nextSequence;
+
+	/**
+	 * RecencyIndex constructor
+	 */
+	public RecencyIndex() {
+		this.songs = new TreeMap<>();
+		this.sequences = new IdentityHashMap<>();
+		this.nextSequence = 0;
+	}
+
+	/**
+	 * Processes a SongLibraryEvent, giving added songs the next sequence
+	 * number and forgetting removed ones
+	 *
+	 * @param e the SongLibraryEvent given
+	 */
+	@Override
+	public void processEvent(SongLibraryEvent e) {
+		if (e instanceof SongAddedLibraryEvent) {
+			add(e.getSong());
+		} else if (e instanceof SongsAddedLibraryEvent) {
+			for (ISong song : ((SongsAddedLibraryEvent) e).getSongs()) {
+				add(song);
+			}
+		} else if (e instanceof SongRemovedLibraryEvent) {
+			remove(e.getSong());
+		}
+	}
+
+	/**
+	 * Adds the given song as the most recent one. A song that was
+	 * already in the index gets a new sequence number
+	 *
+	 * @param song the song added
+	 * @requires song != null
+	 * @ensures latest() == song
+	 */
+	public void add(ISong song) {
+		remove(song);
+		long seq = this.nextSequence++;
+		this.sequences.put(song, seq);
+		this.songs.put(seq, song);
+	}
+
+	/**
+	 * Removes the given song from the index, if it is there
+	 *
+	 * @param song the song to forget
+	 * @requires song != null
+	 * @ensures sequenceOf(song) == NO_SEQUENCE
+	 */
+	public void remove(ISong song) {
+		Long seq = this.sequences.remove(song);
+		if (seq != null) {
+			this.songs.remove(seq);
+		}
+	}
+
+	/**
+	 * Returns the sequence number of the given song
+	 *
+	 * @param song the song
+	 * @return the sequence number of song or NO_SEQUENCE if it is not
+	 *         in the index
+	 */
+	public long sequenceOf(ISong song) {
+		Long seq = this.sequences.get(song);
+		return seq == null ? NO_SEQUENCE : seq;
+	}
+
+	/**
+	 * Returns the most recently added song
+	 *
+	 * @return the song with the greatest sequence number or null if
+	 *         the index is empty
+	 */
+	public ISong latest() {
+		Map.Entry<Long, ISong> entry = this.songs.lastEntry();
+		return entry == null ? null : entry.getValue();
+	}
+
+	/**
+	 * Returns the song added right before the song with the given sequence
+	 *
+	 * @param seq the sequence number
+	 * @return the song with the greatest sequence number smaller than seq
+	 *         or null if there is none
+	 */
+	public ISong before(long seq) {
+		Map.Entry<Long, ISong> entry = this.songs.lowerEntry(seq);
+		return entry == null ? null : entry.getValue();
+	}
+
+	/**
+	 * Method that returns the n most recently added songs, from the
+	 * least recent to the most recent
+	 *
+	 * @param n the number of songs
+	 * @requires n >= 0
+	 * @return unmodifiable view of the n most recently added songs,
+	 *         or of all songs if there are less than n
+	 * @ensures \result != null
+	 */
+	public Iterable<ISong> latest(int n) {
+		NavigableMap<Long, ISong> tail = this.songs;
+		if (n < this.songs.size()) {
+			long first = this.nextSequence;
+			for (Long key : this.songs.descendingKeySet()) {
+				if (n-- == 0) {
+					break;
+				}
+				first = key;
+			}
+			tail = this.songs.tailMap(first, true);
+		}
+		return Collections.unmodifiableCollection(tail.values());
+	}
+
+	/**
+	 * Returns the number of songs in the index
+	 *
+	 * @return the number of indexed songs
+	 * @ensures \result >= 0
+	 */
+	public int size() {
+		return this.songs.size();
+	}
+
+}
@@ -1,6 +1,8 @@
 package domain.core;
 
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import domain.facade.ISong;
 import util.adts.RegExpMatchable;
@@ -11,6 +13,8 @@ import util.adts.RegExpMatchable;
  *
  * Objects of this type represent songs
  *
+ * While a song is in a Music Library, its play count and rating are kept
+ * in the SongColumns of the library and the song is a handle over them
  */
 public class Song implements ISong, RegExpMatchable {
 
@@ -18,6 +22,8 @@ public class Song implements ISong, RegExpMatchable {
 	private Rate rate;
 	private SongMetaInfo info;
 	private int timesPlayed;
+	private SongColumns columns;
+	private int ordinal;
 
 	/**
 	 * Song constructor
@@ -31,15 +37,95 @@ public class Song implements ISong, RegExpMatchable {
 		this.info = info;
 		this.timesPlayed = 0;
 		this.rate = Rate.UNRATED;
+		this.ordinal = SongColumns.NO_ORDINAL;
 
 	}
 
+	/**
+	 * Song constructor for songs that were already rated and played,
+	 * such as the ones restored from a saved library
+	 *
+	 * @param fileName    filename corresponding to the actual song
+	 * @param info        information about the song such as title, genre, artists and
+	 *                    album
+	 * @param rate        the rating of the song
+	 * @param timesPlayed the number of times the song was played
+	 * @requires rate != null && timesPlayed >= 0
+	 */
+	public Song(String fileName, SongMetaInfo info, Rate rate, int timesPlayed) {
+		this.fileName = fileName;
+		this.info = info;
+		this.timesPlayed = timesPlayed;
+		this.rate = rate;
+		this.ordinal = SongColumns.NO_ORDINAL;
+	}
+
+	/**
+	 * Moves the play count and the rating of the song to the given columns,
+	 * taking them from the columns that kept them before, if any, which
+	 * mark the song as moved. A song already in the given columns only
+	 * counts one more copy there
+	 *
+	 * @param cols the columns of the library the song was added to
+	 * @requires cols != null
+	 */
+	void attach(SongColumns cols) {
+		if (this.columns == cols) {
+			cols.retain(this.ordinal);
+			return;
+		}
+		int played = getTimesPlayed();
+		Rate rating = getRating();
+		if (this.columns != null) {
+			this.columns.moveOut(this.ordinal);
+		}
+		this.ordinal = cols.attach(this, played, rating);
+		this.columns = cols;
+	}
+
+	/**
+	 * Removes a copy of the song from the given columns. With the last copy,
+	 * takes the play count and the rating of the song back from them,
+	 * freeing its ordinal there
+	 *
+	 * @param cols the columns of the library the song was removed from
+	 * @requires cols != null
+	 */
+	void detach(SongColumns cols) {
+		if (this.columns != cols) {
+			cols.release(this);
+			return;
+		}
+		if (!cols.release(this.ordinal)) {
+			return;
+		}
+		this.timesPlayed = cols.plays(this.ordinal);
+		this.rate = cols.rating(this.ordinal);
+		cols.detach(this.ordinal);
+		this.columns = null;
+		this.ordinal = SongColumns.NO_ORDINAL;
+	}
+
+	/**
+	 * Returns the ordinal of the song in the columns of its library
+	 *
+	 * @return the ordinal or SongColumns.NO_ORDINAL if the song is not
+	 *         in a library
+	 */
+	public int getOrdinal() {
+		return this.ordinal;
+	}
+
 	/**
 	 * Increments the number of times the song was played
 	 */
 	@Override
 	public void incTimesPlayed() {
-		this.timesPlayed++;
+		if (this.columns != null) {
+			this.columns.incPlays(this.ordinal);
+		} else {
+			this.timesPlayed++;
+		}
 	}
 
 	/**
@@ -49,7 +135,7 @@ public class Song implements ISong, RegExpMatchable {
 	 */
 	@Override
 	public int getTimesPlayed() {
-		return this.timesPlayed;
+		return this.columns != null ? this.columns.plays(this.ordinal) : this.timesPlayed;
 	}
 
 	/**
@@ -60,7 +146,7 @@ public class Song implements ISong, RegExpMatchable {
 	 */
 	@Override
 	public Rate getRating() {
-		return this.rate;
+		return this.columns != null ? this.columns.rating(this.ordinal) : this.rate;
 	}
 
 	/**
@@ -69,7 +155,7 @@ public class Song implements ISong, RegExpMatchable {
 	 */
 	@Override
 	public void incRating() {
-		this.rate = rate.incRate();
+		setRating(getRating().incRate());
 	}
 
 	/**
@@ -78,7 +164,15 @@ public class Song implements ISong, RegExpMatchable {
 	 */
 	@Override
 	public void decRating() {
-		this.rate = rate.decRate();
+		setRating(getRating().decRate());
+	}
+
+	private void setRating(Rate rating) {
+		if (this.columns != null) {
+			this.columns.setRating(this.ordinal, rating);
+		} else {
+			this.rate = rating;
+		}
 	}
 
 	/**
@@ -148,6 +242,30 @@ public class Song implements ISong, RegExpMatchable {
 		return info.matches(regexp);
 	}
 
+	/**
+	 * Checks if any song data matches the given compiled regular expression
+	 *
+	 * @param pattern the compiled regular expression to be used
+	 * @requires pattern != null
+	 * @return whether some data of the song matches with the given pattern
+	 */
+	@Override
+	public boolean matches(Pattern pattern) {
+		return info.matches(pattern);
+	}
+
+	/**
+	 * Checks if any song data matches the pattern of the given matcher,
+	 * reusing the matcher instead of creating a new one
+	 *
+	 * @param matcher the matcher to be used
+	 * @requires matcher != null
+	 * @return whether some data of the song matches with the pattern of matcher
+	 */
+	public boolean matches(Matcher matcher) {
+		return info.matches(matcher);
+	}
+
 	/**
 	 * Creates a String representation of the song
 	 *
@@ -158,7 +276,7 @@ public class Song implements ISong, RegExpMatchable {
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 
-		sb.append(this.info.toString() + " --- " + this.rate.toString() + " --- " + this.timesPlayed);
+		sb.append(this.info.toString() + " --- " + getRating().toString() + " --- " + getTimesPlayed());
 
 		return sb.toString();
 	}
@@ -6,11 +6,16 @@ import domain.facade.ISong;
  * @author André Reis fc58192
  * @author Martim Pereira fc58223
  *
- * Class that represent the event of a song addition to a Music Library
+ * Class that represent the event of a song addition to a Music Library.
+ * The event keeps the rating and the play count the song had when it was
+ * added, which listeners notified later can no longer read from the song
  *
  */
 public class SongAddedLibraryEvent extends SongLibraryEvent {
 
+	private Rate rating;
+	private int timesPlayed;
+
 	/**
 	 * SongAddedLibraryEvent constructor
 	 *
@@ -19,6 +24,24 @@ public class SongAddedLibraryEvent extends SongLibraryEvent {
 	 */
 	public SongAddedLibraryEvent(ISong song, MusicLibrary lib) {
 		super(song, lib);
+		this.rating = song.getRating();
+		this.timesPlayed = song.getTimesPlayed();
+	}
+
+	/**
+	 * @return the rating of the song when it was added
+	 * @ensures \result != null
+	 */
+	public Rate getRating() {
+		return this.rating;
+	}
+
+	/**
+	 * @return the number of times the song was played when it was added
+	 * @ensures \result >= 0
+	 */
+	public int getTimesPlayed() {
+		return this.timesPlayed;
 	}
 
 }
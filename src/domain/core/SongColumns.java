@@ -0,0 +1,321 @@
+package domain.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import domain.facade.ISong;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type keep the play counts and the ratings of the songs
+ * of a Music Library in dense primitive columns, indexed by an ordinal
+ * each song gets when it is added to the library and keeps until it is
+ * removed. The ordinals of removed songs are reused by the songs added
+ * after them, so the columns only grow with the size of the library.
+ *
+ * While a song is in the library its play count and rating are the ones in
+ * the columns, so statistics over the library scan the arrays instead of
+ * going through the songs. A song added more than once keeps a single
+ * ordinal, freed when its last copy is removed.
+ *
+ * A song is backed by the columns of the last library it was added to.
+ * The columns of the other libraries that still have it mark its ordinal
+ * as moved and read its values from the song. The columns are guarded by
+ * the lock of their library.
+ */
+public class SongColumns {
+
+	//ordinal of the songs that are not in the columns
+	public static final int NO_ORDINAL = -1;
+
+	private static final int INITIAL_CAPACITY = 64;
+	//rating of the ordinals that are not in use
+	private static final byte FREE = -1;
+	//rating of the ordinals of songs backed by the columns of another library
+	private static final byte MOVED = -2;
+	private static final Rate[] RATES = Rate.values();
+
+	private int[] plays;
+	private byte[] ratings;
+	private Song[] songs;
+	private int[] refs;
+	private Map<Song, Integer> moved;
+	private int limit;
+	private int[] free;
+	private int freeCount;
+
+	/**
+	 * SongColumns constructor
+	 */
+	public SongColumns() {
+		this.plays = new int[INITIAL_CAPACITY];
+		this.ratings = new byte[INITIAL_CAPACITY];
+		this.songs = new Song[INITIAL_CAPACITY];
+		this.refs = new int[INITIAL_CAPACITY];
+		this.moved = new IdentityHashMap<>();
+		this.free = new int[INITIAL_CAPACITY];
+		this.limit = 0;
+		this.freeCount = 0;
+	}
+
+	/**
+	 * Gives the given song an ordinal, with the given play count and rating.
+	 * A song these columns marked as moved gets its ordinal back
+	 *
+	 * @param song        the song
+	 * @param timesPlayed the number of times the song was played
+	 * @param rate        the rating of the song
+	 * @requires song != null && rate != null && timesPlayed >= 0
+	 * @return the ordinal of the song
+	 * @ensures 0 <= \result < getLimit()
+	 */
+	int attach(Song song, int timesPlayed, Rate rate) {
+		Integer back = this.moved.remove(song);
+		int ordinal;
+		if (back != null) {
+			ordinal = back;
+			this.refs[ordinal]++;
+		} else {
+			if (this.freeCount > 0) {
+				ordinal = this.free[--this.freeCount];
+			} else {
+				if (this.limit == this.songs.length) {
+					int capacity = this.songs.length * 2;
+					this.plays = Arrays.copyOf(this.plays, capacity);
+					this.ratings = Arrays.copyOf(this.ratings, capacity);
+					this.songs = Arrays.copyOf(this.songs, capacity);
+					this.refs = Arrays.copyOf(this.refs, capacity);
+				}
+				ordinal = this.limit++;
+			}
+			this.refs[ordinal] = 1;
+			this.songs[ordinal] = song;
+		}
+		this.plays[ordinal] = timesPlayed;
+		this.ratings[ordinal] = (byte) rate.ordinal();
+		return ordinal;
+	}
+
+	/**
+	 * Adds a copy of the song with the given ordinal, which keeps it
+	 *
+	 * @param ordinal the ordinal of a song
+	 * @requires 0 <= ordinal < getLimit() && songAt(ordinal) != null
+	 */
+	void retain(int ordinal) {
+		this.refs[ordinal]++;
+	}
+
+	/**
+	 * Removes a copy of the song with the given ordinal
+	 *
+	 * @param ordinal the ordinal of a song
+	 * @requires 0 <= ordinal < getLimit() && songAt(ordinal) != null
+	 * @return true if it was the last copy, so the ordinal must be detached
+	 */
+	boolean release(int ordinal) {
+		return --this.refs[ordinal] == 0;
+	}
+
+	/**
+	 * Frees the given ordinal, to be reused by the songs added later
+	 *
+	 * @param ordinal the ordinal of a song
+	 * @requires 0 <= ordinal < getLimit() && songAt(ordinal) != null
+	 */
+	void detach(int ordinal) {
+		this.plays[ordinal] = 0;
+		this.ratings[ordinal] = FREE;
+		this.songs[ordinal] = null;
+		this.refs[ordinal] = 0;
+		if (this.freeCount == this.free.length) {
+			this.free = Arrays.copyOf(this.free, this.free.length * 2);
+		}
+		this.free[this.freeCount++] = ordinal;
+	}
+
+	/**
+	 * Marks the song with the given ordinal as moved to the columns of
+	 * another library, so its values are read from the song from now on
+	 *
+	 * @param ordinal the ordinal of a song
+	 * @requires 0 <= ordinal < getLimit() && songAt(ordinal) != null
+	 */
+	void moveOut(int ordinal) {
+		this.plays[ordinal] = 0;
+		this.ratings[ordinal] = MOVED;
+		this.moved.put(this.songs[ordinal], ordinal);
+	}
+
+	/**
+	 * Removes a copy of the given song, moved to the columns of another
+	 * library, freeing its ordinal with the last copy
+	 *
+	 * @param song the song
+	 */
+	void release(Song song) {
+		Integer ordinal = this.moved.get(song);
+		if (ordinal != null && release(ordinal.intValue())) {
+			this.moved.remove(song);
+			detach(ordinal);
+		}
+	}
+
+	int plays(int ordinal) {
+		return this.plays[ordinal];
+	}
+
+	void incPlays(int ordinal) {
+		this.plays[ordinal]++;
+	}
+
+	Rate rating(int ordinal) {
+		return RATES[this.ratings[ordinal]];
+	}
+
+	void setRating(int ordinal, Rate rate) {
+		this.ratings[ordinal] = (byte) rate.ordinal();
+	}
+
+	/**
+	 * Returns the number of songs in the columns
+	 *
+	 * @return the number of ordinals in use
+	 * @ensures 0 <= \result <= getLimit()
+	 */
+	public int size() {
+		return this.limit - this.freeCount;
+	}
+
+	/**
+	 * Returns the bound of the ordinals of the songs
+	 *
+	 * @return a number greater than the ordinal of every song
+	 * @ensures \result >= size()
+	 */
+	public int getLimit() {
+		return this.limit;
+	}
+
+	/**
+	 * Returns the song with the given ordinal
+	 *
+	 * @param ordinal the ordinal
+	 * @requires 0 <= ordinal < getLimit()
+	 * @return the song or null if the ordinal is not in use
+	 */
+	public ISong songAt(int ordinal) {
+		return this.songs[ordinal];
+	}
+
+	/**
+	 * Returns the number of times all the songs were played
+	 *
+	 * @return the sum of the play counts
+	 * @ensures \result >= 0
+	 */
+	public long totalPlays() {
+		int[] p = this.plays;
+		long total = 0;
+		for (int i = 0; i < this.limit; i++) {
+			total += p[i];
+		}
+		for (Song song : this.moved.keySet()) {
+			total += song.getTimesPlayed();
+		}
+		return total;
+	}
+
+	/**
+	 * Returns how many songs have each rating
+	 *
+	 * @return the number of songs with each rating, by the ordinal of the rating
+	 * @ensures \result.length == Rate.values().length
+	 */
+	public int[] ratingDistribution() {
+		byte[] r = this.ratings;
+		int[] counts = new int[RATES.length];
+		for (int i = 0; i < this.limit; i++) {
+			if (r[i] >= 0) {
+				counts[r[i]]++;
+			}
+		}
+		for (Song song : this.moved.keySet()) {
+			counts[song.getRating().ordinal()]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the number of songs rated at least the given rating
+	 *
+	 * @param rate the rating
+	 * @requires rate != null
+	 * @return the number of songs with a rating of rate or higher
+	 * @ensures \result >= 0
+	 */
+	public int countRatedAtLeast(Rate rate) {
+		byte[] r = this.ratings;
+		byte min = (byte) rate.ordinal();
+		int count = 0;
+		for (int i = 0; i < this.limit; i++) {
+			if (r[i] >= min) {
+				count++;
+			}
+		}
+		for (Song song : this.moved.keySet()) {
+			if (song.getRating().ordinal() >= min) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the songs played the most times, from the most played down.
+	 * Among songs played the same number of times, the ones with the
+	 * lowest ordinal come first
+	 *
+	 * @param n the maximum number of songs
+	 * @requires n >= 0
+	 * @return the at most n most played songs that were played at least once
+	 * @ensures \result != null && \result.size() <= n
+	 */
+	public List<ISong> mostPlayed(int n) {
+		if (n == 0) {
+			return Collections.emptyList();
+		}
+		int[] p = this.plays;
+		if (!this.moved.isEmpty()) {
+			p = Arrays.copyOf(p, this.limit);
+			for (Map.Entry<Song, Integer> e : this.moved.entrySet()) {
+				p[e.getValue()] = e.getKey().getTimesPlayed();
+			}
+		}
+		int[] counts = p;
+		PriorityQueue<Integer> top = new PriorityQueue<>(n + 1,
+				(a, b) -> counts[a] != counts[b] ? Integer.compare(counts[a], counts[b]) : Integer.compare(b, a));
+		for (int i = 0; i < this.limit; i++) {
+			if (counts[i] > 0 && (top.size() < n || counts[i] > counts[top.peek()])) {
+				top.add(i);
+				if (top.size() > n) {
+					top.poll();
+				}
+			}
+		}
+		List<ISong> result = new ArrayList<>(top.size());
+		while (!top.isEmpty()) {
+			result.add(this.songs[top.poll()]);
+		}
+		Collections.reverse(result);
+		return result;
+	}
+
+}
@@ -0,0 +1,471 @@
+package domain.core;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import domain.facade.ISong;
+import util.observer.Listener;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type represent an inverted index from the words in the
+ * title, album, genre and artists of the songs of a Music Library to the
+ * songs where they appear. The index is kept up to date by the
+ * SongAddedLibraryEvent, SongsAddedLibraryEvent and SongRemovedLibraryEvent
+ * of the library.
+ *
+ * Postings are ordered by the order in which the songs were added, so
+ * answers come back in the same order as the library. Songs added in a
+ * batch get their place in that order right away, but their words are
+ * only indexed when the index is first needed, so bulk loads stay cheap.
+ */
+public class SongIndex implements Listener<SongLibraryEvent> {
+
+	//character that turns a query word into a prefix query
+	private static final char PREFIX_WILDCARD = '*';
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final Pattern QUERY_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}*]+");
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+	private NavigableMap<String, NavigableMap<Long, ISong>> postings;
+	private NavigableMap<Long, ISong> songs;
+	private Map<ISong, Long> sequences;
+	private List<ISong> deferred;
+	private long nextSequence;
+
+	/**
+	 * SongIndex constructor
+	 */
+	public SongIndex() {
+		this.postings = new TreeMap<>();
+		this.songs = new TreeMap<>();
+		this.sequences = new IdentityHashMap<>();
+		this.deferred = new ArrayList<>();
+		this.nextSequence = 0;
+	}
+
+	/**
+	 * Processes a SongLibraryEvent, indexing added songs and
+	 * forgetting removed ones
+	 *
+	 * @param e the SongLibraryEvent given
+	 */
+	@Override
+	public void processEvent(SongLibraryEvent e) {
+		if (e instanceof SongAddedLibraryEvent) {
+			add(e.getSong());
+		} else if (e instanceof SongsAddedLibraryEvent) {
+			for (ISong song : ((SongsAddedLibraryEvent) e).getSongs()) {
+				defer(song);
+			}
+		} else if (e instanceof SongRemovedLibraryEvent) {
+			remove(e.getSong());
+		}
+	}
+
+	/**
+	 * Adds the given song to the index, if it is not already there
+	 *
+	 * @param song the song to index
+	 * @requires song != null
+	 */
+	public void add(ISong song) {
+		if (this.sequences.containsKey(song)) {
+			return;
+		}
+		long seq = this.nextSequence++;
+		this.sequences.put(song, seq);
+		this.songs.put(seq, song);
+		post(song, seq);
+	}
+
+	/**
+	 * Adds the given song to the index, if it is not already there, leaving
+	 * its words to be indexed when the index is first needed
+	 *
+	 * @param song the song to index
+	 * @requires song != null
+	 */
+	public void defer(ISong song) {
+		if (this.sequences.containsKey(song)) {
+			return;
+		}
+		long seq = this.nextSequence++;
+		this.sequences.put(song, seq);
+		this.songs.put(seq, song);
+		this.deferred.add(song);
+	}
+
+	/**
+	 * Removes the given song from the index, if it is there
+	 *
+	 * @param song the song to forget
+	 * @requires song != null
+	 */
+	public void remove(ISong song) {
+		catchUp();
+		Long seq = this.sequences.remove(song);
+		if (seq == null) {
+			return;
+		}
+		this.songs.remove(seq);
+		for (String token : tokensOf(song)) {
+			NavigableMap<Long, ISong> posting = this.postings.get(token);
+			if (posting != null) {
+				posting.remove(seq);
+				if (posting.isEmpty()) {
+					this.postings.remove(token);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of songs in the index
+	 *
+	 * @return the number of indexed songs
+	 * @ensures \result >= 0
+	 */
+	public int size() {
+		return this.songs.size();
+	}
+
+	/**
+	 * Returns the number of distinct words in the index
+	 *
+	 * @return the number of distinct words
+	 * @ensures \result >= 0
+	 */
+	public int numberOfTokens() {
+		catchUp();
+		return this.postings.size();
+	}
+
+	/**
+	 * Method that returns the songs containing every word of the given query.
+	 * A word ending in '*' matches every word that starts with it; a '*'
+	 * anywhere else in a word is taken literally, so that word matches nothing.
+	 * Words are compared ignoring case and accents.
+	 *
+	 * @param query the words to search for
+	 * @requires query != null
+	 * @return the songs that contain all words of query, in the order they
+	 *         were added; every indexed song if query has no words
+	 * @ensures \result != null
+	 */
+	public List<ISong> search(String query) {
+		catchUp();
+		List<Term> terms = new ArrayList<>();
+		for (String word : new LinkedHashSet<>(split(query, QUERY_SEPARATORS))) {
+			Term term = termOf(word);
+			if (term.size == 0) {
+				return Collections.emptyList();
+			}
+			terms.add(term);
+		}
+		if (terms.isEmpty()) {
+			return new ArrayList<>(this.songs.values());
+		}
+
+		terms.sort(Comparator.comparingLong(t -> t.size));
+		List<ISong> result = new ArrayList<>();
+		Iterator<Map.Entry<Long, ISong>> smallest = terms.get(0).iterator();
+		while (smallest.hasNext()) {
+			Map.Entry<Long, ISong> entry = smallest.next();
+			boolean inAll = true;
+			for (int i = 1; i < terms.size() && inAll; i++) {
+				inAll = terms.get(i).contains(entry.getKey(), entry.getValue());
+			}
+			if (inAll) {
+				result.add(entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Indexes the words of the songs whose indexing was deferred
+	 */
+	private void catchUp() {
+		if (this.deferred.isEmpty()) {
+			return;
+		}
+		for (ISong song : this.deferred) {
+			Long seq = this.sequences.get(song);
+			if (seq != null) {
+				post(song, seq);
+			}
+		}
+		this.deferred = new ArrayList<>();
+	}
+
+	/**
+	 * Adds the song with the given sequence to the postings of its words
+	 *
+	 * @param song the song
+	 * @param seq  the sequence of song
+	 */
+	private void post(ISong song, long seq) {
+		for (String token : tokensOf(song)) {
+			this.postings.computeIfAbsent(token, t -> new TreeMap<>()).put(seq, song);
+		}
+	}
+
+	/**
+	 * Method that returns the term of a single query word, without copying
+	 * the postings it covers
+	 *
+	 * @param word the normalized query word
+	 * @return the term with the postings of the words matched by word
+	 */
+	private Term termOf(String word) {
+		int wildcard = word.indexOf(PREFIX_WILDCARD);
+		if (wildcard < 0 || wildcard < word.length() - 1) {
+			NavigableMap<Long, ISong> posting = this.postings.get(word);
+			return new Term(null, posting == null ? Collections.emptyList() : Collections.singletonList(posting));
+		}
+		String prefix = word.substring(0, wildcard);
+		NavigableMap<String, NavigableMap<Long, ISong>> range = prefix.isEmpty()
+				? this.postings
+				: this.postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+		return new Term(prefix, range.values());
+	}
+
+	/**
+	 * Objects of this type represent a query word, as the postings of the
+	 * indexed words it matches: a single word, or every word in the range
+	 * of a prefix. The postings are views of the index and are never copied.
+	 */
+	private static final class Term {
+
+		//ranges with more words than this are probed through the words of the song
+		private static final int MAX_PROBED_POSTINGS = 8;
+
+		private final String prefix;
+		private final Collection<NavigableMap<Long, ISong>> postings;
+		private final long size;
+
+		/**
+		 * Term constructor
+		 *
+		 * @param prefix   the prefix matched by the term, or null if it is a
+		 *                 whole word
+		 * @param postings the postings of the words matched by the term
+		 */
+		Term(String prefix, Collection<NavigableMap<Long, ISong>> postings) {
+			this.prefix = prefix;
+			this.postings = postings;
+			long total = 0;
+			for (NavigableMap<Long, ISong> posting : postings) {
+				total += posting.size();
+			}
+			this.size = total;
+		}
+
+		/**
+		 * Checks if the song with the given sequence is in the postings of
+		 * this term
+		 *
+		 * @param seq  the sequence of the song
+		 * @param song the song
+		 * @return true if song contains a word matched by this term
+		 */
+		boolean contains(long seq, ISong song) {
+			if (this.postings.size() > MAX_PROBED_POSTINGS) {
+				for (String token : tokensOf(song)) {
+					if (token.startsWith(this.prefix)) {
+						return true;
+					}
+				}
+				return false;
+			}
+			for (NavigableMap<Long, ISong> posting : this.postings) {
+				if (posting.containsKey(seq)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns an iterator over the songs of this term, by sequence and
+		 * without repetitions, merging the postings it covers
+		 *
+		 * @return iterator over the songs of this term
+		 */
+		Iterator<Map.Entry<Long, ISong>> iterator() {
+			if (this.postings.size() == 1) {
+				return this.postings.iterator().next().entrySet().iterator();
+			}
+			PriorityQueue<PeekingIterator> heads = new PriorityQueue<>(
+					Comparator.comparingLong((PeekingIterator it) -> it.head.getKey()));
+			for (NavigableMap<Long, ISong> posting : this.postings) {
+				PeekingIterator it = new PeekingIterator(posting.entrySet().iterator());
+				if (it.head != null) {
+					heads.add(it);
+				}
+			}
+			return new Iterator<Map.Entry<Long, ISong>>() {
+				@Override
+				public boolean hasNext() {
+					return !heads.isEmpty();
+				}
+
+				@Override
+				public Map.Entry<Long, ISong> next() {
+					if (heads.isEmpty()) {
+						throw new NoSuchElementException();
+					}
+					Map.Entry<Long, ISong> next = heads.peek().head;
+					//a song is in the postings of every word of the range it contains
+					while (!heads.isEmpty() && heads.peek().head.getKey().equals(next.getKey())) {
+						PeekingIterator it = heads.poll();
+						if (it.advance()) {
+							heads.add(it);
+						}
+					}
+					return next;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Iterator over the entries of a posting that keeps its next entry
+	 */
+	private static final class PeekingIterator {
+
+		private final Iterator<Map.Entry<Long, ISong>> it;
+		private Map.Entry<Long, ISong> head;
+
+		/**
+		 * PeekingIterator constructor
+		 *
+		 * @param it the iterator over the entries of a posting
+		 */
+		PeekingIterator(Iterator<Map.Entry<Long, ISong>> it) {
+			this.it = it;
+			advance();
+		}
+
+		/**
+		 * Moves to the next entry of the posting
+		 *
+		 * @return true if there is a next entry, false otherwise
+		 */
+		boolean advance() {
+			this.head = this.it.hasNext() ? this.it.next() : null;
+			return this.head != null;
+		}
+	}
+
+	/**
+	 * Method that returns the distinct words of the searchable fields of a song
+	 *
+	 * @param song the song
+	 * @return the set of normalized words of song
+	 */
+	private static Set<String> tokensOf(ISong song) {
+		Set<String> tokens = new LinkedHashSet<>();
+		addTokens(tokens, song.getSongTitle());
+		addTokens(tokens, song.getAlbum());
+		addTokens(tokens, song.getGenre());
+		for (String artist : song.getArtists()) {
+			addTokens(tokens, artist);
+		}
+		return tokens;
+	}
+
+	/**
+	 * Adds the words of the given text to the given set
+	 *
+	 * @param tokens the set where the words are added
+	 * @param text   the text to split, possibly null
+	 */
+	private static void addTokens(Set<String> tokens, String text) {
+		if (text != null) {
+			tokens.addAll(split(text, SEPARATORS));
+		}
+	}
+
+	/**
+	 * Splits the given text in lower case words without accents
+	 *
+	 * @param text       the text to split
+	 * @param separators the characters between words
+	 * @return the list of words in text
+	 * @ensures \result != null
+	 */
+	private static List<String> split(String text, Pattern separators) {
+		if (isAscii(text)) {
+			return splitAscii(text, separators == QUERY_SEPARATORS);
+		}
+		String plain = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+		List<String> words = new ArrayList<>();
+		for (String word : separators.split(plain.toLowerCase(Locale.ROOT))) {
+			if (!word.isEmpty()) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Splits the given ASCII text in lower case words, the same way split
+	 * does but without normalizing it or using regular expressions
+	 *
+	 * @param text         the text to split
+	 * @param keepWildcard if '*' is part of the words
+	 * @return the list of words in text
+	 * @ensures \result != null
+	 */
+	private static List<String> splitAscii(String text, boolean keepWildcard) {
+		List<String> words = new ArrayList<>();
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			char c = i < text.length() ? text.charAt(i) : ' ';
+			boolean inWord = ('a' <= c && c <= 'z') || ('A' <= c && c <= 'Z') || ('0' <= c && c <= '9')
+					|| (keepWildcard && c == PREFIX_WILDCARD);
+			if (inWord && start < 0) {
+				start = i;
+			} else if (!inWord && start >= 0) {
+				words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Checks if the given text only has ASCII characters
+	 *
+	 * @param text the text
+	 * @return true if every character of text is ASCII, false otherwise
+	 */
+	private static boolean isAscii(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
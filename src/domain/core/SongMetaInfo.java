@@ -1,6 +1,7 @@
 package domain.core;
 
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import util.adts.RegExpMatchable;
@@ -25,14 +26,38 @@ public record SongMetaInfo(String titulo, String album, String genero, List<Stri
 	 */
 	@Override
 	public boolean matches(String regexp) {
-		Pattern pat = Pattern.compile(regexp);
+		return matches(Pattern.compile(regexp));
+	}
+
+	/**
+	 * Method that checks if a given compiled pattern matches any of
+	 * the class parammeters
+	 *
+	 * @requires pattern != null
+	 * @return if pattern matches any of the parameters
+	 * @ensures \result == true || \result == false
+	 */
+	@Override
+	public boolean matches(Pattern pattern) {
+		return matches(pattern.matcher(""));
+	}
+
+	/**
+	 * Method that checks if the pattern of the given matcher matches any of
+	 * the class parammeters, reusing the matcher for every parameter
+	 *
+	 * @requires matcher != null
+	 * @return if the pattern of matcher matches any of the parameters
+	 * @ensures \result == true || \result == false
+	 */
+	public boolean matches(Matcher matcher) {
 		boolean matches;
-		matches = (pat.matcher(titulo).matches())
-				|| (pat.matcher(genero).matches())
-				|| (pat.matcher(album).matches());
+		matches = (matcher.reset(titulo).matches())
+				|| (matcher.reset(genero).matches())
+				|| (matcher.reset(album).matches());
 
 		for (String artista : artistas) {
-			matches = matches || (pat.matcher(artista).matches());
+			matches = matches || (matcher.reset(artista).matches());
 		}
 
 		return matches;
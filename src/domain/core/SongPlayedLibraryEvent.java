@@ -0,0 +1,36 @@
+package domain.core;
+
+import domain.facade.ISong;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Class that represent the event of a song of a Music Library being
+ * played until the end
+ *
+ */
+public class SongPlayedLibraryEvent extends SongLibraryEvent {
+
+	private int timesPlayed;
+
+	/**
+	 * SongPlayedLibraryEvent constructor
+	 *
+	 * @param song the song related to the event (being played)
+	 * @param lib  libarary where the event happended
+	 */
+	public SongPlayedLibraryEvent(ISong song, MusicLibrary lib) {
+		super(song, lib);
+		this.timesPlayed = song.getTimesPlayed();
+	}
+
+	/**
+	 * @return the number of times the song was played, counting this time
+	 * @ensures \result >= 0
+	 */
+	public int getTimesPlayed() {
+		return this.timesPlayed;
+	}
+
+}
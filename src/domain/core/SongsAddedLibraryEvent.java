@@ -0,0 +1,76 @@
+package domain.core;
+
+import java.util.Collections;
+import java.util.List;
+
+import domain.facade.ISong;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Class that represent the event of the addition of several songs to a
+ * Music Library at once. The song of the event is the last one added.
+ * The event keeps the ratings and the play counts the songs had when they
+ * were added
+ *
+ */
+public class SongsAddedLibraryEvent extends SongLibraryEvent {
+
+	private List<ISong> songs;
+	private Rate[] ratings;
+	private int[] timesPlayed;
+
+	/**
+	 * SongsAddedLibraryEvent constructor
+	 *
+	 * @param songs the songs being added, in the order they were added
+	 * @param lib   libarary where the event happended
+	 * @requires songs != null && !songs.isEmpty()
+	 */
+	public SongsAddedLibraryEvent(List<? extends ISong> songs, MusicLibrary lib) {
+		super(songs.get(songs.size() - 1), lib);
+		this.songs = Collections.unmodifiableList(songs);
+		this.ratings = new Rate[songs.size()];
+		this.timesPlayed = new int[songs.size()];
+		for (int i = 0; i < songs.size(); i++) {
+			this.ratings[i] = songs.get(i).getRating();
+			this.timesPlayed[i] = songs.get(i).getTimesPlayed();
+		}
+	}
+
+	/**
+	 * Fetches the songs added, in the order they were added
+	 *
+	 * @return unmodifiable list with the songs added
+	 * @ensures \result != null && !\result.isEmpty()
+	 */
+	public List<ISong> getSongs() {
+		return this.songs;
+	}
+
+	/**
+	 * Fetches the rating a song had when it was added
+	 *
+	 * @param i the position of the song in getSongs()
+	 * @requires 0 <= i < getSongs().size()
+	 * @return the rating of the song when it was added
+	 * @ensures \result != null
+	 */
+	public Rate getRating(int i) {
+		return this.ratings[i];
+	}
+
+	/**
+	 * Fetches the number of times a song was played when it was added
+	 *
+	 * @param i the position of the song in getSongs()
+	 * @requires 0 <= i < getSongs().size()
+	 * @return the play count of the song when it was added
+	 * @ensures \result >= 0
+	 */
+	public int getTimesPlayed(int i) {
+		return this.timesPlayed[i];
+	}
+
+}
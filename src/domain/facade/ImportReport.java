@@ -0,0 +1,43 @@
+package domain.facade;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type represent the outcome of a bulk import of songs
+ * into a Music Library
+ *
+ * @param found    number of song files found
+ * @param added    number of songs added to the library
+ * @param failures files or directories that could not be read, in order
+ * @param elapsed  time taken by the import
+ */
+public record ImportReport(int found, int added, List<Path> failures, Duration elapsed) {
+
+	/**
+	 * Returns the number of files or directories that could not be read
+	 *
+	 * @return the number of failures
+	 * @ensures \result >= 0
+	 */
+	public int failed() {
+		return this.failures.size();
+	}
+
+	/**
+	 * Creates a String representation of the report
+	 *
+	 * @return String representing the report
+	 * @ensures \result != null
+	 */
+	@Override
+	public String toString() {
+		return "Imported " + this.added + " of " + this.found + " songs in "
+				+ this.elapsed.toMillis() + " ms (" + failed() + " failures)";
+	}
+
+}
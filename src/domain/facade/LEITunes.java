@@ -1,7 +1,15 @@
 package domain.facade;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import domain.core.MusicLibrary;
 import domain.playlists.PlaylistList;
+import servicos.LibraryJournal;
+import servicos.LibrarySnapshot;
+import servicos.TagCache;
+import util.metrics.MetricsRegistry;
 
 /**
  * @author André Reis fc58192
@@ -11,21 +19,110 @@ import domain.playlists.PlaylistList;
  */
 public class LEITunes {
 
+    //file of the cache of tags of a system without a snapshot
+    public static final Path DEFAULT_TAG_CACHE = Paths.get("leitunes.tags");
+    //name of the cache of tags in the directory of a journal
+    private static final String JOURNAL_TAG_CACHE = "tags.cache";
+
     private MusicLibrary library;
+    private TagCache tagCache;
     private PlaylistList playlistList;
     private PlaylistListController playlistListControler;
     private MusicLibraryController libraryController;
 
     /**
-     * LEITunes constructor
+     * LEITunes constructor, with the cache of tags in DEFAULT_TAG_CACHE
      */
 	public LEITunes(){
         this.library = new MusicLibrary();
         this.playlistList = new PlaylistList(library);
         this.playlistListControler = new PlaylistListController(playlistList, library);
-        this.libraryController = new MusicLibraryController(library);
+        this.tagCache = loadTagCache(DEFAULT_TAG_CACHE);
+        this.libraryController = new MusicLibraryController(library, tagCache);
+        registerMetrics();
 	}
 
+    /**
+     * LEITunes constructor that restores the library and the playlists
+     * saved in the given snapshot, with the cache of tags next to it
+     * @param snapshot file where the library was saved
+     * @throws IOException if the snapshot could not be read
+     */
+    public LEITunes(Path snapshot) throws IOException {
+        this.playlistList = new LibrarySnapshot().load(snapshot);
+        this.library = this.playlistList.getLibrary();
+        this.playlistListControler = new PlaylistListController(playlistList, library);
+        this.tagCache = loadTagCache(snapshot.resolveSibling(snapshot.getFileName() + ".tags"));
+        this.libraryController = new MusicLibraryController(library, tagCache);
+        registerMetrics();
+    }
+
+    /**
+     * LEITunes constructor that restores the library and the playlists
+     * kept by the given journal, which goes on recording their changes,
+     * with the cache of tags in the directory of the journal
+     * @param journal the journal of the library
+     * @throws IOException if the journal could not be read
+     */
+    public LEITunes(LibraryJournal journal) throws IOException {
+        this.playlistList = journal.open();
+        this.library = this.playlistList.getLibrary();
+        this.playlistListControler = new PlaylistListController(playlistList, library);
+        this.tagCache = loadTagCache(journal.getDirectory().resolve(JOURNAL_TAG_CACHE));
+        this.libraryController = new MusicLibraryController(library, tagCache);
+        registerMetrics();
+        MetricsRegistry.getDefault().gauge("leitunes_journal_commits", "Group commits of the library journal",
+                journal::getCommits);
+    }
+
+    /**
+     * Creates the cache of tags saved in the given file, with the entries
+     * saved there. A cache that cannot be read is only a cost, so the
+     * system starts with an empty one, which replaces it when saved
+     * @param file the file of the cache
+     * @return the cache of tags
+     */
+    private static TagCache loadTagCache(Path file) {
+        TagCache cache = new TagCache(file);
+        try {
+            cache.load();
+        } catch (IOException e) {
+            //the tags are read again from the files
+        }
+        return cache;
+    }
+
+    /**
+     * Registers the gauges of the library and the playlists in the
+     * default registry, replacing the ones of other systems
+     */
+    private void registerMetrics() {
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        metrics.gauge("leitunes_library_songs", "Songs in the library", this.library::size);
+        metrics.gauge("leitunes_playlists", "Playlists of the library", this.playlistList::size);
+        metrics.gauge("leitunes_library_plays", "Times the songs of the library were played",
+                this.library::getTotalPlays);
+    }
+
+    /**
+     * Method that saves the library and the playlists to the given file,
+     * replacing it only once the whole snapshot is written
+     * @param snapshot file where the library is saved
+     * @throws IOException if the snapshot could not be written
+     */
+    public void save(Path snapshot) throws IOException {
+        new LibrarySnapshot().save(snapshot, this.playlistList);
+    }
+
+    /**
+     * Method that shuts the system down, saving the cache of tags so the
+     * next start does not read the files that did not change
+     * @throws IOException if the cache of tags could not be written
+     */
+    public void close() throws IOException {
+        this.tagCache.save();
+    }
+
     /**
      * Method that returns the PlaylisListController
      * @return the PlaylistListController
@@ -1,11 +1,32 @@
 package domain.facade;
 
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import domain.core.MusicLibrary;
 import domain.core.Song;
 import servicos.SongCreator;
+import servicos.TagCache;
+import util.metrics.Counter;
+import util.metrics.Histogram;
+import util.metrics.MetricsRegistry;
 
 
 /**
@@ -17,7 +38,22 @@ import servicos.SongCreator;
  */
 public class MusicLibraryController {
 
+	//extension of the files imported by addSongs
+	private static final String SONG_EXTENSION = ".mp3";
+	//maximum number of files whose tags are read at the same time by addSongs
+	private static final int IMPORT_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+	private static final Histogram IMPORT_TIME = MetricsRegistry.getDefault()
+			.histogram("leitunes_import_seconds", "Time to import a set of mp3 files");
+	private static final Counter IMPORTED = MetricsRegistry.getDefault()
+			.counter("leitunes_imported_songs_total", "Songs added to the library by imports");
+	private static final Histogram REGEXP_SEARCH_TIME = MetricsRegistry.getDefault()
+			.histogram("leitunes_regexp_search_seconds", "Time to search the library with a regular expression");
+	private static final Histogram SEARCH_TIME = MetricsRegistry.getDefault()
+			.histogram("leitunes_search_seconds", "Time to search the index of the library by words");
+
 	private MusicLibrary library;
+	private TagCache tagCache;
 
 	/**
 	 * MusicLibraryController constructor
@@ -26,7 +62,26 @@ public class MusicLibraryController {
 	 * @requires library != null
 	 */
 	public MusicLibraryController(MusicLibrary library) {
+		this(library, null);
+	}
+
+	/**
+	 * MusicLibraryController constructor that takes the tags of unchanged
+	 * files from the given cache instead of reading them again
+	 * @param library  library to control
+	 * @param tagCache the cache of tags, or null to always read the files
+	 * 
+	 * @requires library != null
+	 */
+	public MusicLibraryController(MusicLibrary library, TagCache tagCache) {
 		this.library = library;
+		this.tagCache = tagCache;
+		if (tagCache != null) {
+			MetricsRegistry metrics = MetricsRegistry.getDefault();
+			metrics.gauge("leitunes_tag_cache_hit_ratio", "Fraction of imported files whose tags were cached",
+					tagCache::getHitRate);
+			metrics.gauge("leitunes_tag_cache_entries", "Files whose tags are cached", tagCache::size);
+		}
 	}
 
 	/**
@@ -54,16 +109,137 @@ public class MusicLibraryController {
 	 */
 	public void addSong(String filename) {
 
-		SongCreator creator = new SongCreator();
+		SongCreator creator = new SongCreator(this.tagCache);
 
 		Song toAdd = creator.create(filename);
 
 		if(toAdd != null) {
 			this.library.add(toAdd);
+			IMPORTED.inc();
 		}
 
 	}
 
+	/**
+	 * Adds to the library every mp3 file in the given directory and its
+	 * subdirectories, as addSongs(Collection) does
+	 *
+	 * @param root the directory to import
+	 * @requires root != null
+	 * @return the report of the import, where unreadable directories
+	 *         also count as failures
+	 * @ensures \result != null
+	 */
+	public ImportReport addSongs(Path root) {
+		long start = System.nanoTime();
+		Map<Path, BasicFileAttributes> files = new HashMap<>();
+		List<Path> unreadable = new ArrayList<>();
+		try {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (attrs.isRegularFile()
+							&& file.toString().toLowerCase(Locale.ROOT).endsWith(SONG_EXTENSION)) {
+						files.put(file, attrs);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					unreadable.add(file);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			unreadable.add(root);
+		}
+		ImportReport report = addSongs(files.keySet(), files);
+		List<Path> failures = new ArrayList<>(unreadable);
+		failures.addAll(report.failures());
+		IMPORT_TIME.recordSince(start);
+		return new ImportReport(report.found(), report.added(), Collections.unmodifiableList(failures),
+				Duration.ofNanos(System.nanoTime() - start));
+	}
+
+	/**
+	 * Creates songs from the given mp3 files and adds them to the library.
+	 * The tags of the files are read in parallel, but the songs are added
+	 * sorted by path and the library emits a single event for all of them
+	 *
+	 * @param files the mp3 files to import
+	 * @requires files != null
+	 * @return the report of the import
+	 * @ensures \result != null
+	 */
+	public ImportReport addSongs(Collection<Path> files) {
+		long start = System.nanoTime();
+		ImportReport report = addSongs(files, Collections.emptyMap());
+		IMPORT_TIME.recordSince(start);
+		return report;
+	}
+
+	/**
+	 * Imports the given mp3 files as addSongs(Collection) does, using the
+	 * attributes already known of some of them instead of reading them again
+	 *
+	 * @param files the mp3 files to import
+	 * @param attrs the attributes of the files, by file
+	 * @return the report of the import
+	 */
+	private ImportReport addSongs(Collection<Path> files, Map<Path, BasicFileAttributes> attrs) {
+		long start = System.nanoTime();
+		List<Path> sorted = new ArrayList<>(files);
+		Collections.sort(sorted);
+		List<Song> songs = new ArrayList<>(sorted.size());
+		List<Path> failures = new ArrayList<>();
+
+		if (!sorted.isEmpty()) {
+			SongCreator creator = new SongCreator(this.tagCache);
+			ExecutorService pool = Executors.newFixedThreadPool(Math.min(IMPORT_THREADS, sorted.size()));
+			try {
+				List<Future<Song>> parsed = new ArrayList<>(sorted.size());
+				for (Path file : sorted) {
+					BasicFileAttributes known = attrs.get(file);
+					parsed.add(pool.submit(() -> known == null ? creator.create(file.toString())
+							: creator.create(file, known)));
+				}
+				for (int i = 0; i < sorted.size(); i++) {
+					Song song = result(parsed.get(i));
+					if (song == null) {
+						failures.add(sorted.get(i));
+					} else {
+						songs.add(song);
+					}
+				}
+			} finally {
+				pool.shutdownNow();
+			}
+			this.library.addAll(songs);
+			IMPORTED.add(songs.size());
+		}
+		return new ImportReport(sorted.size(), songs.size(), Collections.unmodifiableList(failures),
+				Duration.ofNanos(System.nanoTime() - start));
+	}
+
+	/**
+	 * Waits for the song created by the given task
+	 *
+	 * @param task the task creating a song
+	 * @return the song created or null if it could not be created
+	 */
+	private static Song result(Future<Song> task) {
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			task.cancel(true);
+			return null;
+		}
+	}
+
 	/**
 	 * selects the songs corresponding to the given index
 	 * @param i the index of the wanted song
@@ -74,6 +250,23 @@ public class MusicLibraryController {
 		}
 	}
 
+	/**
+	 * selects the given song, if it is in the library
+	 * @param song the wanted song
+	 * @return true if the song was selected, false if it is not in the library
+	 */
+	public boolean selectSong(ISong song) {
+		int i = 0;
+		for (ISong s : this.library.getSongs()) {
+			if (s == song) {
+				this.library.select(i);
+				return true;
+			}
+			i++;
+		}
+		return false;
+	}
+
 	/**
 	 * Method that returns the selected song from the library, if possible
 	 * 
@@ -150,7 +343,47 @@ public class MusicLibraryController {
 	 * @ensures \result != null
 	 */
 	public Iterable<ISong> getMatches(String reexp) {
-		return this.library.getMatches(reexp);
+		long start = System.nanoTime();
+		Iterable<ISong> matches = this.library.getMatches(reexp);
+		REGEXP_SEARCH_TIME.recordSince(start);
+		return matches;
+
+	}
+
+	/**
+	 * Method that returns an iterable with the songs from the library that match
+	 * the given expression, checking each song only when the iteration reaches it
+	 * @param reexp given expression to match
+	 * @return lazy iterable structure with library songs that match reexp
+	 * @ensures \result != null
+	 */
+	public Iterable<ISong> getLazyMatches(String reexp) {
+		return this.library.getLazyMatches(reexp);
+
+	}
+
+	/**
+	 * Sets the number of songs from which searches with regular expressions
+	 * are done in parallel
+	 * @param threshold the new parallel search threshold
+	 * @requires threshold > 0
+	 */
+	public void setParallelSearchThreshold(int threshold) {
+		this.library.setParallelThreshold(threshold);
+	}
+
+	/**
+	 * Method that returns an iterable with all the songs from the library that contain
+	 * every word of the given query (a word ending in '*' matches by prefix)
+	 * @param query the words to search for
+	 * @return iterable structure with library songs that contain the words of query
+	 * @ensures \result != null
+	 */
+	public Iterable<ISong> search(String query) {
+		long start = System.nanoTime();
+		Iterable<ISong> found = this.library.search(query);
+		SEARCH_TIME.recordSince(start);
+		return found;
 
 	}
 
@@ -6,6 +6,9 @@ import domain.core.MusicLibrary;
 import domain.playlists.ManualPlaylist;
 import domain.playlists.Playlist;
 import domain.playlists.PlaylistList;
+import util.metrics.Counter;
+import util.metrics.Histogram;
+import util.metrics.MetricsRegistry;
 
 /**
  * @author André Reis fc58192
@@ -15,6 +18,13 @@ import domain.playlists.PlaylistList;
  */
 public class PlaylistListController {
 
+	private static final Counter PLAYLISTS_CREATED = MetricsRegistry.getDefault()
+			.counter("leitunes_playlists_created_total", "Manual playlists created");
+	private static final Counter SONGS_ADDED = MetricsRegistry.getDefault()
+			.counter("leitunes_playlist_songs_added_total", "Songs added to manual playlists");
+	private static final Histogram PLAY_TIME = MetricsRegistry.getDefault()
+			.histogram("leitunes_playlist_play_seconds", "Time to start playing the selected song of a playlist");
+
 	private MusicLibrary library;
 	private PlaylistList playlists;
 
@@ -57,6 +67,7 @@ public class PlaylistListController {
 	 */
 	public void createPlaylist(String name) {
 		this.playlists.add(new ManualPlaylist(name, this.library));
+		PLAYLISTS_CREATED.inc();
 	}
 
 	/**
@@ -121,7 +132,9 @@ public class PlaylistListController {
 	public void addSong() {
 		if (this.library.someSelected()) {
 			ISong song = this.library.getSelected();
-			getSelectedPlaylist().add(song);
+			if (getSelectedPlaylist().add(song)) {
+				SONGS_ADDED.inc();
+			}
 		}
 
 	}
@@ -180,7 +193,9 @@ public class PlaylistListController {
 	 */
 	public void play() {
 		if(someSongSelected()) {
+			long start = System.nanoTime();
 			this.playlists.play();
+			PLAY_TIME.recordSince(start);
 		}
 	}
 
@@ -4,9 +4,18 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.BufferedInputStream;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
 
+import servicos.AudioSource;
 import servicos.JLPlayer;
+import servicos.PcmCache;
+import servicos.StreamAudioSource;
+import util.metrics.Counter;
+import util.metrics.Histogram;
+import util.metrics.MetricsRegistry;
 
 /**
  * @author fmartins
@@ -31,41 +40,221 @@ public enum JLPlayerAdapter implements Player {
 	 */	
 	private PropertyChangeSupport listenerManager = new PropertyChangeSupport(this); 
 
+	/**
+	 * Where the bytes of the songs come from
+	 */
+	private volatile AudioSource source = new StreamAudioSource();
+
+	/**
+	 * The decoded samples of the songs played to the end, or null
+	 */
+	private volatile PcmCache pcmCache;
+
+	/**
+	 * The player prepared for the next song, not playing yet, and its file
+	 */
+	private JLPlayer preloaded;
+	private String preloadedFile;
+
+	/**
+	 * When the song that is ending ended, while the listeners react to it
+	 */
+	private long endedAt = -1;
+
+	/**
+	 * Time from the end of a song to the start of the one played after it
+	 */
+	private volatile long switchNanos = -1;
+	private final LongAdder preloadedSwitches = new LongAdder();
+
+	/**
+	 * Bytes of a preloaded song read before it starts playing
+	 */
+	private static final int PRELOAD_BUFFER = 256 * 1024;
+
 	
+	/**
+	 * The time to load each song and the songs that could not be loaded
+	 */
+	private final Histogram loadTime = MetricsRegistry.getDefault()
+			.histogram("leitunes_track_load_seconds", "Time to load a song in the player");
+	private final Counter loadFailures = MetricsRegistry.getDefault()
+			.counter("leitunes_track_load_failures_total", "Songs the player could not load");
+
+	/**
+	 * Registers the gauges of the player in the default registry
+	 */
+	private JLPlayerAdapter() {
+		MetricsRegistry metrics = MetricsRegistry.getDefault();
+		metrics.gauge("leitunes_track_switch_seconds", "Time from the end of a song to the start of the next one",
+				() -> switchNanos < 0 ? 0 : switchNanos / 1e9);
+		metrics.gauge("leitunes_track_preloaded_switches", "Songs loaded from a preloaded player",
+				this::getPreloadedSwitches);
+		metrics.gauge("leitunes_audio_source_stalls", "Reads of song bytes that waited for the disk",
+				() -> source.getStalls());
+		metrics.gauge("leitunes_pcm_cache_hit_ratio", "Fraction of songs played from decoded samples",
+				() -> pcmCache == null ? 0 : pcmCache.getHitRatio());
+		metrics.gauge("leitunes_pcm_cache_bytes", "Bytes of decoded samples kept",
+				() -> pcmCache == null ? 0 : pcmCache.getBytes());
+	}
+
 	@Override
-	public boolean load(String filename) {
+	public synchronized boolean load(String filename) {
+		long start = System.nanoTime();
+		stop();
+		if (preloaded != null && filename.equals(preloadedFile)) {
+			mp3Player = preloaded;
+			preloaded = null;
+			preloadedFile = null;
+			preloadedSwitches.increment();
+			loadTime.recordSince(start);
+			return true;
+		}
+		discardPreloaded();
     	try {
-    		stop();
-			mp3Player = new JLPlayer(new BufferedInputStream(new FileInputStream(filename)), this);
+			mp3Player = new JLPlayer(source.open(filename), null, this, pcmCache, filename);
 		} catch (Exception e) {
 			System.out.println("Somethig went wrong. Did not load song in" + filename);
+			loadFailures.inc();
 			return false;
-		} 
+		} finally {
+			loadTime.recordSince(start);
+		}
 		return true;
 	}
 
+	/**
+	 * Opens the file, fills its buffer and creates the decoder of the song,
+	 * so loading it later only switches players. If it fails, the song is
+	 * loaded as usual when it is played
+	 */
 	@Override
-	public void play() {
-		if (mp3Player != null)
+	public synchronized void preload(String filename) {
+		if (filename.equals(preloadedFile)) {
+			return;
+		}
+		discardPreloaded();
+		InputStream in = null;
+		try {
+			in = new BufferedInputStream(source.open(filename), PRELOAD_BUFFER);
+			in.mark(1);
+			in.read();
+			in.reset();
+			preloaded = new JLPlayer(in, null, this, pcmCache, filename);
+			preloadedFile = filename;
+		} catch (Exception e) {
+			close(in);
+		}
+	}
+
+	@Override
+	public synchronized void play() {
+		if (mp3Player != null) {
+			if (endedAt >= 0) {
+				switchNanos = System.nanoTime() - endedAt;
+				endedAt = -1;
+			}
 			mp3Player.play();
+		}
 	}
 
 	@Override
-	public void still() {
+	public synchronized void still() {
 		if (mp3Player != null)
 			mp3Player.still();
 	}
 
 	@Override
-	public void stop() {
+	public synchronized void stop() {
 		if (mp3Player != null)
 			mp3Player.stop();
 	}
 
 	@Override
 	public void hasEndedSong() {
+		synchronized (this) {
+			endedAt = System.nanoTime();
+		}
 		PropertyChangeEvent event = new PropertyChangeEvent(this, "playingState", Player.PlayingState.ON, Player.PlayingState.ENDED);
 		listenerManager.firePropertyChange(event);
+		synchronized (this) {
+			endedAt = -1;
+		}
+	}
+
+	/**
+	 * Changes where the bytes of the songs loaded from now on come from
+	 * @param source the new source
+	 * @requires source != null
+	 */
+	public void setSource(AudioSource source) {
+		this.source = source;
+	}
+
+	/**
+	 * Returns where the bytes of the songs come from
+	 * @return the source of the songs
+	 * @ensures \result != null
+	 */
+	public AudioSource getSource() {
+		return source;
+	}
+
+	/**
+	 * Changes the cache of decoded samples used by the songs loaded from now on
+	 * @param pcmCache the cache, or null to always decode the songs
+	 */
+	public void setPcmCache(PcmCache pcmCache) {
+		this.pcmCache = pcmCache;
+	}
+
+	/**
+	 * Returns the cache of decoded samples
+	 * @return the cache, or null if the songs are always decoded
+	 */
+	public PcmCache getPcmCache() {
+		return pcmCache;
+	}
+
+	/**
+	 * Returns the time from the end of the last song that was followed by
+	 * another to the start of the song played after it
+	 * @return the time to switch to the next song, or null if no song
+	 *         was followed by another yet
+	 */
+	public Duration getSwitchTime() {
+		long nanos = switchNanos;
+		return nanos < 0 ? null : Duration.ofNanos(nanos);
+	}
+
+	/**
+	 * Returns the number of songs loaded from a preloaded player
+	 * @return the number of songs that were preloaded before playing
+	 * @ensures \result >= 0
+	 */
+	public long getPreloadedSwitches() {
+		return preloadedSwitches.sum();
+	}
+
+	/**
+	 * Stops the preloaded player, if any, without notifying the listeners
+	 */
+	private void discardPreloaded() {
+		if (preloaded != null) {
+			preloaded.discard();
+			preloaded = null;
+			preloadedFile = null;
+		}
+	}
+
+	private static void close(InputStream in) {
+		if (in != null) {
+			try {
+				in.close();
+			} catch (IOException e) {
+				//nothing else to release
+			}
+		}
 	}
 
 	@Override
@@ -36,6 +36,16 @@ public interface Player extends PropertyObservable{
      */
     public void stop ();
     
+    /**
+     * Prepares the digital song stored in the file with the filename to be
+     * played next, so a later load of the same file starts it without delay.
+     * Players that cannot prepare songs ignore it
+     * @param filename
+     * @requires filename has a readable music file
+     */
+    default void preload (String filename) {
+    }
+
     /**
      * Notifies listeners that playing song was stopped  
      */
@@ -1,7 +1,10 @@
 package domain.playlists;
 
 import java.beans.PropertyChangeEvent;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Set;
 
 import domain.core.MusicLibrary;
 import domain.core.SongLibraryEvent;
@@ -9,6 +12,7 @@ import domain.core.SongRemovedLibraryEvent;
 import domain.facade.ISong;
 import domain.player.Player;
 import domain.player.PlayerFactory;
+import util.adts.AbsQListWithSelection;
 import util.adts.ArrayQListWithSelection;
 
 /**
@@ -20,7 +24,8 @@ import util.adts.ArrayQListWithSelection;
 public abstract class AbsPlaylist implements Playlist {
 
 	private String name;
-	private ArrayQListWithSelection<ISong> songs;
+	private AbsQListWithSelection<ISong> songs;
+	private Set<ISong> members;
 	private ISong playing;
 	private MusicLibrary library;
 	private Player player;
@@ -32,7 +37,20 @@ public abstract class AbsPlaylist implements Playlist {
 	 * @param lib  Music Library where the playlist is located
 	 */
 	protected AbsPlaylist(String name, MusicLibrary lib) {
-		this.songs = new ArrayQListWithSelection<>();
+		this(name, lib, new ArrayQListWithSelection<>());
+	}
+
+	/**
+	 * Constructor of an AbsPlaylist that keeps its songs in the given list
+	 * 
+	 * @param name  name of the playlist
+	 * @param lib   Music Library where the playlist is located
+	 * @param songs empty list where the songs of the playlist are kept
+	 * @requires songs != null && songs.size() == 0
+	 */
+	protected AbsPlaylist(String name, MusicLibrary lib, AbsQListWithSelection<ISong> songs) {
+		this.songs = songs;
+		this.members = Collections.newSetFromMap(new IdentityHashMap<>());
 		this.name = name;
 		this.playing = null;
 		this.library = lib;
@@ -63,7 +81,7 @@ public abstract class AbsPlaylist implements Playlist {
 	 * @return songs in the playlist
 	 * @ensures \result != null
 	 */
-	public ArrayQListWithSelection<ISong> getSongs() {
+	public AbsQListWithSelection<ISong> getSongs() {
 		return this.songs;
 	}
 
@@ -119,23 +137,80 @@ public abstract class AbsPlaylist implements Playlist {
 			return false;
 		}
 		this.songs.add(song);
+		this.members.add(song);
 		return true;
 	}
 
 	/**
-	 * Method that checks ifthe playlist already contains a certainf song
+	 * Method that inserts a song in the given position of the playlist, if it
+	 * does not exist yet, keeping the selection on the song that was selected
+	 *
+	 * @param index the position where the song is inserted
+	 * @param song  the song to insert
+	 * @requires song != null && 0 <= index <= size()
+	 * @return true if the song was inserted in the playlist, false otherwise
+	 * @ensures \result ==> getSongs().get(index) == song &&
+	 *          size() == \old(size()) + 1
+	 */
+	protected boolean insertAt(int index, ISong song) {
+		if (contains(song)) {
+			return false;
+		}
+		this.songs.insert(index, song);
+		this.members.add(song);
+		return true;
+	}
+
+	/**
+	 * Method that checks ifthe playlist already contains a certainf song.
+	 * Songs are identified by reference, using the membership set of the
+	 * playlist instead of going through its songs
 	 *
 	 * @param song song to check if already exists
 	 * @return true if the song already exists in the playlist, false otherwise
 	 * @ensures \result == true || \result == false
 	 */
 	protected boolean contains(ISong song) {
-		for (ISong iSong : this.songs) {
-			if (iSong.equals(song)) {
-				return true;
+		return this.members.contains(song);
+	}
+
+	/**
+	 * Method that returns the position of the given song in the playlist
+	 *
+	 * @param song song to look for
+	 * @return the index of song in the playlist or -1 if it is not there
+	 * @ensures contains(song) ==> getSongs().get(\result) == song
+	 */
+	protected int indexOf(ISong song) {
+		if (contains(song)) {
+			for (int i = 0; i < size(); i++) {
+				if (this.songs.get(i) == song) {
+					return i;
+				}
 			}
 		}
-		return false;
+		return -1;
+	}
+
+	/**
+	 * Method that removes the song in the given position, keeping the
+	 * selection on the song that was selected before, if it is not
+	 * the one removed
+	 *
+	 * @param index index of the song to remove
+	 * @requires 0 <= index < size()
+	 * @ensures size() == \old(size()) - 1
+	 */
+	protected void removeAt(int index) {
+		int selected = getIndexSelected();
+		this.songs.select(index);
+		this.members.remove(this.songs.getSelected());
+		this.songs.remove();
+		if (selected > index) {
+			this.songs.select(selected - 1);
+		} else if (0 <= selected && selected < index) {
+			this.songs.select(selected);
+		}
 	}
 
 	/**
@@ -150,6 +225,7 @@ public abstract class AbsPlaylist implements Playlist {
 	@Override
 	public boolean remove() {
 		if (someSelected()) {
+			this.members.remove(getSelected());
 			this.songs.remove();
 			return true;
 		}
@@ -174,7 +250,8 @@ public abstract class AbsPlaylist implements Playlist {
 	 * Moves the current selected song up to position i,
 	 * shifting down all elements in the playlist from
 	 * positions i+1 to \old getIndexSelected()-1,
-	 * if movement in the playlist is possible
+	 * if movement in the playlist is possible.
+	 * Only the songs between both positions are moved
 	 *
 	 * @param i the index where this element is going to be moved
 	 * @requires someSelected() && 0 <= i < getIndexSelected()
@@ -184,22 +261,32 @@ public abstract class AbsPlaylist implements Playlist {
 	 */
 	@Override
 	public boolean moveUpSelected(int i) {
-		ArrayQListWithSelection<ISong> novo = new ArrayQListWithSelection<>();
-		int indexSelected = getIndexSelected();
-		boolean done = false;
-		int counter = 0;
-		while (counter < size()) {
-			if (counter == i && !done) {
-				novo.add(this.songs.get(indexSelected));
-				done = true;
-			} else {
-				if (counter != indexSelected) {
-					novo.add(this.songs.get(counter));
-				}
-				counter++;
-			}
+		if (!someSelected() || i < 0 || i >= getIndexSelected()) {
+			return false;
+		}
+		this.songs.moveTo(getIndexSelected(), i);
+		return true;
+	}
+
+	/**
+	 * Moves the current selected song down to position i,
+	 * shifting up all elements in the playlist from
+	 * positions \old getIndexSelected()+1 to i,
+	 * if movement in the playlist is possible.
+	 * Only the songs between both positions are moved
+	 *
+	 * @param i the index where this element is going to be moved
+	 * @requires someSelected() && getIndexSelected() < i < size()
+	 * @ensures \return ==> someSelected() &&
+	 *          getIndexSelected() == i &&
+	 *          size() == \old(size())
+	 */
+	@Override
+	public boolean moveDownSelected(int i) {
+		if (!someSelected() || i <= getIndexSelected() || i >= size()) {
+			return false;
 		}
-		this.songs = novo;
+		this.songs.moveTo(getIndexSelected(), i);
 		return true;
 	}
 
@@ -268,7 +355,8 @@ public abstract class AbsPlaylist implements Playlist {
 	}
 
 	/**
-	 * Plays the selected song
+	 * Plays the selected song, preloading the song after it
+	 * so it can follow without a gap
 	 *
 	 * @requires someSelected()
 	 * @ensures isPlaying()
@@ -281,6 +369,10 @@ public abstract class AbsPlaylist implements Playlist {
 		this.player.load(getSelected().getFilename());
 		this.playing = getSelected();
 		this.player.play();
+		int next = getIndexSelected() + 1;
+		if (next < size()) {
+			this.player.preload(this.songs.get(next).getFilename());
+		}
 	}
 
 	/**
@@ -305,8 +397,8 @@ public abstract class AbsPlaylist implements Playlist {
 	public void propertyChange(PropertyChangeEvent evt) {
 		if (isPlaying()) {
 			if (evt.getNewValue().equals(Player.PlayingState.ENDED)) {
-				this.playing.incTimesPlayed();
-				if (someSelected() && getSelected().equals(playing)) {
+				this.library.incTimesPlayed(this.playing);
+				if (someSelected() && getSelected() == this.playing) {
 					next();
 				}
 				if (someSelected()) {
@@ -321,33 +413,30 @@ public abstract class AbsPlaylist implements Playlist {
 	}
 
 	/**
-	 * Processes a SongLibraryEvent
+	 * Processes a SongLibraryEvent while holding the lock of the library,
+	 * which the playlist reads and whose readers read the playlist. When
+	 * the events of the library are delivered asynchronously, the lock is
+	 * only held for one event at a time
 	 *
 	 * @param e the SongLibraryEvent given
 	 * @ensures if (e instanceof SongRemovedLibraryEvent) then !\this.contains(e.getSong)
 	 */
 	@Override
 	public void processEvent(SongLibraryEvent e) {
-		if (e instanceof SongRemovedLibraryEvent) {
-			int counter = 0;
-			ISong selected = getSelected();
-			Iterator<ISong> it = iterator();
-			while (it.hasNext()) {
-				ISong song = it.next();
-				if (song.equals(e.getSong())) {
-					select(counter);
-					remove();
-					break;
-				}
-				counter++;
-			}
-
-			for (int i = 0; i < size(); i++) {
-				if (selected.equals(this.songs.get(i))) {
-					select(i);
-				}
+		synchronized (this.library) {
+			handleEvent(e);
+		}
+	}
 
-			}
+	/**
+	 * Processes a SongLibraryEvent, holding the lock of the library
+	 *
+	 * @param e the SongLibraryEvent given
+	 * @ensures if (e instanceof SongRemovedLibraryEvent) then !\this.contains(e.getSong)
+	 */
+	protected void handleEvent(SongLibraryEvent e) {
+		if (e instanceof SongRemovedLibraryEvent && contains(e.getSong())) {
+			removeAt(indexOf(e.getSong()));
 		}
 	}
 
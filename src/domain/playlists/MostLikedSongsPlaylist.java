@@ -1,12 +1,25 @@
 package domain.playlists;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.SongAddedLibraryEvent;
 import domain.core.SongLibraryEvent;
 import domain.core.SongRatedLibraryEvent;
 import domain.core.SongRemovedLibraryEvent;
+import domain.core.SongsAddedLibraryEvent;
 import domain.facade.ISong;
+import util.adts.FenwickQListWithSelection;
 
 /**
  * @author André Reis fc58192
@@ -15,18 +28,96 @@ import domain.facade.ISong;
  * Objects of this type represent smartplaylists where there are
  * the top N highest rated songs from a certain library
  *
+ * The songs of the playlist are also kept in a ranking ordered by rating
+ * and, among songs with the same rating, by the order they entered the
+ * playlist, so the song to leave is always the first of the ranking.
+ * The rated songs of the library that are not in the playlist are kept in
+ * buckets by rating, ordered by the moment they got it, so replacements
+ * are the last song of the highest bucket. The songs are kept in a
+ * FenwickQListWithSelection, so every event takes logarithmic time.
+ *
  */
 public class MostLikedSongsPlaylist extends SmartPlaylist {
 
-	//constant that representes the limit of songs in this playlist
-	private static final int N = 5;
+	//default limit of songs in this playlist
+	public static final int DEFAULT_N = 5;
+
+	private static final Comparator<Entry> RANKING_ORDER =
+			Comparator.comparing(Entry::rate).thenComparingLong(Entry::order);
+
+	private final int n;
+	private final FenwickQListWithSelection<ISong> songs;
+	private NavigableSet<Entry> ranking;
+	private Map<ISong, Entry> entries;
+	private Map<Rate, NavigableMap<Long, ISong>> outsiders;
+	private Map<ISong, Long> stamps;
+	private long admissions;
+	private long clock;
+
+	/**
+	 * A song of the playlist, with the rating it has and
+	 * the order in which it entered the playlist
+	 */
+	private record Entry(ISong song, Rate rate, long order, long stamp) {
+	}
 
 	/**
 	 * MostLikedSongsPlaylist Constructor 
 	 * @param library Music Library where the playlist is located
 	 */
 	public MostLikedSongsPlaylist(MusicLibrary library) {
-		super("Most Liked", library);
+		this(library, DEFAULT_N);
+	}
+
+	/**
+	 * MostLikedSongsPlaylist Constructor, filling the playlist with
+	 * the highest rated songs already in the library
+	 * @param library Music Library where the playlist is located
+	 * @param n the maximum number of songs in the playlist
+	 * @requires n > 0
+	 */
+	public MostLikedSongsPlaylist(MusicLibrary library, int n) {
+		this(library, n, new FenwickQListWithSelection<>());
+	}
+
+	/**
+	 * MostLikedSongsPlaylist Constructor that keeps its songs in the given list
+	 * @param library Music Library where the playlist is located
+	 * @param n the maximum number of songs in the playlist
+	 * @param songs empty list where the songs of the playlist are kept
+	 */
+	private MostLikedSongsPlaylist(MusicLibrary library, int n, FenwickQListWithSelection<ISong> songs) {
+		super("Most Liked", library, songs);
+		this.n = n;
+		this.songs = songs;
+		this.ranking = new TreeSet<>(RANKING_ORDER);
+		this.entries = new IdentityHashMap<>();
+		this.outsiders = new EnumMap<>(Rate.class);
+		for (Rate rate : Rate.values()) {
+			this.outsiders.put(rate, new TreeMap<>());
+		}
+		this.stamps = new IdentityHashMap<>();
+		this.admissions = 0;
+		this.clock = 0;
+		Rate[] rates = Rate.values();
+		for (int i = Rate.UNRATED.ordinal() + 1; i < rates.length; i++) {
+			List<ISong> rated = new ArrayList<>();
+			library.getRatings().songsRated(rates[i]).forEach(rated::add);
+			for (int k = rated.size() - 1; k >= 0; k--) {
+				leave(rated.get(k), rates[i]);
+			}
+		}
+		fill();
+	}
+
+	/**
+	 * Returns the maximum number of songs in the playlist
+	 * 
+	 * @return the limit of songs of the playlist
+	 * @ensures \result > 0
+	 */
+	public int getN() {
+		return this.n;
 	}
 
 	/**
@@ -64,93 +155,241 @@ public class MostLikedSongsPlaylist extends SmartPlaylist {
 	}
 
 	/**
-	 * Processes a SongLibraryEvent, especifically SongRemovedLibraryEvent e SongRatedLibraryEvent
+	 * This type of playlists doesnt allow its elements to change
+	 * positions
+	 * 
+	 * @return always false
+	 * @ensures \result == false
+	 */
+	@Override
+	public boolean moveDownSelected(int i) {
+		return false;
+	}
+
+	/**
+	 * Processes a SongLibraryEvent, especifically SongRemovedLibraryEvent e SongRatedLibraryEvent.
+	 * Added songs are only remembered as candidates for later replacements
 	 *
 	 * @param e the SongLibraryEvent given
 	 * @ensures if (e instanceof SongRemovedLibraryEvent) then !\this.contains(e.getSong)
 	 */
 	@Override
-	public void processEvent(SongLibraryEvent e) {
-		if (e instanceof SongRemovedLibraryEvent) {
-			if(this.size() > 0) {
-				super.processEvent(e);
-				searchForReplacement(e.getSong());
+	protected void handleEvent(SongLibraryEvent e) {
+		if (e instanceof SongAddedLibraryEvent) {
+			SongAddedLibraryEvent evt = (SongAddedLibraryEvent) e;
+			leave(evt.getSong(), evt.getRating());
+		} else if (e instanceof SongsAddedLibraryEvent) {
+			SongsAddedLibraryEvent evt = (SongsAddedLibraryEvent) e;
+			for (int i = 0; i < evt.getSongs().size(); i++) {
+				leave(evt.getSongs().get(i), evt.getRating(i));
+			}
+		} else if (e instanceof SongRemovedLibraryEvent) {
+			if (contains(e.getSong())) {
+				super.handleEvent(e);
+				fill();
+			} else {
+				forget(e.getSong());
 			}
 		} else if (e instanceof SongRatedLibraryEvent) {
 			SongRatedLibraryEvent evt = (SongRatedLibraryEvent) e;
 			if(evt.getBefore().equals(evt.getAfter())) {
 				return;
 			}
-			addAutomatic(evt.getSong());
+			Entry entry = this.entries.get(evt.getSong());
+			if (entry == null) {
+				forget(evt.getSong());
+				offer(evt.getSong(), evt.getAfter());
+			} else {
+				rerank(entry, evt.getAfter());
+				if (evt.getAfter().compareTo(evt.getBefore()) < 0) {
+					promote();
+				}
+			}
 		}
 	}
 
 	/**
-     * Method that automatically adds a given song to the smartplaylist, if possible
+     * Method that automatically adds a given song to the smartplaylist, if possible.
+	 * When the playlist is full the song takes the place of the lowest rated one,
+	 * if it is not rated lower than it
      * @param song song to add
 	 * 
      */
 	@Override
 	protected void addAutomatic(ISong song) {
-		if (super.add(song)) {
-			if (this.size() == N + 1) {
-				int toRemove = lowestRankingIndex();
-				removeAutomatic(toRemove);
-			}
+		if (!contains(song)) {
+			forget(song);
+			offer(song, song.getRating());
+		}
+	}
+
+	/**
+	 * Method that adds the given song, which just got the given rating and
+	 * is not in the playlist, if possible. Otherwise the song is kept as
+	 * a candidate for later replacements
+	 * @param song song to add
+	 * @param rate the rating of song
+	 */
+	private void offer(ISong song, Rate rate) {
+		long stamp = this.clock++;
+		if (rate == Rate.UNRATED) {
+			return;
+		}
+		if (size() < this.n) {
+			admit(song, rate, stamp);
+		} else if (rate.compareTo(this.ranking.first().rate()) >= 0) {
+			admit(song, rate, stamp);
+			demote();
 		} else {
-			//existe pelo menos uma song q e a que nao conseguimos adicionar
-            ISong lowest = getSongs().get(lowestRankingIndex());
-			if (lowest.equals(song)) {
-				searchForReplacement(song);
-			}
+			this.outsiders.get(rate).put(stamp, song);
+			this.stamps.put(song, stamp);
+		}
+	}
+
+	/**
+	 * Method that automatically removes the song in the given index,
+	 * taking it out of the ranking as well
+	 * @param index index of the song to remove
+	 */
+	@Override
+	protected void removeAutomatic(int index) {
+		if (0 <= index && index < size()) {
+			ISong song = getSongs().get(index);
+			super.removeAutomatic(index);
+			this.ranking.remove(this.entries.remove(song));
+		}
+	}
+
+	/**
+	 * Method that returns the position of the given song in the playlist,
+	 * counted by the list of the playlist instead of going through its songs
+	 *
+	 * @param song song to look for
+	 * @return the index of song in the playlist or -1 if it is not there
+	 * @ensures contains(song) ==> getSongs().get(\result) == song
+	 */
+	@Override
+	protected int indexOf(ISong song) {
+		return this.songs.indexOf(song);
+	}
+
+	/**
+	 * Method that adds the given song to the end of the playlist and to the ranking
+	 * @param song song to add
+	 * @param rate the rating of song
+	 * @param stamp the moment song got its rating
+	 */
+	private void admit(ISong song, Rate rate, long stamp) {
+		if (super.add(song)) {
+			Entry entry = new Entry(song, rate, this.admissions++, stamp);
+			this.entries.put(song, entry);
+			this.ranking.add(entry);
+		}
+	}
+
+	/**
+	 * Method that takes the lowest rated song out of the playlist, keeping it
+	 * as a candidate for later replacements
+	 */
+	private void demote() {
+		Entry lowest = this.ranking.first();
+		removeAutomatic(indexOf(lowest.song()));
+		this.outsiders.get(lowest.rate()).put(lowest.stamp(), lowest.song());
+		this.stamps.put(lowest.song(), lowest.stamp());
+	}
 
+	/**
+	 * Method that keeps the given song, which is not in the playlist, as a
+	 * candidate for later replacements, if it is rated
+	 * @param song the song
+	 * @param rate the rating of song
+	 */
+	private void leave(ISong song, Rate rate) {
+		long stamp = this.clock++;
+		if (rate != Rate.UNRATED && !contains(song) && !this.stamps.containsKey(song)) {
+			this.outsiders.get(rate).put(stamp, song);
+			this.stamps.put(song, stamp);
 		}
 	}
 
 	/**
-	 * Method that, given a song, searches for a higher rated song in the library
-	 * that isnt already in the playlist and adds it, if it exists
-	 * @param song song to try and replace
+	 * Method that forgets the given song as a candidate for replacements
+	 * @param song the song
 	 */
-	private void searchForReplacement(ISong song) {
-		MusicLibrary lib = getLibrary();
-		if (lib.size() > getSongs().size()) {
-			int index = -1;
-			for (int i = 0; i < lib.size(); i++) {
-				if (!contains(lib.get(i)) && song.getRating().compareTo(lib.get(i).getRating()) < 0) {
-					index = i;
+	private void forget(ISong song) {
+		Long stamp = this.stamps.remove(song);
+		if (stamp != null) {
+			for (NavigableMap<Long, ISong> bucket : this.outsiders.values()) {
+				if (bucket.remove(stamp) != null) {
+					return;
 				}
 			}
-			if (index != -1) {
-				addAutomatic(lib.get(index));
-			}
-
 		}
+	}
 
+	/**
+	 * Method that updates the position in the ranking of a song whose rating changed
+	 * @param entry the current entry of the song
+	 * @param rate the new rating of the song
+	 */
+	private void rerank(Entry entry, Rate rate) {
+		this.ranking.remove(entry);
+		Entry updated = new Entry(entry.song(), rate, entry.order(), this.clock++);
+		this.entries.put(entry.song(), updated);
+		this.ranking.add(updated);
 	}
 
 	/**
-	 * Method that searches for the lowest rated song and returns its index
-	 * @return index of the lowest rated song in the playlist
-	 * @ensures 0 <= \result && \result < size() 
+	 * Method that brings in the highest rated song of the library that is not in
+	 * the playlist, if it is rated higher than the lowest rated song of the playlist
 	 */
-	private int lowestRankingIndex() {
+	private void promote() {
+		Rate best = bestOutsiders();
+		if (best != null && best.compareTo(this.ranking.first().rate()) > 0) {
+			take(best);
+			demote();
+		}
+	}
 
-		ISong lowest = getSongs().get(0);
-		Iterator<ISong> it = iterator();
-		int counter = 0;
-		int index = 0;
-		while (it.hasNext()) {
-			ISong current = it.next();
-			if (current.getRating().compareTo(lowest.getRating()) < 0) {
-				lowest = current;
-				index = counter;
+	/**
+	 * Method that adds the highest rated songs of the library that are not
+	 * in the playlist until the playlist is full or there are no more rated songs
+	 */
+	private void fill() {
+		while (size() < this.n) {
+			Rate best = bestOutsiders();
+			if (best == null) {
+				return;
 			}
-			counter++;
+			take(best);
 		}
+	}
 
-		return index;
+	/**
+	 * Method that moves the most recently rated candidate with the given
+	 * rating into the playlist
+	 * @param rate the rating of a bucket of candidates that is not empty
+	 */
+	private void take(Rate rate) {
+		Map.Entry<Long, ISong> candidate = this.outsiders.get(rate).pollLastEntry();
+		this.stamps.remove(candidate.getValue());
+		admit(candidate.getValue(), rate, candidate.getKey());
+	}
 
+	/**
+	 * Method that returns the highest rating of the songs of the library that
+	 * are not in the playlist, without going through the songs of the playlist
+	 * @return the rating of the highest bucket of candidates that is not empty
+	 *         or null if there are no rated candidates
+	 */
+	private Rate bestOutsiders() {
+		Rate[] rates = Rate.values();
+		for (int i = rates.length - 1; i > Rate.UNRATED.ordinal(); i--) {
+			if (!this.outsiders.get(rates[i]).isEmpty()) {
+				return rates[i];
+			}
+		}
+		return null;
 	}
 
 }
@@ -1,26 +1,78 @@
 package domain.playlists;
 
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 import domain.core.MusicLibrary;
+import domain.core.RecencyIndex;
 import domain.core.SongAddedLibraryEvent;
 import domain.core.SongLibraryEvent;
 import domain.core.SongRemovedLibraryEvent;
+import domain.core.SongsAddedLibraryEvent;
 import domain.facade.ISong;
+import util.adts.RingQListWithSelection;
 
 /**
  * @author André Reis fc58192
  * @author Martim Pereira fc58223
  *
+ * Objects of this type represent smartplaylists with the N songs most
+ * recently added to a certain library, from the oldest to the newest
+ *
+ * The songs are kept in a ring, so the oldest song leaves and a replacement
+ * enters at the front in constant time. Each song gets a stamp smaller than
+ * the first or greater than the last, so songs are found by binary search.
+ * The replacement of a removed song is the one the recency index of the
+ * library has right before the oldest song of the playlist.
+ *
  */
 public class MostRecentlyAddedSongsPlaylist extends SmartPlaylist {
 
-    private static final int N = 5;
+    //default limit of songs in this playlist
+    public static final int DEFAULT_N = 5;
+
+    private final int n;
+    private Map<ISong, Long> stamps;
+    private long firstStamp;
+    private long lastStamp;
 
     /**
      * MostRecentlyAddedSongsPlaylist constructor
      * @param library the MusicLibrary
      */
     public MostRecentlyAddedSongsPlaylist(MusicLibrary library) {
-        super("Most Recently Added", library);
+        this(library, DEFAULT_N);
+    }
+
+    /**
+     * MostRecentlyAddedSongsPlaylist constructor, filling the playlist
+     * with the most recent songs already in the library
+     * @param library the MusicLibrary
+     * @param n the maximum number of songs in the playlist
+     * @requires n > 0
+     */
+    public MostRecentlyAddedSongsPlaylist(MusicLibrary library, int n) {
+        super("Most Recently Added", library, new RingQListWithSelection<>());
+        this.n = n;
+        this.stamps = new IdentityHashMap<>();
+        this.firstStamp = 0;
+        this.lastStamp = -1;
+        for (ISong song : library.getRecency().latest(n)) {
+            if(insertAt(size(), song)) {
+                this.stamps.put(song, ++this.lastStamp);
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of songs in the playlist
+     * 
+     * @return the limit of songs of the playlist
+     * @ensures \result > 0
+     */
+    public int getN() {
+        return this.n;
     }
 
     /**
@@ -57,16 +109,78 @@ public class MostRecentlyAddedSongsPlaylist extends SmartPlaylist {
         return false;
     }
 
+    /**
+	 * This type of playlists doesnt allow its elements to change
+	 * positions
+	 * 
+	 * @return always false
+	 * @ensures \result == false
+	 */
+    @Override
+    public boolean moveDownSelected(int i) {
+        return false;
+    }
+
+    /**
+     * Method that adds a song as the newest of the playlist, removing the
+     * oldest one if the playlist goes over its limit
+     * @param song song to add
+     */
     @Override
     protected void addAutomatic(ISong song) {
-        if(super.add(song) && (this.size() == N+1)) {
-            removeAutomatic(0);
+        if(super.add(song)) {
+            this.stamps.put(song, ++this.lastStamp);
+            if(this.size() > this.n) {
+                removeAutomatic(0);
+            }
+        }
+    }
+
+    /**
+     * Method that automatically removes the song in the given index, if possible
+     * @param index index of the song to remove
+     */
+    @Override
+    protected void removeAutomatic(int index) {
+        if(0 <= index && index < size()) {
+            this.stamps.remove(getSongs().get(index));
+            super.removeAutomatic(index);
         }
+    }
 
+    /**
+     * Method that returns the position of the given song in the playlist,
+     * searching by its stamp
+     *
+     * @param song song to look for
+     * @return the index of song in the playlist or -1 if it is not there
+     * @ensures contains(song) ==> getSongs().get(\result) == song
+     */
+    @Override
+    protected int indexOf(ISong song) {
+        Long stamp = this.stamps.get(song);
+        if(stamp == null) {
+            return -1;
+        }
+        int low = 0;
+        int high = size() - 1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleStamp = this.stamps.get(getSongs().get(middle));
+            if(middleStamp < stamp) {
+                low = middle + 1;
+            } else if(middleStamp > stamp) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
     }
 
     /**
-	 * Processes a SongLibraryEvent, especifically SongRemovedLibraryEvent e SongAddedLibraryEvent
+	 * Processes a SongLibraryEvent, especifically SongRemovedLibraryEvent, SongAddedLibraryEvent
+	 * and SongsAddedLibraryEvent. Of a batch of added songs only the last N can stay
 	 *
 	 * @param e the SongLibraryEvent given
 	 * @ensures if (e instanceof SongRemovedLibraryEvent) then !\this.contains(e.getSong)
@@ -74,27 +188,33 @@ public class MostRecentlyAddedSongsPlaylist extends SmartPlaylist {
      *                                                       !contains(\old(this.getSongs().get(0)))
 	 */
     @Override
-	public void processEvent(SongLibraryEvent e) {
+	protected void handleEvent(SongLibraryEvent e) {
 		if(e instanceof SongRemovedLibraryEvent) {
-            if(this.size() > 0) {
-                super.processEvent(e);
-                searchForReplacement();
+            if(contains(e.getSong())) {
+                super.handleEvent(e);
+                addReplacement();
             }
 		} else if(e instanceof SongAddedLibraryEvent) {
             addAutomatic(e.getSong());
+        } else if(e instanceof SongsAddedLibraryEvent) {
+            List<ISong> added = ((SongsAddedLibraryEvent) e).getSongs();
+            for(ISong song : added.subList(Math.max(0, added.size() - this.n), added.size())) {
+                addAutomatic(song);
+            }
         }
     }
 
     /**
-	 * Method that searches for the most recent song in the library that isnt already in the playlist
+	 * Method that puts at the front of the playlist the song added to the
+	 * library right before the oldest song of the playlist, if there is one
 	 */
-    private void searchForReplacement() {
-        MusicLibrary lib = getLibrary();
-        if(lib.size() > getSongs().size()) {
-            int initSize = getSongs().size();
-            for(int i = lib.size()-1; i >= 0 && initSize == getSongs().size(); i--) {
-                addAutomatic(lib.get(i));   
-            }
+    private void addReplacement() {
+        RecencyIndex recency = getLibrary().getRecency();
+        ISong replacement = size() == 0
+                ? recency.latest()
+                : recency.before(getLibrary().getSequence(getSongs().get(0)));
+        if(replacement != null && size() < this.n && insertAt(0, replacement)) {
+            this.stamps.put(replacement, --this.firstStamp);
         }
     }
 
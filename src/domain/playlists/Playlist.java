@@ -99,6 +99,20 @@ public interface Playlist extends Listener<SongLibraryEvent>, PropertyChangeList
 	 */
 	boolean moveUpSelected(int i);
 
+	/**
+	 * Moves the current selected song down to position i,
+	 * shifting up all elements in the playlist from
+	 * positions \old getIndexSelected()+1 to i,
+	 * if movement in the playlist is possible
+	 *
+	 * @param i the index where this element is going to be moved
+	 * @requires someSelected() && getIndexSelected() < i < size()
+	 * @ensures \return ==> someSelected() &&
+	 * 					getIndexSelected() == i  &&
+	 * 					size() == \old(size())
+	 */
+	boolean moveDownSelected(int i);
+
 
 	/**
 	 * Returns the index of the selected element, if any
@@ -32,6 +32,21 @@ public class PlaylistList extends AbsQListWithSelection<Playlist> {
 		this.add(rated);
 	}
 
+	/**
+	 * PlaylistList constructor with the given playlists, in the given order,
+	 * instead of the default SmartPlaylists
+	 * @param library Music Library where the PlaylistList is
+	 * @param playlists the playlists of the list
+	 * @requires every playlist in playlists is located in library
+	 */
+	public PlaylistList(MusicLibrary library, List<Playlist> playlists) {
+		super();
+		this.library = library;
+		for (Playlist p : playlists) {
+			this.add(p);
+		}
+	}
+
 	/**
      * Method that creates a list based in arrays
      * 
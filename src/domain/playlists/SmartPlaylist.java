@@ -1,10 +1,10 @@
 package domain.playlists;
-import java.util.Iterator;
 
 import domain.core.MusicLibrary;
 import domain.core.SongLibraryEvent;
 import domain.core.SongRemovedLibraryEvent;
 import domain.facade.ISong;
+import util.adts.AbsQListWithSelection;
 
 /**
  * @author André Reis fc58192
@@ -24,6 +24,16 @@ public abstract class SmartPlaylist extends AbsPlaylist {
     protected SmartPlaylist(String name, MusicLibrary library) {
         super(name, library);
     }
+
+    /**
+     * SmartPlaylist constructor that keeps its songs in the given list
+     * @param name the playlist's name
+     * @param library the MusicLibrary
+     * @param songs empty list where the songs of the playlist are kept
+     */
+    protected SmartPlaylist(String name, MusicLibrary library, AbsQListWithSelection<ISong> songs) {
+        super(name, library, songs);
+    }
     
     /**
      * Method that automatically adds a given song to the smartplaylist, if possible
@@ -39,15 +49,7 @@ public abstract class SmartPlaylist extends AbsPlaylist {
     protected void removeAutomatic(int index) {
 
         if(0 <= index && index < size()) {
-            ISong selected = getSelected();
-            select(index);
-            super.remove();
-
-            for(int i = 0; i < size(); i++) {
-                if(selected.equals(getSongs().get(i))){
-                    select(i);
-                }
-            }
+            removeAt(index);
         }
 
     }
@@ -59,19 +61,9 @@ public abstract class SmartPlaylist extends AbsPlaylist {
 	 * @ensures if (e instanceof SongRemovedLibraryEvent) then !\this.contains(e.getSong)
 	 */
     @Override
-	public void processEvent(SongLibraryEvent e) {
-		if(e instanceof SongRemovedLibraryEvent) {
-			int counter = 0;
-			Iterator<ISong> it = iterator();
-			while(it.hasNext()) {
-				ISong song = it.next();
-				if(song.equals(e.getSong())) {
-					removeAutomatic(counter);
-					break;
-				}
-				counter++;
-			}
-
+	protected void handleEvent(SongLibraryEvent e) {
+		if(e instanceof SongRemovedLibraryEvent && contains(e.getSong())) {
+			removeAutomatic(indexOf(e.getSong()));
 		}
     }
 
@@ -0,0 +1,42 @@
+package servicos;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type open the files of songs as the streams the
+ * decoder reads, each one with its own way of getting the bytes of the
+ * file from the disk. A source counts the stalls of the streams it opened,
+ * the reads in which the decoder had to wait for the disk.
+ */
+public interface AudioSource {
+
+	/**
+	 * Time a read must block for to be counted as a stall by the sources
+	 * that can only tell a stall by how long a read took
+	 */
+	long STALL_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+	/**
+	 * Opens the given file for reading from its start
+	 *
+	 * @param filename the name of the file of the song
+	 * @return a stream with the bytes of the file
+	 * @throws IOException if the file could not be opened
+	 */
+	InputStream open(String filename) throws IOException;
+
+	/**
+	 * Returns the number of reads, of all streams opened by this source,
+	 * that had to wait for the disk
+	 *
+	 * @return the number of stalls
+	 * @ensures \result >= 0
+	 */
+	long getStalls();
+
+}
@@ -0,0 +1,148 @@
+package servicos;
+
+import java.util.Arrays;
+
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.JavaLayerException;
+import javazoom.jl.player.AudioDevice;
+import javazoom.jl.player.FactoryRegistry;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Audio device that sends the samples to another device, keeping a copy
+ * of the samples of a song that is not in the PcmCache yet, to be put in
+ * the cache if the song plays to the end. For a song that is in the cache
+ * it also writes the cached samples after the ones already written.
+ */
+class CachingAudioDevice implements AudioDevice {
+
+	//samples written at a time when replaying, about one mp3 frame of stereo
+	private static final int REPLAY_CHUNK = 2304;
+
+	private final AudioDevice target;
+	private final PcmCache cache;
+	private final String filename;
+	private final PcmCache.Samples cached;
+	private short[] recorded;
+	private int written;
+	private short[] chunk;
+
+	/**
+	 * CachingAudioDevice constructor
+	 *
+	 * @param target   the device that plays the samples, or null for the
+	 *                 default device
+	 * @param cache    the cache, or null to only play the samples
+	 * @param filename the file of the song
+	 */
+	CachingAudioDevice(AudioDevice target, PcmCache cache, String filename) throws JavaLayerException {
+		this.target = target == null ? FactoryRegistry.systemRegistry().createAudioDevice() : target;
+		this.cache = cache;
+		this.filename = filename;
+		this.cached = cache == null ? null : cache.get(filename);
+		this.recorded = cache == null || this.cached != null ? null : new short[1 << 16];
+	}
+
+	/**
+	 * Checks if the samples of the song are in the cache
+	 *
+	 * @return true if the song can be replayed from the cache
+	 */
+	boolean isCached() {
+		return this.cached != null;
+	}
+
+	/**
+	 * Checks if samples were written, so the decoder knows the format
+	 * of the song
+	 *
+	 * @return true if some sample was written
+	 */
+	boolean hasStarted() {
+		return this.written > 0;
+	}
+
+	/**
+	 * Writes the next cached samples after the ones already written
+	 *
+	 * @return false if all the samples of the song were written
+	 * @requires isCached() && hasStarted()
+	 */
+	boolean replay() throws JavaLayerException {
+		int n = Math.min(REPLAY_CHUNK, this.cached.length() - this.written);
+		if (n <= 0) {
+			return false;
+		}
+		if (this.chunk == null) {
+			this.chunk = new short[REPLAY_CHUNK];
+		}
+		this.cached.copy(this.written, this.chunk, 0, n);
+		write(this.chunk, 0, n);
+		return true;
+	}
+
+	/**
+	 * Puts the samples recorded in the cache, to be called once the
+	 * whole song was written
+	 */
+	void complete() {
+		if (this.recorded != null) {
+			this.cache.put(this.filename, this.recorded, this.written);
+			this.recorded = null;
+		}
+	}
+
+	@Override
+	public void open(Decoder decoder) throws JavaLayerException {
+		this.target.open(decoder);
+	}
+
+	@Override
+	public boolean isOpen() {
+		return this.target.isOpen();
+	}
+
+	@Override
+	public void write(short[] samples, int offs, int len) throws JavaLayerException {
+		if (this.recorded != null) {
+			record(samples, offs, len);
+		}
+		this.written += len;
+		this.target.write(samples, offs, len);
+	}
+
+	@Override
+	public void close() {
+		this.recorded = null;
+		this.target.close();
+	}
+
+	@Override
+	public void flush() {
+		this.target.flush();
+	}
+
+	@Override
+	public int getPosition() {
+		return this.target.getPosition();
+	}
+
+	/**
+	 * Keeps a copy of the samples, giving up if the song does not fit in
+	 * the cache
+	 */
+	private void record(short[] samples, int offs, int len) {
+		int needed = this.written + len;
+		if (!this.cache.fits(needed)) {
+			this.recorded = null;
+			return;
+		}
+		if (needed > this.recorded.length) {
+			this.recorded = Arrays.copyOf(this.recorded, Math.max(needed, this.recorded.length * 2));
+		}
+		System.arraycopy(samples, offs, this.recorded, this.written, len);
+	}
+
+}
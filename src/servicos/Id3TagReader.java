@@ -0,0 +1,406 @@
+package servicos;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.mpatric.mp3agic.ID3v1Genres;
+import com.mpatric.mp3agic.InvalidDataException;
+import com.mpatric.mp3agic.UnsupportedTagException;
+
+import domain.core.SongMetaInfo;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type read the tags of mp3 files without reading their
+ * audio. Only the ID3v2 header and frames at the start of the file and the
+ * ID3v1 trailer at its end are read, through direct buffers shared by all
+ * readers. The values returned are the same mp3agic gives for the same
+ * tags, preferring the ID3v1 tag as SongCreator always did.
+ *
+ * Tags this reader does not handle (unsynchronised, compressed or
+ * encrypted frames, unknown versions) and files that do not look like
+ * mpeg audio right after the tags make it throw, so the caller can read
+ * them with mp3agic instead.
+ */
+class Id3TagReader {
+
+	//size of the direct buffers
+	private static final int BUFFER_SIZE = 8 * 1024;
+	//maximum number of free buffers kept for later reads
+	private static final int POOL_SIZE = 32;
+	private static final Queue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+
+	private static final int V1_SIZE = 128;
+	private static final int V2_HEADER_SIZE = 10;
+	//bytes after the tags where the first mpeg frame must start
+	private static final int SYNC_WINDOW = 4 * 1024;
+
+	//charsets of the ID3v2 text encodings, as mp3agic decodes them
+	private static final Charset[] CHARSETS = { StandardCharsets.ISO_8859_1, StandardCharsets.UTF_16LE,
+			StandardCharsets.UTF_16BE, StandardCharsets.UTF_8 };
+
+	private static final String UNKNOWN = "unknown";
+
+	private final LongAdder bytesRead = new LongAdder();
+
+	/**
+	 * The part of a file currently in a direct buffer
+	 */
+	private final class Window {
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private final long size;
+		private long start;
+
+		private Window(FileChannel channel, ByteBuffer buffer) throws IOException {
+			this.channel = channel;
+			this.buffer = buffer;
+			this.size = channel.size();
+			this.start = -1;
+			this.buffer.limit(0);
+		}
+
+		/**
+		 * Makes sure the n bytes starting at position pos of the file are
+		 * in the buffer, reading the file from pos if they are not
+		 */
+		private void fill(long pos, int n) throws IOException, InvalidDataException {
+			if (this.start >= 0 && pos >= this.start && pos + n <= this.start + this.buffer.limit()) {
+				return;
+			}
+			if (n > this.buffer.capacity() || pos + n > this.size) {
+				throw new InvalidDataException("Tag data out of reach at " + pos);
+			}
+			this.buffer.clear();
+			this.buffer.limit((int) Math.min(this.buffer.capacity(), this.size - pos));
+			this.start = pos;
+			while (this.buffer.hasRemaining()) {
+				int read = this.channel.read(this.buffer, pos + this.buffer.position());
+				if (read < 0) {
+					break;
+				}
+				bytesRead.add(read);
+			}
+			this.buffer.flip();
+			if (this.buffer.limit() < n) {
+				throw new InvalidDataException("File changed while reading its tags");
+			}
+		}
+
+		private int byteAt(long pos) {
+			return this.buffer.get((int) (pos - this.start)) & 0xFF;
+		}
+
+		private byte[] bytes(long pos, int n) {
+			byte[] bytes = new byte[n];
+			this.buffer.get((int) (pos - this.start), bytes);
+			return bytes;
+		}
+	}
+
+	/**
+	 * Reads the tags of the given mp3 file
+	 *
+	 * @param file the mp3 file
+	 * @return the tags of the file, with "unknown" for missing values,
+	 *         or null if the file has no tags
+	 * @throws IOException             if the file could not be read
+	 * @throws InvalidDataException    if the tags or the audio look malformed
+	 * @throws UnsupportedTagException if the tags use features this reader
+	 *                                 does not handle
+	 */
+	SongMetaInfo read(Path file) throws IOException, InvalidDataException, UnsupportedTagException {
+		ByteBuffer buffer = POOL.poll();
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			Window window = new Window(channel, buffer);
+			String[] v2 = new String[4];
+			long audio = readV2(window, v2);
+			checkAudio(window, audio);
+			if (window.size >= audio + V1_SIZE) {
+				long trailer = window.size - V1_SIZE;
+				window.fill(trailer, V1_SIZE);
+				if (window.byteAt(trailer) == 'T' && window.byteAt(trailer + 1) == 'A'
+						&& window.byteAt(trailer + 2) == 'G') {
+					return readV1(window.bytes(trailer, V1_SIZE));
+				}
+			}
+			return audio == 0 ? null : info(v2[0], v2[1], v2[2], genreOf(v2[3]));
+		} finally {
+			if (POOL.size() < POOL_SIZE) {
+				POOL.offer(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of bytes read from files
+	 *
+	 * @return the number of bytes read
+	 * @ensures \result >= 0
+	 */
+	long getBytesRead() {
+		return this.bytesRead.sum();
+	}
+
+	/**
+	 * Reads the title, artist, album and genre frames of the ID3v2 tag at
+	 * the start of the file, if there is one
+	 *
+	 * @param window the window over the file
+	 * @param values where the title, artist, album and genre are put
+	 * @return the position where the tag ends, 0 if there is no tag
+	 */
+	private static long readV2(Window window, String[] values)
+			throws IOException, InvalidDataException, UnsupportedTagException {
+		if (window.size < V2_HEADER_SIZE) {
+			return 0;
+		}
+		window.fill(0, V2_HEADER_SIZE);
+		if (window.byteAt(0) != 'I' || window.byteAt(1) != 'D' || window.byteAt(2) != '3') {
+			return 0;
+		}
+		int version = window.byteAt(3);
+		int flags = window.byteAt(5);
+		if (version < 2 || version > 4) {
+			throw new UnsupportedTagException("Unsupported ID3v2 version " + version);
+		}
+		if ((flags & 0x80) != 0 || (version == 2 && (flags & 0x40) != 0)) {
+			throw new UnsupportedTagException("Unsynchronised or compressed ID3v2 tag");
+		}
+		long end = V2_HEADER_SIZE + synchsafe(window, 6);
+		long pos = V2_HEADER_SIZE;
+		if (version > 2 && (flags & 0x40) != 0) {
+			window.fill(pos, 4);
+			pos += version == 3 ? 4 + integer(window, pos) : synchsafe(window, pos);
+		}
+
+		String[] ids = version == 2 ? new String[] { "TT2", "TP1", "TAL", "TCO" }
+				: new String[] { "TIT2", "TPE1", "TALB", "TCON" };
+		int idLength = version == 2 ? 3 : 4;
+		int headerLength = version == 2 ? 6 : 10;
+		boolean[] found = new boolean[4];
+		while (pos + headerLength <= end) {
+			window.fill(pos, headerLength);
+			if (window.byteAt(pos) == 0) {
+				break;
+			}
+			String id = new String(window.bytes(pos, idLength), StandardCharsets.ISO_8859_1);
+			long size;
+			if (version == 2) {
+				size = (window.byteAt(pos + 3) << 16) | (window.byteAt(pos + 4) << 8) | window.byteAt(pos + 5);
+			} else if (version == 3) {
+				size = integer(window, pos + 4);
+			} else {
+				size = synchsafe(window, pos + 4);
+			}
+			long data = pos + headerLength;
+			if (size < 0 || data + size > end) {
+				throw new InvalidDataException("Frame " + id + " goes past the end of the tag");
+			}
+			for (int k = 0; k < ids.length; k++) {
+				if (!found[k] && ids[k].equals(id)) {
+					if (version > 2 && window.byteAt(pos + 9) != 0) {
+						throw new UnsupportedTagException("Frame " + id + " is compressed or encrypted");
+					}
+					if (size < 1) {
+						throw new InvalidDataException("Empty frame " + id);
+					}
+					window.fill(data, (int) size);
+					values[k] = decode(window.byteAt(data), window.bytes(data + 1, (int) size - 1));
+					found[k] = true;
+				}
+			}
+			pos = data + size;
+		}
+		return end + (version == 4 && (flags & 0x10) != 0 ? V2_HEADER_SIZE : 0);
+	}
+
+	/**
+	 * Throws if the bytes right after the tags do not have something that
+	 * looks like the header of an mpeg frame
+	 *
+	 * @param window the window over the file
+	 * @param audio  the position where the tags end
+	 */
+	private static void checkAudio(Window window, long audio) throws IOException, InvalidDataException {
+		int n = (int) Math.min(SYNC_WINDOW, window.size - audio);
+		if (n >= 4) {
+			window.fill(audio, n);
+			for (long pos = audio; pos + 4 <= audio + n; pos++) {
+				if (isFrameHeader(window.byteAt(pos), window.byteAt(pos + 1), window.byteAt(pos + 2))) {
+					return;
+				}
+			}
+		}
+		throw new InvalidDataException("No mpeg frame after the tags");
+	}
+
+	/**
+	 * Checks if the given bytes start a valid mpeg frame header
+	 */
+	private static boolean isFrameHeader(int b0, int b1, int b2) {
+		return b0 == 0xFF && (b1 & 0xE0) == 0xE0
+				&& (b1 & 0x18) != 0x08       //version
+				&& (b1 & 0x06) != 0          //layer
+				&& (b2 & 0xF0) != 0xF0       //bitrate
+				&& (b2 & 0x0C) != 0x0C;      //sample rate
+	}
+
+	/**
+	 * Returns the tags of an ID3v1 trailer
+	 *
+	 * @param tag the 128 bytes of the trailer
+	 */
+	private static SongMetaInfo readV1(byte[] tag) {
+		String title = trimRight(new String(tag, 3, 30, StandardCharsets.ISO_8859_1));
+		String artist = trimRight(new String(tag, 33, 30, StandardCharsets.ISO_8859_1));
+		String album = trimRight(new String(tag, 63, 30, StandardCharsets.ISO_8859_1));
+		int genre = tag[127] & 0xFF;
+		String description = genre < ID3v1Genres.GENRES.length ? ID3v1Genres.GENRES[genre] : "Unknown";
+		return info(title, artist, album, description);
+	}
+
+	/**
+	 * Returns the tags with the given values, using "unknown" for missing
+	 * ones and splitting the artists by ";"
+	 */
+	private static SongMetaInfo info(String title, String artist, String album, String genre) {
+		List<String> artists = artist == null ? Arrays.asList(UNKNOWN) : Arrays.asList(artist.split(";"));
+		return new SongMetaInfo(title == null ? UNKNOWN : title, album == null ? UNKNOWN : album,
+				genre == null ? UNKNOWN : genre, artists);
+	}
+
+	/**
+	 * Decodes the text of a text frame as mp3agic does: without byte order
+	 * mark and terminator, up to the first null character, or null if the
+	 * text is not valid in its encoding
+	 *
+	 * @param encoding the encoding byte of the frame
+	 * @param value    the bytes of the text
+	 */
+	private static String decode(int encoding, byte[] value) throws InvalidDataException {
+		if (encoding >= CHARSETS.length) {
+			throw new InvalidDataException("Invalid text encoding " + encoding);
+		}
+		int from = 0;
+		if (value.length >= 2 && ((value[0] == (byte) 0xFE && value[1] == (byte) 0xFF)
+				|| (value[0] == (byte) 0xFF && value[1] == (byte) 0xFE))) {
+			from = 2;
+		} else if (value.length >= 3 && value[0] == (byte) 0xEF && value[1] == (byte) 0xBB
+				&& value[2] == (byte) 0xBF) {
+			from = 3;
+		}
+		int terminator = encoding == 1 || encoding == 2 ? 2 : 1;
+		int to = value.length;
+		if (to - from >= terminator) {
+			boolean terminated = true;
+			for (int k = to - terminator; k < to; k++) {
+				terminated &= value[k] == 0;
+			}
+			if (terminated) {
+				to -= terminator;
+			}
+		}
+		try {
+			String text = CHARSETS[encoding].newDecoder()
+					.decode(ByteBuffer.wrap(value, from, to - from)).toString();
+			int nul = text.indexOf(0);
+			return nul == -1 ? text : text.substring(0, nul);
+		} catch (CharacterCodingException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the genre described by the text of a genre frame, as mp3agic
+	 * does: a number, possibly between parentheses, is looked up in the
+	 * ID3v1 genres and anything else is used as it is
+	 */
+	private static String genreOf(String text) {
+		if (text == null) {
+			return null;
+		}
+		int genre = -1;
+		if (text.length() > 0) {
+			try {
+				genre = genreNumber(text);
+			} catch (NumberFormatException e) {
+				genre = ID3v1Genres.matchGenreDescription(genreDescription(text));
+			}
+		}
+		if (genre >= 0 && genre < ID3v1Genres.GENRES.length) {
+			return ID3v1Genres.GENRES[genre];
+		}
+		String description = genreDescription(text);
+		return description == null || description.length() == 0 ? null : description;
+	}
+
+	private static int genreNumber(String text) {
+		String value = text.trim();
+		if (value.length() > 0 && value.charAt(0) == '(') {
+			int close = value.indexOf(')');
+			if (close > 0) {
+				return Integer.parseInt(value.substring(1, close));
+			}
+		}
+		return Integer.parseInt(value);
+	}
+
+	private static String genreDescription(String text) {
+		String value = text.trim();
+		if (value.length() == 0) {
+			return null;
+		}
+		if (value.charAt(0) == '(') {
+			int close = value.indexOf(')');
+			if (close > 0) {
+				return value.substring(close + 1);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Removes the control characters and spaces at the end of the string
+	 */
+	private static String trimRight(String s) {
+		int end = s.length();
+		while (end > 0 && s.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		return s.substring(0, end);
+	}
+
+	/**
+	 * Reads a 32 bit big endian integer at the given position
+	 */
+	private static long integer(Window window, long pos) {
+		return ((long) window.byteAt(pos) << 24) | (window.byteAt(pos + 1) << 16)
+				| (window.byteAt(pos + 2) << 8) | window.byteAt(pos + 3);
+	}
+
+	/**
+	 * Reads a 28 bit synchsafe integer at the given position
+	 */
+	private static long synchsafe(Window window, long pos) {
+		return ((window.byteAt(pos) & 0x7F) << 21) | ((window.byteAt(pos + 1) & 0x7F) << 14)
+				| ((window.byteAt(pos + 2) & 0x7F) << 7) | (window.byteAt(pos + 3) & 0x7F);
+	}
+
+}
@@ -1,33 +1,65 @@
 package servicos;
 
+import java.util.concurrent.locks.LockSupport;
+
 import domain.player.Player;
 import javazoom.jl.decoder.JavaLayerException;
+import javazoom.jl.player.AudioDevice;
 
 public class JLPlayer extends javazoom.jl.player.Player {
    
-    private boolean isPlaying;
-    private boolean stop;
-    private boolean end;
-    private Thread player;
+    private volatile boolean isPlaying;
+    private volatile boolean stop;
+    private volatile boolean end;
+    private volatile boolean silent;
+    private final Thread player;
+    private final CachingAudioDevice device;
 	private final Player iPlayer;
 
     public JLPlayer (java.io.InputStream stream, Player iPlay) throws JavaLayerException {
-    	super (stream);
+    	this (stream, null, iPlay);
+    }
+
+    // plays to the given device, or to the default one if it is null
+    public JLPlayer (java.io.InputStream stream, AudioDevice device, Player iPlay) throws JavaLayerException {
+    	this (new CachingAudioDevice(device, null, null), stream, iPlay);
+    }
+
+    // plays the samples of the song from the cache if they are there, decoding only
+    // its first frame, and otherwise puts them in the cache if the song plays to the end
+    public JLPlayer (java.io.InputStream stream, AudioDevice device, Player iPlay, PcmCache cache, String filename) throws JavaLayerException {
+    	this (new CachingAudioDevice(device, cache, filename), stream, iPlay);
+    }
+
+    private JLPlayer (CachingAudioDevice device, java.io.InputStream stream, Player iPlay) throws JavaLayerException {
+    	super (stream, device);
+    	this.device = device;
     	this.iPlayer = iPlay;
     	
-    	player = new Thread() {
+    	player = new Thread("JLPlayer") {
             public void run() {
                 try { 
                 	while (!stop && !end) {
-                	  while (isPlaying && !stop && !end) {
-                		 if (!decodeFrame ())
+                	  if (!isPlaying) {
+                		 // sleeps until play or stop, checking the flags again on any wake up
+                		 LockSupport.park(this);
+                		 if (Thread.interrupted())
+                			 stop = true;
+                	  } else if (device.isCached() && device.hasStarted()) {
+                		 if (!device.replay ())
                 			 end = true;
+                	  } else if (!decodeFrame ()) {
+                		 end = true;
                 	  }
                 	}
+                	if (end)
+                		device.complete();
                 }
                 catch (Exception e) { 
                 	System.out.println(e); 
                 }
+                if (silent)
+                	return;
                 if (stop) 
                 	iPlayer.hasStopedSong();
                 else
@@ -40,6 +72,7 @@ public class JLPlayer extends javazoom.jl.player.Player {
     @Override
     public void play () {
     	isPlaying = true;
+    	LockSupport.unpark(player);
     }
     
     public void still () {
@@ -48,6 +81,18 @@ public class JLPlayer extends javazoom.jl.player.Player {
     
     public void stop () {
     	stop = true;
+    	LockSupport.unpark(player);
     	super.close();
     }
+
+    // the thread that decodes and plays the song
+    Thread getThread () {
+    	return player;
+    }
+
+    // stops without telling the player, for songs that were never played
+    public void discard () {
+    	silent = true;
+    	stop();
+    }
 }
@@ -0,0 +1,680 @@
+package servicos;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongAddedLibraryEvent;
+import domain.core.SongLibraryEvent;
+import domain.core.SongMetaInfo;
+import domain.core.SongPlayedLibraryEvent;
+import domain.core.SongRatedLibraryEvent;
+import domain.core.SongRemovedLibraryEvent;
+import domain.core.SongsAddedLibraryEvent;
+import domain.facade.ISong;
+import domain.playlists.PlaylistList;
+import util.observer.Listener;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type keep a Music Library durable by recording its events
+ * in an append-only journal next to a LibrarySnapshot.
+ *
+ * Events are only encoded in memory by the thread that emits them. A
+ * background thread writes everything recorded since the last commit and
+ * forces it to disk once, so many events share the cost of a single sync.
+ * The journal is split in generations: compaction starts a new generation,
+ * then writes a snapshot of everything before it in the background and
+ * deletes the old generations. On open, the snapshot is loaded and the
+ * generations it does not include are replayed, stopping at the first
+ * record of each generation that was not completely written.
+ *
+ * Songs are identified in the journal by their filename. Records take
+ * the ratings and play counts from the events, as they were when the
+ * events happened, since the library may have changed again by the time
+ * they are delivered. Songs are replayed unrated and then rated, so the
+ * playlists of the restored library see their ratings.
+ *
+ * The records of a commit that could not be written are kept to be written
+ * again by the next commit, over whatever part of them reached the file,
+ * and the error is reported by the next call to sync or close. Errors are
+ * not thrown to the library, which emits its events before it is done
+ * changing.
+ */
+public class LibraryJournal implements Listener<SongLibraryEvent>, AutoCloseable {
+
+	//default time between group commits
+	public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 20;
+	//default size of a generation from which it is compacted into the snapshot
+	public static final long DEFAULT_COMPACTION_THRESHOLD = 8L << 20;
+
+	private static final String SNAPSHOT = "library.snapshot";
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	//bytes of the length and checksum before each record
+	private static final int RECORD_HEADER = 8;
+
+	private static final byte ADDED = 1;
+	private static final byte REMOVED = 2;
+	private static final byte RATED = 3;
+	private static final byte PLAYED = 4;
+
+	private final Path dir;
+	private final long commitInterval;
+	private final long compactionThreshold;
+	private final LibrarySnapshot snapshots;
+	//guards the segment being written and the generation
+	private final Object io;
+
+	private ByteArrayOutputStream pending;
+	private ByteArrayOutputStream scratch;
+	private DataOutputStream record;
+	private CRC32 crc;
+	private long appended;
+	private long durable;
+	private long commits;
+
+	private FileChannel segment;
+	private long segmentSize;
+	private long generation;
+	private PlaylistList playlists;
+	private ScheduledExecutorService committer;
+	private ExecutorService compactor;
+	private Future<?> compaction;
+	//first error of the background commits and compactions not reported yet
+	private IOException failure;
+
+	/**
+	 * LibraryJournal constructor with the default commit interval and
+	 * compaction threshold
+	 *
+	 * @param dir the directory of the snapshot and the journal
+	 * @requires dir != null
+	 */
+	public LibraryJournal(Path dir) {
+		this(dir, DEFAULT_COMMIT_INTERVAL_MILLIS, DEFAULT_COMPACTION_THRESHOLD);
+	}
+
+	/**
+	 * LibraryJournal constructor
+	 *
+	 * @param dir                 the directory of the snapshot and the journal
+	 * @param commitInterval      milliseconds between group commits
+	 * @param compactionThreshold size in bytes of a generation from which
+	 *                            it is compacted into the snapshot
+	 * @requires dir != null && commitInterval > 0 && compactionThreshold > 0
+	 */
+	public LibraryJournal(Path dir, long commitInterval, long compactionThreshold) {
+		this.dir = dir;
+		this.commitInterval = commitInterval;
+		this.compactionThreshold = compactionThreshold;
+		this.snapshots = new LibrarySnapshot();
+		this.io = new Object();
+		this.pending = new ByteArrayOutputStream();
+		this.scratch = new ByteArrayOutputStream();
+		this.record = new DataOutputStream(this.scratch);
+		this.crc = new CRC32();
+	}
+
+	/**
+	 * Loads the snapshot, replays the journal and starts recording the
+	 * events of the restored library
+	 *
+	 * @return the restored playlists, in the restored library, or new
+	 *         playlists in an empty library if there is nothing saved
+	 * @ensures \result != null
+	 * @throws IOException if the snapshot or the journal could not be read
+	 */
+	public PlaylistList open() throws IOException {
+		Files.createDirectories(this.dir);
+		Path snapshot = this.dir.resolve(SNAPSHOT);
+		long first = 0;
+		PlaylistList restored;
+		if (Files.exists(snapshot)) {
+			first = this.snapshots.generationOf(snapshot);
+			restored = this.snapshots.load(snapshot);
+		} else {
+			restored = new PlaylistList(new MusicLibrary());
+		}
+
+		long next = first;
+		Map<String, ISong> byFilename = null;
+		for (long g : generations()) {
+			if (g < first) {
+				Files.deleteIfExists(segmentOf(g));
+			} else {
+				if (byFilename == null) {
+					byFilename = filenamesOf(restored.getLibrary());
+				}
+				replay(segmentOf(g), restored.getLibrary(), byFilename);
+				next = g + 1;
+			}
+		}
+
+		synchronized (this.io) {
+			this.generation = next;
+			this.segment = openSegment(next);
+			this.segmentSize = this.segment.size();
+		}
+		this.playlists = restored;
+		this.committer = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "journal-commit"));
+		this.compactor = Executors.newSingleThreadExecutor(r -> daemon(r, "journal-compaction"));
+		this.committer.scheduleWithFixedDelay(this::commitQuietly, this.commitInterval,
+				this.commitInterval, TimeUnit.MILLISECONDS);
+		restored.getLibrary().registerListener(this);
+		return restored;
+	}
+
+	/**
+	 * Records the given event in memory, to be written by the next commit
+	 *
+	 * @param e the SongLibraryEvent given
+	 */
+	@Override
+	public void processEvent(SongLibraryEvent e) {
+		if (e instanceof SongAddedLibraryEvent) {
+			SongAddedLibraryEvent added = (SongAddedLibraryEvent) e;
+			append(ADDED, e.getSong(), added.getRating(), added.getTimesPlayed());
+		} else if (e instanceof SongsAddedLibraryEvent) {
+			SongsAddedLibraryEvent added = (SongsAddedLibraryEvent) e;
+			List<ISong> songs = added.getSongs();
+			for (int i = 0; i < songs.size(); i++) {
+				append(ADDED, songs.get(i), added.getRating(i), added.getTimesPlayed(i));
+			}
+		} else if (e instanceof SongRemovedLibraryEvent) {
+			append(REMOVED, e.getSong(), null, 0);
+		} else if (e instanceof SongRatedLibraryEvent) {
+			append(RATED, e.getSong(), ((SongRatedLibraryEvent) e).getAfter(), 0);
+		} else if (e instanceof SongPlayedLibraryEvent) {
+			append(PLAYED, e.getSong(), null, 0);
+		}
+	}
+
+	/**
+	 * Writes and forces to disk every event of the library so far, waiting
+	 * for the events still being delivered. Must not be called while
+	 * holding the lock of the library
+	 *
+	 * @throws IOException if the journal could not be written, now or by a
+	 *                     background commit or compaction since the last
+	 *                     error reported
+	 */
+	public void sync() throws IOException {
+		this.playlists.getLibrary().flush();
+		commit();
+		throwFailure();
+	}
+
+	/**
+	 * Starts a new generation and writes a snapshot of everything before it
+	 * in the background, deleting the old generations once it is written.
+	 * Does nothing if a compaction is already running
+	 *
+	 * @return the running compaction
+	 */
+	public synchronized Future<?> compact() {
+		if (this.compaction == null || this.compaction.isDone()) {
+			this.compaction = this.compactor.submit(() -> {
+				try {
+					compactNow();
+				} catch (IOException e) {
+					fail(e);
+					throw e;
+				}
+				return null;
+			});
+		}
+		return this.compaction;
+	}
+
+	/**
+	 * Returns the number of records written to the journal
+	 *
+	 * @return the number of durable records
+	 * @ensures \result >= 0
+	 */
+	public synchronized long getDurable() {
+		return this.durable;
+	}
+
+	/**
+	 * Returns the number of group commits done
+	 *
+	 * @return the number of commits
+	 * @ensures \result >= 0
+	 */
+	public synchronized long getCommits() {
+		return this.commits;
+	}
+
+	/**
+	 * Returns the directory of the snapshot and the journal
+	 *
+	 * @return the directory of the journal
+	 * @ensures \result != null
+	 */
+	public Path getDirectory() {
+		return this.dir;
+	}
+
+	/**
+	 * Returns the generation of the journal being written
+	 *
+	 * @return the current generation
+	 */
+	public long getGeneration() {
+		synchronized (this.io) {
+			return this.generation;
+		}
+	}
+
+	/**
+	 * Stops recording events, waits for a running compaction and writes
+	 * the events recorded so far
+	 *
+	 * @throws IOException if the journal could not be written, now or by a
+	 *                     background commit or compaction since the last
+	 *                     error reported
+	 */
+	@Override
+	public void close() throws IOException {
+		this.playlists.getLibrary().flush();
+		this.playlists.getLibrary().unregisterListener(this);
+		this.committer.shutdown();
+		this.compactor.shutdown();
+		try {
+			this.compactor.awaitTermination(1, TimeUnit.MINUTES);
+			this.committer.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			commit();
+		} finally {
+			synchronized (this.io) {
+				this.segment.close();
+			}
+		}
+		throwFailure();
+	}
+
+	/**
+	 * Encodes a record with its length and checksum at the end of the
+	 * records waiting to be written
+	 *
+	 * @param type        the type of the record
+	 * @param song        the song of the record
+	 * @param rate        the rating, for ADDED and RATED records
+	 * @param timesPlayed the play count, for ADDED records
+	 */
+	private synchronized void append(byte type, ISong song, Rate rate, int timesPlayed) {
+		try {
+			this.scratch.reset();
+			this.record.writeByte(type);
+			writeString(this.record, song.getFilename());
+			if (type == ADDED) {
+				writeString(this.record, song.getSongTitle());
+				writeString(this.record, song.getAlbum());
+				writeString(this.record, song.getGenre());
+				this.record.writeInt(song.getArtists().size());
+				for (String artist : song.getArtists()) {
+					writeString(this.record, artist);
+				}
+				this.record.writeByte(rate.ordinal());
+				this.record.writeInt(timesPlayed);
+			} else if (type == RATED) {
+				this.record.writeByte(rate.ordinal());
+			}
+			this.record.flush();
+			this.crc.reset();
+			this.crc.update(this.scratch.toByteArray());
+			DataOutputStream out = new DataOutputStream(this.pending);
+			out.writeInt(this.scratch.size());
+			out.writeInt((int) this.crc.getValue());
+			this.scratch.writeTo(out);
+			this.appended++;
+		} catch (IOException e) {
+			//writing to memory does not fail
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes the records waiting to be written and forces them to disk,
+	 * compacting the journal if the generation got too big. If they could
+	 * not be written, they are put back in front of the records recorded in
+	 * the meantime and the segment is cut back to the records written
+	 * before, so the next commit writes them again in the same place
+	 *
+	 * @throws IOException if the journal could not be written
+	 */
+	private void commit() throws IOException {
+		boolean compact;
+		synchronized (this.io) {
+			byte[] data;
+			long upTo;
+			synchronized (this) {
+				if (this.pending.size() == 0) {
+					return;
+				}
+				data = this.pending.toByteArray();
+				this.pending.reset();
+				upTo = this.appended;
+			}
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(data);
+				while (buffer.hasRemaining()) {
+					this.segment.write(buffer, this.segmentSize + buffer.position());
+				}
+				this.segment.force(false);
+			} catch (IOException e) {
+				restore(data);
+				try {
+					this.segment.truncate(this.segmentSize);
+				} catch (IOException t) {
+					//the next commit writes over the torn records
+					e.addSuppressed(t);
+				}
+				throw e;
+			}
+			this.segmentSize += data.length;
+			compact = this.segmentSize >= this.compactionThreshold;
+			synchronized (this) {
+				this.durable = upTo;
+				this.commits++;
+			}
+		}
+		if (compact) {
+			compact();
+		}
+	}
+
+	/**
+	 * Puts the given records back in front of the records waiting to be
+	 * written
+	 */
+	private synchronized void restore(byte[] data) {
+		ByteArrayOutputStream records = new ByteArrayOutputStream(data.length + this.pending.size());
+		records.write(data, 0, data.length);
+		records.write(this.pending.toByteArray(), 0, this.pending.size());
+		this.pending = records;
+	}
+
+	/**
+	 * Commits, keeping the error to report it later
+	 */
+	private void commitQuietly() {
+		try {
+			commit();
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Keeps the given error of a background task, to be reported by the
+	 * next call to sync or close
+	 */
+	private synchronized void fail(IOException e) {
+		if (this.failure == null) {
+			this.failure = e;
+		} else if (this.failure != e) {
+			this.failure.addSuppressed(e);
+		}
+	}
+
+	/**
+	 * Reports the error of a background task not reported yet, if any
+	 *
+	 * @throws IOException the error
+	 */
+	private void throwFailure() throws IOException {
+		IOException e;
+		synchronized (this) {
+			e = this.failure;
+			this.failure = null;
+		}
+		if (e != null) {
+			throw e;
+		}
+	}
+
+	/**
+	 * Starts a new generation while no events happen in the library, copies
+	 * the state of the library at that moment and writes it to the snapshot
+	 *
+	 * @throws IOException if the journal or the snapshot could not be written
+	 */
+	private void compactNow() throws IOException {
+		MusicLibrary library = this.playlists.getLibrary();
+		LibrarySnapshot.Image image = null;
+		while (image == null) {
+			library.flush();
+			synchronized (library) {
+				if (!library.hasPendingEvents()) {
+					synchronized (this.io) {
+						commit();
+						this.segment.close();
+						this.generation++;
+						this.segment = openSegment(this.generation);
+						this.segmentSize = 0;
+					}
+					image = this.snapshots.capture(this.playlists, getGeneration());
+				}
+			}
+		}
+		this.snapshots.write(this.dir.resolve(SNAPSHOT), image);
+		for (long g : generations()) {
+			if (g < image.generation()) {
+				Files.deleteIfExists(segmentOf(g));
+			}
+		}
+	}
+
+	/**
+	 * Applies the complete records of the given generation to the library
+	 *
+	 * @param file       the file of the generation
+	 * @param library    the library
+	 * @param byFilename the songs of the library by filename
+	 */
+	private static void replay(Path file, MusicLibrary library, Map<String, ISong> byFilename)
+			throws IOException {
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+		List<Song> added = new ArrayList<>();
+		List<Rate> ratings = new ArrayList<>();
+		CRC32 crc = new CRC32();
+		while (in.remaining() >= RECORD_HEADER) {
+			int length = in.getInt();
+			int checksum = in.getInt();
+			if (length <= 0 || length > in.remaining()) {
+				break;
+			}
+			crc.reset();
+			crc.update(in.array(), in.position(), length);
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+			ByteBuffer body = ByteBuffer.wrap(in.array(), in.position(), length);
+			in.position(in.position() + length);
+			try {
+				byte type = body.get();
+				String filename = readString(body);
+				if (type == ADDED) {
+					String title = readString(body);
+					String album = readString(body);
+					String genre = readString(body);
+					String[] artists = new String[body.getInt()];
+					for (int i = 0; i < artists.length; i++) {
+						artists[i] = readString(body);
+					}
+					Rate rate = Rate.values()[body.get()];
+					Song song = new Song(filename, new SongMetaInfo(title, album, genre, Arrays.asList(artists)),
+							Rate.UNRATED, body.getInt());
+					added.add(song);
+					ratings.add(rate);
+					byFilename.put(filename, song);
+					continue;
+				}
+				addAll(library, added, ratings);
+				ISong song = byFilename.get(filename);
+				if (song == null) {
+					continue;
+				}
+				if (type == REMOVED) {
+					byFilename.remove(filename);
+					library.remove(song);
+				} else if (type == RATED) {
+					library.rate(song, Rate.values()[body.get()]);
+				} else if (type == PLAYED) {
+					library.incTimesPlayed(song);
+				}
+			} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+				break;
+			}
+		}
+		addAll(library, added, ratings);
+	}
+
+	/**
+	 * Adds the given unrated songs to the library in one batch, then rates
+	 * them with the given ratings, so the playlists get a rating event for
+	 * each rated song, and forgets them
+	 */
+	private static void addAll(MusicLibrary library, List<Song> added, List<Rate> ratings) {
+		if (!added.isEmpty()) {
+			library.addAll(new ArrayList<>(added));
+			for (int i = 0; i < added.size(); i++) {
+				if (ratings.get(i) != Rate.UNRATED) {
+					library.rate(added.get(i), ratings.get(i));
+				}
+			}
+			added.clear();
+			ratings.clear();
+		}
+	}
+
+	/**
+	 * Writes a string that may be null
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	/**
+	 * Reads a string written by writeString
+	 */
+	private static String readString(ByteBuffer in) {
+		if (in.get() == 0) {
+			return null;
+		}
+		int length = Short.toUnsignedInt(in.getShort());
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return decodeModifiedUtf8(bytes);
+	}
+
+	/**
+	 * Decodes the modified UTF-8 used by DataOutputStream.writeUTF
+	 */
+	private static String decodeModifiedUtf8(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length);
+		int i = 0;
+		while (i < bytes.length) {
+			int b = bytes[i++] & 0xFF;
+			if (b < 0x80) {
+				sb.append((char) b);
+			} else if ((b & 0xE0) == 0xC0) {
+				sb.append((char) (((b & 0x1F) << 6) | (bytes[i++] & 0x3F)));
+			} else {
+				sb.append((char) (((b & 0x0F) << 12) | ((bytes[i++] & 0x3F) << 6) | (bytes[i++] & 0x3F)));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the songs of the library by filename
+	 */
+	private static Map<String, ISong> filenamesOf(MusicLibrary library) {
+		Map<String, ISong> byFilename = new HashMap<>();
+		for (ISong song : library.getSongs()) {
+			byFilename.put(song.getFilename(), song);
+		}
+		return byFilename;
+	}
+
+	/**
+	 * Returns the generations that have a file in the directory, in order
+	 */
+	private List<Long> generations() throws IOException {
+		List<Long> found = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(this.dir,
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					found.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+							name.length() - SEGMENT_SUFFIX.length())));
+				} catch (NumberFormatException e) {
+					//not a journal file
+				}
+			}
+		}
+		Collections.sort(found);
+		return found;
+	}
+
+	/**
+	 * Returns the file of the given generation
+	 */
+	private Path segmentOf(long generation) {
+		return this.dir.resolve(SEGMENT_PREFIX + generation + SEGMENT_SUFFIX);
+	}
+
+	/**
+	 * Opens the file of the given generation for writing, at the positions
+	 * given by the size of the segment
+	 */
+	private FileChannel openSegment(long generation) throws IOException {
+		return FileChannel.open(segmentOf(generation), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Creates a daemon thread with the given name
+	 */
+	private static Thread daemon(Runnable r, String name) {
+		Thread t = new Thread(r, name);
+		t.setDaemon(true);
+		return t;
+	}
+
+}
@@ -0,0 +1,448 @@
+package servicos;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.facade.ISong;
+import domain.playlists.ManualPlaylist;
+import domain.playlists.MostLikedSongsPlaylist;
+import domain.playlists.MostRecentlyAddedSongsPlaylist;
+import domain.playlists.Playlist;
+import domain.playlists.PlaylistList;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type save and load a Music Library and its playlists
+ * to and from a binary file, so the tags of the songs don't need to be
+ * read again.
+ *
+ * After a header with the first journal generation the snapshot does not
+ * include, the file has a table of all distinct strings, followed by the
+ * songs and the playlists, which refer to strings and songs by their
+ * position. Files are read whole into memory with bulk channel reads, so
+ * no mapping of the file outlives a load and keeps a later save from
+ * replacing it, and saved to a temporary file that then replaces the old
+ * one, so a failed save never leaves a broken snapshot behind. The counts
+ * and lengths read are checked against the bytes left before anything is
+ * allocated for them.
+ */
+public class LibrarySnapshot {
+
+	//first bytes of every snapshot ("LEIT")
+	private static final int MAGIC = 0x4C454954;
+	private static final int VERSION = 2;
+	//bytes of the magic number, version and generation
+	private static final int HEADER_SIZE = 16;
+	//position used for strings that are null
+	private static final int NO_STRING = -1;
+	//fewest bytes of each entry of the file, to check the counts read
+	private static final int MIN_STRING_BYTES = 4;
+	private static final int MIN_SONG_BYTES = 25;
+	private static final int MIN_ARTIST_BYTES = 4;
+	private static final int MIN_PLAYLIST_BYTES = 9;
+	private static final int MIN_MEMBER_BYTES = 4;
+
+	private static final byte MANUAL = 0;
+	private static final byte MOST_LIKED = 1;
+	private static final byte MOST_RECENT = 2;
+
+	/**
+	 * The state of a library and its playlists at some moment, copied so
+	 * it can be written while the library goes on changing
+	 *
+	 * @param songs      the songs, in library order
+	 * @param playlists  the playlists, in order
+	 * @param generation the first journal generation not included
+	 */
+	record Image(List<Entry> songs, List<PlaylistEntry> playlists, long generation) {
+	}
+
+	/**
+	 * The data of a song
+	 */
+	record Entry(String filename, String title, String album, String genre,
+			List<String> artists, Rate rate, int timesPlayed) {
+	}
+
+	/**
+	 * The data of a playlist: the limit of smart playlists or the
+	 * positions of the songs of manual ones
+	 */
+	record PlaylistEntry(byte kind, String name, int n, int[] members) {
+	}
+
+	/**
+	 * Saves the library of the given playlists and the playlists to the
+	 * given file, replacing it atomically if it exists
+	 *
+	 * @param file      the snapshot file
+	 * @param playlists the playlists, in the library to save
+	 * @requires file != null && playlists != null
+	 * @throws IOException if the snapshot could not be written
+	 */
+	public void save(Path file, PlaylistList playlists) throws IOException {
+		write(file, capture(playlists, 0));
+	}
+
+	/**
+	 * Copies the state of the library of the given playlists and of the
+	 * playlists. Callers must keep the library from changing meanwhile
+	 *
+	 * @param playlists  the playlists, in the library to copy
+	 * @param generation the first journal generation not included
+	 * @return the copy of the state
+	 */
+	Image capture(PlaylistList playlists, long generation) {
+		MusicLibrary library = playlists.getLibrary();
+		List<Entry> songs = new ArrayList<>(library.size());
+		for (ISong song : library.getSongs()) {
+			songs.add(new Entry(song.getFilename(), song.getSongTitle(), song.getAlbum(), song.getGenre(),
+					song.getArtists(), song.getRating(), song.getTimesPlayed()));
+		}
+		Map<ISong, Integer> positions = null;
+		List<PlaylistEntry> saved = new ArrayList<>();
+		for (Playlist p : playlists) {
+			if (p instanceof MostLikedSongsPlaylist) {
+				saved.add(new PlaylistEntry(MOST_LIKED, p.getName(), ((MostLikedSongsPlaylist) p).getN(), null));
+			} else if (p instanceof MostRecentlyAddedSongsPlaylist) {
+				saved.add(new PlaylistEntry(MOST_RECENT, p.getName(),
+						((MostRecentlyAddedSongsPlaylist) p).getN(), null));
+			} else if (p instanceof ManualPlaylist) {
+				if (positions == null) {
+					positions = positionsOf(library);
+				}
+				List<Integer> members = new ArrayList<>();
+				for (ISong song : p) {
+					Integer pos = positions.get(song);
+					if (pos != null) {
+						members.add(pos);
+					}
+				}
+				saved.add(new PlaylistEntry(MANUAL, p.getName(), 0,
+						members.stream().mapToInt(Integer::intValue).toArray()));
+			}
+		}
+		return new Image(songs, saved, generation);
+	}
+
+	/**
+	 * Writes the given state to the given file, replacing it atomically
+	 * if it exists
+	 *
+	 * @param file  the snapshot file
+	 * @param image the state to write
+	 * @throws IOException if the snapshot could not be written
+	 */
+	void write(Path file, Image image) throws IOException {
+		Map<String, Integer> strings = new HashMap<>();
+		List<String> table = new ArrayList<>();
+		for (Entry song : image.songs()) {
+			intern(song.filename(), strings, table);
+			intern(song.title(), strings, table);
+			intern(song.album(), strings, table);
+			intern(song.genre(), strings, table);
+			for (String artist : song.artists()) {
+				intern(artist, strings, table);
+			}
+		}
+		for (PlaylistEntry p : image.playlists()) {
+			intern(p.name(), strings, table);
+		}
+
+		Path dir = file.toAbsolutePath().getParent();
+		Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(image.generation());
+				writeStrings(out, table);
+				writeSongs(out, image.songs(), strings);
+				writePlaylists(out, image.playlists(), strings);
+				out.flush();
+				channel.force(true);
+			}
+			move(tmp, file);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * Loads a library and its playlists from the given file
+	 *
+	 * @param file the snapshot file
+	 * @requires file != null
+	 * @return the playlists saved in file, in a new library with the songs
+	 *         saved in file
+	 * @ensures \result != null
+	 * @throws IOException if the file could not be read or is not a valid snapshot
+	 */
+	public PlaylistList load(Path file) throws IOException {
+		ByteBuffer in;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Library snapshot too big: " + file);
+			}
+			in = ByteBuffer.allocate((int) size);
+			while (in.hasRemaining() && channel.read(in) >= 0) {
+				// keep reading until the buffer is full or the file ends
+			}
+			in.flip();
+		}
+		try {
+			readHeader(in, file);
+			String[] table = readStrings(in);
+			MusicLibrary library = new MusicLibrary();
+			List<Song> songs = readSongs(in, table);
+			library.addAll(songs);
+			return new PlaylistList(library, readPlaylists(in, table, library, songs));
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+				| NegativeArraySizeException e) {
+			throw new IOException("Corrupted library snapshot: " + file, e);
+		}
+	}
+
+	/**
+	 * Reads the first journal generation not included in the given snapshot
+	 *
+	 * @param file the snapshot file
+	 * @return the generation of the snapshot
+	 * @throws IOException if the file could not be read or is not a valid snapshot
+	 */
+	long generationOf(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer in = ByteBuffer.allocate(HEADER_SIZE);
+			while (in.hasRemaining() && channel.read(in) >= 0) {
+				// keep reading until the header is complete or the file ends
+			}
+			in.flip();
+			return readHeader(in, file);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Corrupted library snapshot: " + file, e);
+		}
+	}
+
+	/**
+	 * Reads and checks the header of a snapshot
+	 *
+	 * @return the generation of the snapshot
+	 */
+	private static long readHeader(ByteBuffer in, Path file) throws IOException {
+		if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+			throw new IOException("Not a library snapshot: " + file);
+		}
+		return in.getLong();
+	}
+
+	/**
+	 * Returns the position of each song in the library
+	 */
+	private static Map<ISong, Integer> positionsOf(MusicLibrary library) {
+		Map<ISong, Integer> positions = new IdentityHashMap<>();
+		for (ISong song : library.getSongs()) {
+			positions.putIfAbsent(song, positions.size());
+		}
+		return positions;
+	}
+
+	/**
+	 * Writes the table of strings
+	 */
+	private static void writeStrings(DataOutputStream out, List<String> table) throws IOException {
+		out.writeInt(table.size());
+		for (String s : table) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Writes the songs, in library order
+	 */
+	private static void writeSongs(DataOutputStream out, List<Entry> songs,
+			Map<String, Integer> strings) throws IOException {
+		out.writeInt(songs.size());
+		for (Entry song : songs) {
+			out.writeInt(position(song.filename(), strings));
+			out.writeInt(position(song.title(), strings));
+			out.writeInt(position(song.album(), strings));
+			out.writeInt(position(song.genre(), strings));
+			out.writeInt(song.artists().size());
+			for (String artist : song.artists()) {
+				out.writeInt(position(artist, strings));
+			}
+			out.writeByte(song.rate().ordinal());
+			out.writeInt(song.timesPlayed());
+		}
+	}
+
+	/**
+	 * Writes the playlists: the limit of the smart playlists and the
+	 * positions in the library of the songs of the manual ones
+	 */
+	private static void writePlaylists(DataOutputStream out, List<PlaylistEntry> playlists,
+			Map<String, Integer> strings) throws IOException {
+		out.writeInt(playlists.size());
+		for (PlaylistEntry p : playlists) {
+			out.writeByte(p.kind());
+			out.writeInt(position(p.name(), strings));
+			if (p.kind() == MANUAL) {
+				out.writeInt(p.members().length);
+				for (int pos : p.members()) {
+					out.writeInt(pos);
+				}
+			} else {
+				out.writeInt(p.n());
+			}
+		}
+	}
+
+	/**
+	 * Reads the table of strings
+	 */
+	private static String[] readStrings(ByteBuffer in) {
+		String[] table = new String[count(in, MIN_STRING_BYTES)];
+		byte[] scratch = new byte[256];
+		for (int i = 0; i < table.length; i++) {
+			int length = count(in, 1);
+			if (length > scratch.length) {
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			}
+			in.get(scratch, 0, length);
+			table[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+		return table;
+	}
+
+	/**
+	 * Reads the songs, in library order
+	 */
+	private static List<Song> readSongs(ByteBuffer in, String[] table) {
+		Rate[] rates = Rate.values();
+		int count = count(in, MIN_SONG_BYTES);
+		List<Song> songs = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			String filename = string(in.getInt(), table);
+			String title = string(in.getInt(), table);
+			String album = string(in.getInt(), table);
+			String genre = string(in.getInt(), table);
+			String[] artists = new String[count(in, MIN_ARTIST_BYTES)];
+			for (int k = 0; k < artists.length; k++) {
+				artists[k] = string(in.getInt(), table);
+			}
+			Rate rate = rates[in.get()];
+			int timesPlayed = in.getInt();
+			SongMetaInfo info = new SongMetaInfo(title, album, genre, Arrays.asList(artists));
+			songs.add(new Song(filename, info, rate, timesPlayed));
+		}
+		return songs;
+	}
+
+	/**
+	 * Reads the playlists, creating them in the given library
+	 */
+	private static List<Playlist> readPlaylists(ByteBuffer in, String[] table,
+			MusicLibrary library, List<Song> songs) throws IOException {
+		int count = count(in, MIN_PLAYLIST_BYTES);
+		List<Playlist> playlists = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			byte kind = in.get();
+			String name = string(in.getInt(), table);
+			if (kind == MOST_LIKED) {
+				playlists.add(new MostLikedSongsPlaylist(library, in.getInt()));
+			} else if (kind == MOST_RECENT) {
+				playlists.add(new MostRecentlyAddedSongsPlaylist(library, in.getInt()));
+			} else if (kind == MANUAL) {
+				ManualPlaylist manual = new ManualPlaylist(name, library);
+				int size = count(in, MIN_MEMBER_BYTES);
+				for (int k = 0; k < size; k++) {
+					manual.add(songs.get(in.getInt()));
+				}
+				playlists.add(manual);
+			} else {
+				throw new IOException("Unknown kind of playlist: " + kind);
+			}
+		}
+		return playlists;
+	}
+
+	/**
+	 * Reads a count of entries, checking that the bytes left can hold them
+	 *
+	 * @param in    the snapshot
+	 * @param bytes the fewest bytes of each entry
+	 * @return the count
+	 * @throws IllegalArgumentException if the count does not fit in the bytes left
+	 */
+	private static int count(ByteBuffer in, int bytes) {
+		int count = in.getInt();
+		if (count < 0 || count > in.remaining() / bytes) {
+			throw new IllegalArgumentException("Invalid count: " + count);
+		}
+		return count;
+	}
+
+	/**
+	 * Adds the given string to the table, if it is not there yet
+	 */
+	private static void intern(String s, Map<String, Integer> strings, List<String> table) {
+		if (s != null && !strings.containsKey(s)) {
+			strings.put(s, table.size());
+			table.add(s);
+		}
+	}
+
+	/**
+	 * Returns the position of the given string in the table
+	 */
+	private static int position(String s, Map<String, Integer> strings) {
+		return s == null ? NO_STRING : strings.get(s);
+	}
+
+	/**
+	 * Returns the string in the given position of the table
+	 */
+	private static String string(int position, String[] table) {
+		return position == NO_STRING ? null : table[position];
+	}
+
+	/**
+	 * Replaces target with source, atomically if the file system allows it
+	 */
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+package servicos;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Source that maps the files into memory. The pages of a file can be
+ * loaded when it is opened, so the decoder only reads memory while the
+ * song plays; otherwise they are loaded by the reads that first touch
+ * them. A read that takes longer than AudioSource.STALL_NANOS, because
+ * its pages were not in memory, counts as a stall.
+ */
+public class MappedAudioSource implements AudioSource {
+
+	private final boolean loadOnOpen;
+	private final LongAdder stalls;
+
+	/**
+	 * MappedAudioSource constructor that loads the files when they are opened
+	 */
+	public MappedAudioSource() {
+		this(true);
+	}
+
+	/**
+	 * MappedAudioSource constructor
+	 *
+	 * @param loadOnOpen true to load all the pages of a file when it is
+	 *                   opened, false to load them as they are read
+	 */
+	public MappedAudioSource(boolean loadOnOpen) {
+		this.loadOnOpen = loadOnOpen;
+		this.stalls = new LongAdder();
+	}
+
+	@Override
+	public InputStream open(String filename) throws IOException {
+		MappedByteBuffer map;
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Too big to map: " + filename);
+			}
+			map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (this.loadOnOpen) {
+			map.load();
+		}
+		return new StallCountingInputStream(new BufferInputStream(map), this.stalls);
+	}
+
+	@Override
+	public long getStalls() {
+		return this.stalls.sum();
+	}
+
+	/**
+	 * Stream over the bytes of a buffer
+	 */
+	private static final class BufferInputStream extends InputStream {
+		private final MappedByteBuffer buffer;
+
+		private BufferInputStream(MappedByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, this.buffer.remaining());
+			this.buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public long skip(long n) {
+			int skipped = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+			this.buffer.position(this.buffer.position() + skipped);
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return this.buffer.remaining();
+		}
+	}
+
+}
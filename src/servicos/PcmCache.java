@@ -0,0 +1,246 @@
+package servicos;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type keep the decoded samples of the songs that were
+ * played to the end, so playing them again does not decode them. The
+ * samples of a song are kept as a whole, by filename, while the bytes of
+ * all songs fit in the budget of the cache; to make room, the least
+ * recently used or the least frequently used songs are evicted. Samples
+ * can be kept outside the heap, in direct buffers.
+ */
+public class PcmCache {
+
+	/**
+	 * How the songs to evict are chosen
+	 */
+	public enum Eviction {
+		/** the song played the longest time ago */
+		LRU,
+		/** the song played the fewest times, the longest time ago on ties */
+		LFU
+	}
+
+	/**
+	 * The decoded samples of a song
+	 */
+	public static final class Samples {
+		private final short[] heap;
+		private final ShortBuffer direct;
+		private final int length;
+		private long uses;
+
+		private Samples(short[] samples, int length, boolean offHeap) {
+			this.length = length;
+			if (offHeap) {
+				this.heap = null;
+				this.direct = ByteBuffer.allocateDirect(length * Short.BYTES).order(ByteOrder.nativeOrder())
+						.asShortBuffer();
+				this.direct.put(0, samples, 0, length);
+			} else {
+				this.heap = Arrays.copyOf(samples, length);
+				this.direct = null;
+			}
+		}
+
+		/**
+		 * Returns the number of samples
+		 *
+		 * @return the number of samples, of all channels
+		 */
+		public int length() {
+			return this.length;
+		}
+
+		/**
+		 * Copies samples to the given array
+		 *
+		 * @param from the position of the first sample to copy
+		 * @param dst  the array
+		 * @param off  the position in dst of the first sample
+		 * @param len  the number of samples to copy
+		 * @requires 0 <= from && from + len <= length()
+		 */
+		public void copy(int from, short[] dst, int off, int len) {
+			if (this.heap != null) {
+				System.arraycopy(this.heap, from, dst, off, len);
+			} else {
+				this.direct.get(from, dst, off, len);
+			}
+		}
+
+		private long bytes() {
+			return (long) this.length * Short.BYTES;
+		}
+	}
+
+	private final long budget;
+	private final Eviction eviction;
+	private final boolean offHeap;
+	private final LinkedHashMap<String, Samples> songs;
+	private long bytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * PcmCache constructor
+	 *
+	 * @param budget   the maximum number of bytes of samples kept
+	 * @param eviction how the songs to evict are chosen
+	 * @param offHeap  true to keep the samples in direct buffers
+	 * @requires budget > 0 && eviction != null
+	 */
+	public PcmCache(long budget, Eviction eviction, boolean offHeap) {
+		this.budget = budget;
+		this.eviction = eviction;
+		this.offHeap = offHeap;
+		this.songs = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Returns the samples of the given song, counting a hit or a miss
+	 *
+	 * @param filename the file of the song
+	 * @return the samples of the song or null if they are not in the cache
+	 */
+	public synchronized Samples get(String filename) {
+		Samples samples = this.songs.get(filename);
+		if (samples == null) {
+			this.misses++;
+		} else {
+			this.hits++;
+			samples.uses++;
+		}
+		return samples;
+	}
+
+	/**
+	 * Checks if the given song fits in the cache
+	 *
+	 * @param samples the number of samples of the song
+	 * @return true if songs with that many samples can be kept
+	 */
+	public boolean fits(long samples) {
+		return samples * Short.BYTES <= this.budget;
+	}
+
+	/**
+	 * Keeps the first length samples of the given array as the samples of
+	 * the given song, evicting other songs to make room
+	 *
+	 * @param filename the file of the song
+	 * @param samples  the decoded samples
+	 * @param length   the number of samples
+	 * @requires 0 <= length <= samples.length
+	 */
+	public synchronized void put(String filename, short[] samples, int length) {
+		if (!fits(length) || this.songs.containsKey(filename)) {
+			return;
+		}
+		Samples kept = new Samples(samples, length, this.offHeap);
+		while (this.bytes + kept.bytes() > this.budget) {
+			evictOne();
+		}
+		kept.uses = 1;
+		this.songs.put(filename, kept);
+		this.bytes += kept.bytes();
+	}
+
+	/**
+	 * Returns the number of bytes of samples kept
+	 *
+	 * @return the bytes held by the cache
+	 * @ensures 0 <= \result <= getBudget()
+	 */
+	public synchronized long getBytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * Returns the maximum number of bytes of samples kept
+	 *
+	 * @return the budget of the cache
+	 */
+	public long getBudget() {
+		return this.budget;
+	}
+
+	/**
+	 * Returns the number of songs kept
+	 *
+	 * @return the number of songs in the cache
+	 * @ensures \result >= 0
+	 */
+	public synchronized int size() {
+		return this.songs.size();
+	}
+
+	/**
+	 * Returns the fraction of lookups that found the samples of the song
+	 *
+	 * @return the hit ratio, or 0 if there were no lookups
+	 * @ensures 0 <= \result <= 1
+	 */
+	public synchronized double getHitRatio() {
+		long total = this.hits + this.misses;
+		return total == 0 ? 0 : (double) this.hits / total;
+	}
+
+	/**
+	 * Returns the number of lookups that found the samples of the song
+	 *
+	 * @return the number of hits
+	 */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Returns the number of lookups that did not find the samples of the song
+	 *
+	 * @return the number of misses
+	 */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * Returns the number of songs evicted
+	 *
+	 * @return the number of evictions
+	 */
+	public synchronized long getEvictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * Evicts the song chosen by the eviction policy
+	 */
+	private void evictOne() {
+		Iterator<Map.Entry<String, Samples>> it = this.songs.entrySet().iterator();
+		Map.Entry<String, Samples> victim = it.next();
+		if (this.eviction == Eviction.LFU) {
+			while (it.hasNext()) {
+				Map.Entry<String, Samples> e = it.next();
+				if (e.getValue().uses < victim.getValue().uses) {
+					victim = e;
+				}
+			}
+		}
+		this.songs.remove(victim.getKey());
+		this.bytes -= victim.getValue().bytes();
+		this.evictions++;
+	}
+
+}
@@ -0,0 +1,193 @@
+package servicos;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Source that reads the files ahead of the decoder with an
+ * AsynchronousFileChannel. Each stream keeps reads of the next chunks of
+ * its file in flight, up to a window of bytes, and starts a new read
+ * every time the decoder finishes a chunk. The decoder only waits for the
+ * disk when it reaches a chunk whose read did not complete yet, which
+ * counts as a stall.
+ */
+public class ReadAheadAudioSource implements AudioSource {
+
+	//bytes read by each read of a file
+	public static final int CHUNK_SIZE = 64 * 1024;
+	//bytes read ahead of the decoder by default
+	public static final int DEFAULT_WINDOW = 1024 * 1024;
+
+	private final int window;
+	private final LongAdder stalls;
+
+	/**
+	 * ReadAheadAudioSource constructor with the default window
+	 */
+	public ReadAheadAudioSource() {
+		this(DEFAULT_WINDOW);
+	}
+
+	/**
+	 * ReadAheadAudioSource constructor
+	 *
+	 * @param window the number of bytes read ahead of the decoder, rounded
+	 *               up to a whole number of chunks
+	 * @requires window > 0
+	 */
+	public ReadAheadAudioSource(int window) {
+		this.window = Math.max(1, (window + CHUNK_SIZE - 1) / CHUNK_SIZE);
+		this.stalls = new LongAdder();
+	}
+
+	/**
+	 * Returns the number of chunks read ahead of the decoder
+	 *
+	 * @return the size of the window, in chunks
+	 */
+	public int getWindowChunks() {
+		return this.window;
+	}
+
+	@Override
+	public InputStream open(String filename) throws IOException {
+		return new ReadAheadInputStream(AsynchronousFileChannel.open(Paths.get(filename), StandardOpenOption.READ));
+	}
+
+	@Override
+	public long getStalls() {
+		return this.stalls.sum();
+	}
+
+	/**
+	 * A chunk of the file being read
+	 */
+	private static final class Chunk {
+		private final long position;
+		private final ByteBuffer buffer;
+		private Future<Integer> read;
+
+		private Chunk(long position, int length) {
+			this.position = position;
+			this.buffer = ByteBuffer.allocate(length);
+		}
+	}
+
+	/**
+	 * Stream over a file that keeps the next chunks of the file being read
+	 */
+	private final class ReadAheadInputStream extends InputStream {
+		private final AsynchronousFileChannel channel;
+		private final long size;
+		private final Deque<Chunk> ahead;
+		private long next;
+		private ByteBuffer current;
+
+		private ReadAheadInputStream(AsynchronousFileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+			this.ahead = new ArrayDeque<>();
+			this.next = 0;
+			this.current = ByteBuffer.allocate(0);
+			readAhead();
+		}
+
+		@Override
+		public int read() throws IOException {
+			return hasData() ? this.current.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!hasData()) {
+				return -1;
+			}
+			int n = Math.min(len, this.current.remaining());
+			this.current.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return this.current.remaining();
+		}
+
+		@Override
+		public void close() throws IOException {
+			for (Chunk chunk : this.ahead) {
+				chunk.read.cancel(false);
+			}
+			this.ahead.clear();
+			this.channel.close();
+		}
+
+		/**
+		 * Makes the next chunk current if the current one was all read
+		 *
+		 * @return false if the end of the file was reached
+		 */
+		private boolean hasData() throws IOException {
+			while (!this.current.hasRemaining()) {
+				Chunk chunk = this.ahead.poll();
+				if (chunk == null) {
+					return false;
+				}
+				complete(chunk);
+				this.current = chunk.buffer;
+				readAhead();
+			}
+			return true;
+		}
+
+		/**
+		 * Starts reads of the next chunks until the window is full
+		 */
+		private void readAhead() {
+			while (this.ahead.size() < window && this.next < this.size) {
+				Chunk chunk = new Chunk(this.next, (int) Math.min(CHUNK_SIZE, this.size - this.next));
+				chunk.read = this.channel.read(chunk.buffer, chunk.position);
+				this.ahead.add(chunk);
+				this.next += chunk.buffer.capacity();
+			}
+		}
+
+		/**
+		 * Waits for the read of the given chunk, reading the rest of the
+		 * chunk if the read was short
+		 */
+		private void complete(Chunk chunk) throws IOException {
+			if (!chunk.read.isDone()) {
+				stalls.increment();
+			}
+			try {
+				int n = chunk.read.get();
+				while (n >= 0 && chunk.buffer.hasRemaining()) {
+					n = this.channel.read(chunk.buffer, chunk.position + chunk.buffer.position()).get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while reading ahead");
+			} catch (ExecutionException e) {
+				throw new IOException(e.getCause());
+			}
+			chunk.buffer.flip();
+		}
+	}
+
+}
@@ -1,6 +1,10 @@
 package servicos;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Arrays;
 import java.util.List;
 
@@ -12,6 +16,9 @@ import com.mpatric.mp3agic.UnsupportedTagException;
 
 import domain.core.Song;
 import domain.core.SongMetaInfo;
+import util.metrics.Counter;
+import util.metrics.Histogram;
+import util.metrics.MetricsRegistry;
 
 /**
  * @author André Reis fc58192
@@ -21,15 +28,113 @@ import domain.core.SongMetaInfo;
  */
 public class SongCreator {
 
+	private static final Histogram CREATE_TIME = MetricsRegistry.getDefault()
+			.histogram("leitunes_song_create_seconds", "Time to create a song from its mp3 file");
+	private static final Counter FAILURES = MetricsRegistry.getDefault()
+			.counter("leitunes_song_create_failures_total", "Mp3 files whose song could not be created");
+
+	private final TagCache cache;
+	private final Id3TagReader tags = new Id3TagReader();
+
+	/**
+	 * SongCreator constructor that always reads the tags of the files
+	 */
+	public SongCreator() {
+		this(null);
+	}
+
+	/**
+	 * SongCreator constructor that looks for the tags of the files in the
+	 * given cache before reading them
+	 * @param cache the cache of tags, or null to always read the files
+	 */
+	public SongCreator(TagCache cache) {
+		this.cache = cache;
+	}
+
 	/**
 	 * Create a Song object using the wanted song's mp3 file if possible
 	 * @param filename the name of the mp3 file
 	 * @return a Song object based on the mp3 file given, if possible
 	 */
-    public Song create(String filename) {
+	public Song create(String filename) {
+		if (this.cache == null) {
+			long start = System.nanoTime();
+			return created(filename, read(filename), start);
+		}
+		Path file = Paths.get(filename);
+		try {
+			return create(file, Files.readAttributes(file, BasicFileAttributes.class));
+		} catch (IOException e) {
+			FAILURES.inc();
+			return null;
+		}
+	}
+
+	/**
+	 * Create a Song object using the wanted song's mp3 file if possible,
+	 * taking its tags from the cache if the file did not change since
+	 * they were read
+	 * @param file  the mp3 file
+	 * @param attrs the current attributes of the file
+	 * @return a Song object based on the mp3 file given, if possible
+	 */
+	public Song create(Path file, BasicFileAttributes attrs) {
+		long start = System.nanoTime();
+		String filename = file.toString();
+		SongMetaInfo info = this.cache == null ? null : this.cache.get(file, attrs);
+		if (info == null) {
+			info = read(filename);
+			if (info != null && this.cache != null) {
+				this.cache.put(file, attrs, info);
+			}
+		}
+		return created(filename, info, start);
+	}
 
-		Song song = null;
-        try {
+	/**
+	 * Creates the song of the given file with the given tags, recording the
+	 * time taken since the given instant
+	 * @param filename the name of the mp3 file
+	 * @param info     the tags of the file, or null if they could not be read
+	 * @param start    when the creation of the song started
+	 * @return the song, or null if info is null
+	 */
+	private static Song created(String filename, SongMetaInfo info, long start) {
+		CREATE_TIME.recordSince(start);
+		if (info == null) {
+			FAILURES.inc();
+			return null;
+		}
+		return new Song(filename, info);
+	}
+
+	/**
+	 * Reads the tags of the given mp3 file if possible, reading only the
+	 * tags and using mp3agic for the files whose tags are not understood
+	 * @param filename the name of the mp3 file
+	 * @return the tags of the file, if they could be read, null otherwise
+	 */
+	private SongMetaInfo read(String filename) {
+		try {
+			return this.tags.read(Paths.get(filename));
+		} catch (InvalidDataException | UnsupportedTagException e) {
+			return readMp3File(filename);
+		} catch (IOException e) {
+			//counted as a failure by created
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the tags of the given mp3 file with mp3agic if possible
+	 * @param filename the name of the mp3 file
+	 * @return the tags of the file, if they could be read, null otherwise
+	 */
+	private SongMetaInfo readMp3File(String filename) {
+
+		SongMetaInfo info = null;
+		try {
 			Mp3File mp3file = new Mp3File(filename);
 			if(mp3file.hasId3v1Tag()) {
 				ID3v1 id = mp3file.getId3v1Tag();
@@ -38,8 +143,7 @@ public class SongCreator {
 				String title = id.getTitle() == null ? "unknown" :  id.getTitle();
 				String album = id.getAlbum() == null ? "unknown" : id.getAlbum();
 				String genre = id.getGenreDescription() == null ? "unknown" : id.getGenreDescription();
-				SongMetaInfo info = new SongMetaInfo(title, album, genre, artists);
-				song = new Song(filename, info);
+				info = new SongMetaInfo(title, album, genre, artists);
 			} else if(mp3file.hasId3v2Tag()) {
 				ID3v2 id = mp3file.getId3v2Tag();
 				String a = id.getArtist();
@@ -47,8 +151,7 @@ public class SongCreator {
 				String title = id.getTitle() == null ? "unknown" :  id.getTitle();
 				String album = id.getAlbum() == null ? "unknown" : id.getAlbum();
 				String genre = id.getGenreDescription() == null ? "unknown" : id.getGenreDescription();
-				SongMetaInfo info = new SongMetaInfo(title, album, genre, artists);
-				song = new Song(filename, info);
+				info = new SongMetaInfo(title, album, genre, artists);
 
 			} else {
                 System.out.println("Impossibel to load song from " + filename);
@@ -58,9 +161,9 @@ public class SongCreator {
 			e.printStackTrace();
 		}
 
-		return song;
-        
-    }
+		return info;
+
+	}
 
 	/**
 	 * Creates a List of artists based on a string with all the artists
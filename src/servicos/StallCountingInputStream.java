@@ -0,0 +1,52 @@
+package servicos;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Stream that counts as a stall every read of the stream it wraps that
+ * takes longer than AudioSource.STALL_NANOS
+ */
+class StallCountingInputStream extends FilterInputStream {
+
+	private final LongAdder stalls;
+
+	/**
+	 * StallCountingInputStream constructor
+	 *
+	 * @param in     the stream whose reads are timed
+	 * @param stalls the counter of stalls
+	 */
+	StallCountingInputStream(InputStream in, LongAdder stalls) {
+		super(in);
+		this.stalls = stalls;
+	}
+
+	@Override
+	public int read() throws IOException {
+		long start = System.nanoTime();
+		int b = super.read();
+		count(start);
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		long start = System.nanoTime();
+		int n = super.read(b, off, len);
+		count(start);
+		return n;
+	}
+
+	private void count(long start) {
+		if (System.nanoTime() - start > AudioSource.STALL_NANOS) {
+			this.stalls.increment();
+		}
+	}
+
+}
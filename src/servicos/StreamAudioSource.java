@@ -0,0 +1,55 @@
+package servicos;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Source that reads the files through a buffered FileInputStream, as the
+ * player always did. Every time the buffer runs out the decoder waits
+ * for the disk, so a refill that takes longer than AudioSource.STALL_NANOS
+ * counts as a stall.
+ */
+public class StreamAudioSource implements AudioSource {
+
+	//size of the buffer of a BufferedInputStream by default
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	private final int bufferSize;
+	private final LongAdder stalls;
+
+	/**
+	 * StreamAudioSource constructor with the default buffer size
+	 */
+	public StreamAudioSource() {
+		this(DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * StreamAudioSource constructor
+	 *
+	 * @param bufferSize the size of the buffer of each stream
+	 * @requires bufferSize > 0
+	 */
+	public StreamAudioSource(int bufferSize) {
+		this.bufferSize = bufferSize;
+		this.stalls = new LongAdder();
+	}
+
+	@Override
+	public InputStream open(String filename) throws IOException {
+		return new BufferedInputStream(new StallCountingInputStream(new FileInputStream(filename), this.stalls),
+				this.bufferSize);
+	}
+
+	@Override
+	public long getStalls() {
+		return this.stalls.sum();
+	}
+
+}
@@ -0,0 +1,323 @@
+package servicos;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import domain.core.SongMetaInfo;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type remember the tags read from mp3 files, so files
+ * that did not change since their tags were read don't need to be opened
+ * again. An entry is only used while the file keeps the size and the
+ * modification time it had when it was read, which costs a single stat.
+ *
+ * The cache is kept in memory, can be used by several threads at the same
+ * time and is saved to and loaded from a file. When it grows past its
+ * maximum size, the entries of files that no longer exist are evicted
+ * first and then the ones that were used the longest time ago.
+ */
+public class TagCache {
+
+	//default maximum number of entries
+	public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+	//first bytes of every cache file ("LEIC")
+	private static final int MAGIC = 0x4C454943;
+	private static final int VERSION = 1;
+
+	/**
+	 * The tags of a file with the size and modification time it had
+	 * when they were read
+	 */
+	private static final class Entry {
+		private final long size;
+		private final long modified;
+		private final SongMetaInfo info;
+		private volatile long lastUsed;
+
+		private Entry(long size, long modified, SongMetaInfo info, long lastUsed) {
+			this.size = size;
+			this.modified = modified;
+			this.info = info;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	private final Path file;
+	private final int maxEntries;
+	private final Map<String, Entry> entries;
+	private final AtomicLong clock;
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder evictions;
+
+	/**
+	 * TagCache constructor with the default maximum number of entries
+	 *
+	 * @param file the file where the cache is saved
+	 * @requires file != null
+	 */
+	public TagCache(Path file) {
+		this(file, DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * TagCache constructor
+	 *
+	 * @param file       the file where the cache is saved
+	 * @param maxEntries the maximum number of entries
+	 * @requires file != null && maxEntries > 0
+	 */
+	public TagCache(Path file, int maxEntries) {
+		this.file = file;
+		this.maxEntries = maxEntries;
+		this.entries = new ConcurrentHashMap<>();
+		this.clock = new AtomicLong();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.evictions = new LongAdder();
+	}
+
+	/**
+	 * Returns the tags of the given file, if they were read while the file
+	 * had the given attributes
+	 *
+	 * @param song  the mp3 file
+	 * @param attrs the current attributes of the file
+	 * @requires song != null && attrs != null
+	 * @return the tags of the file or null if they are not in the cache
+	 *         or the file changed since they were read
+	 */
+	public SongMetaInfo get(Path song, BasicFileAttributes attrs) {
+		Entry entry = this.entries.get(keyOf(song));
+		if (entry == null || entry.size != attrs.size() || entry.modified != modifiedOf(attrs)) {
+			this.misses.increment();
+			return null;
+		}
+		entry.lastUsed = this.clock.incrementAndGet();
+		this.hits.increment();
+		return entry.info;
+	}
+
+	/**
+	 * Remembers the tags read from the given file while it had the given
+	 * attributes, evicting entries if the cache grows past its maximum size
+	 *
+	 * @param song  the mp3 file
+	 * @param attrs the attributes of the file when the tags were read
+	 * @param info  the tags read
+	 * @requires song != null && attrs != null && info != null
+	 */
+	public void put(Path song, BasicFileAttributes attrs, SongMetaInfo info) {
+		this.entries.put(keyOf(song), new Entry(attrs.size(), modifiedOf(attrs), info, this.clock.incrementAndGet()));
+		if (this.entries.size() > this.maxEntries) {
+			evict();
+		}
+	}
+
+	/**
+	 * Returns the number of entries in the cache
+	 *
+	 * @return the number of entries
+	 * @ensures \result >= 0
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Returns the number of lookups that found the tags of the file
+	 *
+	 * @return the number of hits
+	 * @ensures \result >= 0
+	 */
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups that did not find the tags of the file
+	 *
+	 * @return the number of misses
+	 * @ensures \result >= 0
+	 */
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * Returns the fraction of lookups that found the tags of the file
+	 *
+	 * @return the hit rate, or 0 if there were no lookups
+	 * @ensures 0 <= \result <= 1
+	 */
+	public double getHitRate() {
+		long h = getHits();
+		long total = h + getMisses();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	/**
+	 * Returns the number of entries evicted
+	 *
+	 * @return the number of evictions
+	 * @ensures \result >= 0
+	 */
+	public long getEvictions() {
+		return this.evictions.sum();
+	}
+
+	/**
+	 * Loads the entries saved in the file of the cache, if it exists
+	 *
+	 * @throws IOException if the file exists but is not a valid cache
+	 */
+	public void load() throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(this.file), 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Not a tag cache: " + this.file);
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String key = in.readUTF();
+				long size = in.readLong();
+				long modified = in.readLong();
+				String title = in.readUTF();
+				String album = in.readUTF();
+				String genre = in.readUTF();
+				String[] artists = new String[in.readInt()];
+				for (int k = 0; k < artists.length; k++) {
+					artists[k] = in.readUTF();
+				}
+				SongMetaInfo info = new SongMetaInfo(title, album, genre, Arrays.asList(artists));
+				this.entries.putIfAbsent(key, new Entry(size, modified, info, this.clock.incrementAndGet()));
+			}
+		} catch (NoSuchFileException e) {
+			//nothing was saved yet
+		} catch (EOFException e) {
+			throw new IOException("Truncated tag cache: " + this.file, e);
+		}
+		if (this.entries.size() > this.maxEntries) {
+			evict();
+		}
+	}
+
+	/**
+	 * Saves the entries of the cache to its file, replacing the old file
+	 * only once the new one is completely written
+	 *
+	 * @throws IOException if the file could not be written
+	 */
+	public void save() throws IOException {
+		List<Map.Entry<String, Entry>> saved = new ArrayList<>(this.entries.entrySet());
+		Path dir = this.file.toAbsolutePath().getParent();
+		Files.createDirectories(dir);
+		Path tmp = Files.createTempFile(dir, this.file.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(saved.size());
+				for (Map.Entry<String, Entry> e : saved) {
+					Entry entry = e.getValue();
+					SongMetaInfo info = entry.info;
+					out.writeUTF(e.getKey());
+					out.writeLong(entry.size);
+					out.writeLong(entry.modified);
+					out.writeUTF(info.titulo());
+					out.writeUTF(info.album());
+					out.writeUTF(info.genero());
+					out.writeInt(info.artistas().size());
+					for (String artist : info.artistas()) {
+						out.writeUTF(artist);
+					}
+				}
+				out.flush();
+				channel.force(true);
+			}
+			try {
+				Files.move(tmp, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * Brings the cache back to at most three quarters of its maximum size,
+	 * evicting the entries of files that no longer exist and then the
+	 * least recently used ones
+	 */
+	private synchronized void evict() {
+		if (this.entries.size() <= this.maxEntries) {
+			return;
+		}
+		int target = this.maxEntries - this.maxEntries / 4;
+		for (String key : new ArrayList<>(this.entries.keySet())) {
+			if (!Files.exists(Paths.get(key)) && this.entries.remove(key) != null) {
+				this.evictions.increment();
+			}
+		}
+		if (this.entries.size() > target) {
+			List<Map.Entry<String, Entry>> byUse = new ArrayList<>(this.entries.entrySet());
+			byUse.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+			for (int i = 0; i < byUse.size() && this.entries.size() > target; i++) {
+				if (this.entries.remove(byUse.get(i).getKey(), byUse.get(i).getValue())) {
+					this.evictions.increment();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the key of the given file, its real path, so the same file
+	 * reached through symbolic links has a single entry. Files whose real
+	 * path cannot be found use their absolute and normalized path
+	 */
+	private static String keyOf(Path song) {
+		try {
+			return song.toRealPath().toString();
+		} catch (IOException e) {
+			return song.toAbsolutePath().normalize().toString();
+		}
+	}
+
+	/**
+	 * Returns the modification time of the given attributes, in nanoseconds
+	 */
+	private static long modifiedOf(BasicFileAttributes attrs) {
+		return attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+	}
+
+}
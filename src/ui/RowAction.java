@@ -1,60 +1,261 @@
 package ui;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
 import org.eclipse.swt.widgets.TableItem;
 
 import domain.facade.ISong;
 
+/**
+ * Fills the virtual table with the songs of a tree item. The songs are
+ * kept in an indexed model and the table only asks for the rows it shows,
+ * through the SWT.SetData events given to fillItem, so showing a large
+ * library costs a copy of the references to its songs. Later changes to
+ * the songs are applied to the rows that changed, leaving the others
+ */
 abstract class RowAction {
-	
+
+	//maximum number of rows measured to pack the columns
+	private static final int PACK_SAMPLE = 64;
+	//space around the text of the cells and of the headers, in pixels
+	private static final int CELL_PADDING = 12;
+	private static final int HEADER_PADDING = 24;
+
 	private Table table;
 	private int pos;
+	private boolean numbered;
+	private List<ISong> rows;
+	//rows already filled by the table, the only ones that can be stale
+	private BitSet filled;
 	protected Object criteria;
-	
+
 	RowAction (Table table, Object criteria, int pos) {
+		this(table, criteria, pos, false);
+	}
+
+	RowAction (Table table, Object criteria, int pos, boolean numbered) {
 		this.table = table;
 		this.criteria = criteria;
 		this.pos = pos;
+		this.numbered = numbered;
+		this.rows = new ArrayList<>();
+		this.filled = new BitSet();
 	}
-	
+
+	/**
+	 * Shows the songs of this action in the table, without creating
+	 * the rows that are not visible
+	 */
 	void fillTable () {
-		table.removeAll();
-		fillData ();
+		showRows (loadRows ());
+	}
+
+	/**
+	 * Returns the songs shown by this action as they are now
+	 *
+	 * @return a new list with the songs, in the order they are shown
+	 */
+	List<ISong> loadRows () {
+		Iterable<ISong> songs = fillData ();
+		if (songs instanceof Collection<ISong> c) {
+			return new ArrayList<>(c);
+		}
+		List<ISong> loaded = new ArrayList<>();
+		for (ISong s : songs) {
+			loaded.add(s);
+		}
+		return loaded;
+	}
+
+	/**
+	 * Shows the given songs in place of the ones in the table
+	 *
+	 * @param songs the songs to show
+	 */
+	void showRows (List<ISong> songs) {
+		rows = songs;
+		filled = new BitSet();
+		table.clearAll();
+		table.setItemCount(rows.size());
 		packColumns ();
 	}
-	
-	abstract void fillData ();
-	
-	public int getPos () {
-		return pos;
+
+	/**
+	 * Adds the given songs after the ones in the table
+	 *
+	 * @param songs the songs to add
+	 */
+	void appendRows (List<ISong> songs) {
+		boolean first = rows.isEmpty();
+		rows.addAll(songs);
+		table.setItemCount(rows.size());
+		if (first) {
+			packColumns ();
+		}
+	}
+
+	/**
+	 * Returns the song in the given row
+	 *
+	 * @param index the position of the row
+	 * @return the song shown in the row
+	 * @requires 0 <= index < the number of rows
+	 */
+	ISong getRow (int index) {
+		return rows.get(index);
+	}
+
+	/**
+	 * Returns the songs in the table
+	 *
+	 * @return an unmodifiable view of the songs, in the order they are shown
+	 */
+	List<ISong> getRows () {
+		return Collections.unmodifiableList(rows);
+	}
+
+	/**
+	 * Shows the given songs, changing only the rows between the first and
+	 * the last row that differ from the ones in the table, and the rows
+	 * after them if they are numbered and moved. Songs are compared by
+	 * reference
+	 *
+	 * @param songs the songs to show
+	 */
+	void updateRows (List<ISong> songs) {
+		int oldSize = rows.size();
+		int newSize = songs.size();
+		int prefix = 0;
+		while (prefix < oldSize && prefix < newSize && rows.get(prefix) == songs.get(prefix)) {
+			prefix++;
+		}
+		int suffix = 0;
+		while (suffix < oldSize - prefix && suffix < newSize - prefix
+				&& rows.get(oldSize - 1 - suffix) == songs.get(newSize - 1 - suffix)) {
+			suffix++;
+		}
+		if (prefix == oldSize && prefix == newSize) {
+			return;
+		}
+		int oldMiddle = oldSize - prefix - suffix;
+		int newMiddle = newSize - prefix - suffix;
+		if (oldMiddle > newMiddle) {
+			table.remove(prefix + newMiddle, prefix + oldMiddle - 1);
+		} else if (suffix == 0) {
+			table.setItemCount(newSize);
+		} else {
+			for (int i = oldMiddle; i < newMiddle; i++) {
+				new TableItem (table, SWT.NONE, prefix + i);
+			}
+		}
+		boolean renumbered = numbered && oldMiddle != newMiddle;
+		int cleared = renumbered ? newSize - prefix : newMiddle;
+		if (cleared > 0) {
+			table.clear(prefix, prefix + cleared - 1);
+		}
+
+		BitSet moved = filled.get(0, prefix);
+		if (!renumbered) {
+			BitSet kept = filled.get(oldSize - suffix, oldSize);
+			for (int b = kept.nextSetBit(0); b >= 0; b = kept.nextSetBit(b + 1)) {
+				moved.set(newSize - suffix + b);
+			}
+		}
+		filled = moved;
+		rows = songs;
 	}
-	
-	void fillRow (ISong s, String n) {
-		TableItem item = new TableItem (table, SWT.NONE);
-		item.setText (0, n);		
-		addSongRow(s, item);
+
+	/**
+	 * Updates the rating and the play count of the rows already filled
+	 * with one of the given songs
+	 *
+	 * @param changed the songs whose rating or play count changed
+	 */
+	void updateCells (Set<ISong> changed) {
+		for (int i = filled.nextSetBit(0); i >= 0 && i < rows.size(); i = filled.nextSetBit(i + 1)) {
+			if (changed.contains(rows.get(i))) {
+				TableItem item = table.getItem(i);
+				item.setText (5, cellText (i, 5));
+				item.setText (6, cellText (i, 6));
+			}
+		}
 	}
-	
-	void fillRow (ISong s, int i) {
-		fillRow (s, i + "");
+
+	/**
+	 * Checks if the rows of this action can change with every event of the
+	 * library, as the songs of the playlists do, and not only when songs
+	 * are added to or removed from the library
+	 *
+	 * @return true if the rows are the songs of a playlist
+	 */
+	boolean showsPlaylist () {
+		return criteria != null;
 	}
-	
-	void fillRow (ISong s) {
-		fillRow (s, "");
+
+	/**
+	 * Returns the songs shown by this action
+	 *
+	 * @return the songs, in the order they are shown
+	 */
+	abstract Iterable<ISong> fillData ();
+
+	public int getPos () {
+		return pos;
 	}
 
 	/**
-	 * @param s
-	 * @param item
+	 * Fills the given row of the table, when it is about to be shown
+	 *
+	 * @param item  the row
+	 * @param index the position of the row in the table
 	 */
-	private void addSongRow(ISong s, TableItem item) {
-		item.setText (1, s.getSongTitle());
-		
+	void fillItem (TableItem item, int index) {
+		if (index < rows.size()) {
+			for (int c = 0; c < table.getColumnCount(); c++) {
+				item.setText (c, cellText (index, c));
+			}
+			filled.set(index);
+		}
+	}
+
+	/**
+	 * Returns the text of the given cell
+	 *
+	 * @param index  the position of the row
+	 * @param column the column
+	 * @return the text shown in the cell
+	 */
+	private String cellText (int index, int column) {
+		ISong s = rows.get(index);
+		switch (column) {
+			case 0:
+				return numbered ? (index + 1) + "" : "";
+			case 1:
+				return s.getSongTitle();
+			case 2:
+				return authorsText(s.getArtists());
+			case 3:
+				return s.getAlbum() == null ? "" : s.getAlbum();
+			case 4:
+				return s.getGenre() == null ? "" : s.getGenre();
+			case 5:
+				return s.getRating() + "";
+			default:
+				return s.getTimesPlayed() + "";
+		}
+	}
+
+	private static String authorsText (List<String> authors) {
 		String authorsStr = "";
-		List<String> authors = s.getArtists();
 		if (authors.size() == 1) {
 			authorsStr = authors.get(0);
 		} else if (authors.size() == 2) {
@@ -62,18 +263,31 @@ abstract class RowAction {
 		} else if (authors.size() > 2) {
 			authorsStr = authors.get(0) + "et al.";
 		}
-		item.setText (2, authorsStr);
-
-		item.setText (3, s.getAlbum() == null ? "" : s.getAlbum());
-		item.setText (4, s.getGenre() == null ? "" : s.getGenre());
-		item.setText (5, s.getRating() + "");		
-		item.setText (6, s.getTimesPlayed() + "");
+		return authorsStr;
 	}
-	
+
+	/**
+	 * Sets the width of each column to fit its header and the text of a
+	 * sample of the rows: the first ones, which are visible, and others
+	 * spread through the table
+	 */
 	private void packColumns () {
-		for (int i = 0; i < table.getColumnCount(); i++) {
-			table.getColumn (i).pack ();
-		}	
+		int n = rows.size();
+		int first = Math.min(n, PACK_SAMPLE / 2);
+		int step = Math.max(1, (n - first) / (PACK_SAMPLE - first));
+		GC gc = new GC (table);
+		try {
+			for (int c = 0; c < table.getColumnCount(); c++) {
+				TableColumn column = table.getColumn (c);
+				int width = gc.textExtent(column.getText()).x + HEADER_PADDING;
+				for (int i = 0; i < n; i = i < first - 1 ? i + 1 : i + step) {
+					width = Math.max(width, gc.textExtent(cellText(i, c)).x + CELL_PADDING);
+				}
+				column.setWidth (width);
+			}
+		} finally {
+			gc.dispose();
+		}
 	}
-	
-}
\ No newline at end of file
+
+}
@@ -0,0 +1,312 @@
+package ui;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.facade.ISong;
+
+/**
+ * Searches the library as the user types, on a background thread. A query
+ * only starts once the user stops typing for the debounce time, and every
+ * new query cancels the one before, waiting or running. The songs found are
+ * given to the results in pages, through the given executor (the event loop
+ * of the UI), and pages of stale queries are dropped there, so the results
+ * only ever show songs of the last query
+ */
+class SongSearch implements AutoCloseable {
+
+	/**
+	 * Receives the songs found by the queries, in the thread of the
+	 * executor of the search
+	 */
+	interface Results {
+
+		/**
+		 * A new query started
+		 *
+		 * @param query the text of the query
+		 */
+		void started (String query);
+
+		/**
+		 * More songs were found by the current query
+		 *
+		 * @param songs the songs found, in library order
+		 */
+		void found (List<ISong> songs);
+
+		/**
+		 * The current query went through the whole library
+		 *
+		 * @param total the number of songs found
+		 */
+		void finished (int total);
+	}
+
+	//songs checked between checks of cancellation
+	private static final int CHECK_EVERY = 1024;
+	//longest time songs found wait to be given to the results
+	private static final long PAGE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final MusicLibrary library;
+	private final Executor deliver;
+	private final Results results;
+	private final long debounceMillis;
+	private final int pageSize;
+	private final ScheduledExecutorService searcher;
+	private final AtomicLong generation;
+	private Future<?> current;
+
+	/**
+	 * SongSearch constructor
+	 *
+	 * @param library        the library searched
+	 * @param deliver        where the results are given the songs found
+	 * @param results        what receives the songs found
+	 * @param debounceMillis the time without new queries before one starts
+	 * @param pageSize       the number of songs given to the results at once
+	 * @requires library != null && deliver != null && results != null &&
+	 *           debounceMillis >= 0 && pageSize > 0
+	 */
+	SongSearch (MusicLibrary library, Executor deliver, Results results, long debounceMillis, int pageSize) {
+		this.library = library;
+		this.deliver = deliver;
+		this.results = results;
+		this.debounceMillis = debounceMillis;
+		this.pageSize = pageSize;
+		this.searcher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "SongSearch");
+			t.setDaemon(true);
+			return t;
+		});
+		this.generation = new AtomicLong();
+	}
+
+	/**
+	 * Searches the library for the songs with some data containing the given
+	 * text, ignoring case, once the debounce time passes without another
+	 * query. The text is used as a regular expression if it is a valid one
+	 * and as plain text otherwise. Expressions that backtrack for too long
+	 * are stopped by the next query, like any other
+	 *
+	 * @param text the text to search for
+	 * @requires text != null
+	 */
+	synchronized void query (String text) {
+		long gen = cancel();
+		this.current = this.searcher.schedule(() -> run(gen, text), this.debounceMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Cancels the current query, if any, so its songs are not given to
+	 * the results anymore
+	 *
+	 * @return the generation of the next query
+	 */
+	synchronized long cancel () {
+		if (this.current != null) {
+			this.current.cancel(true);
+			this.current = null;
+		}
+		return this.generation.incrementAndGet();
+	}
+
+	@Override
+	public void close () {
+		cancel();
+		this.searcher.shutdownNow();
+	}
+
+	/**
+	 * Returns the pattern found in the data of the songs found with the
+	 * given text
+	 *
+	 * @param text the text searched for
+	 * @return a pattern to find the text with, ignoring case
+	 */
+	static Pattern patternOf (String text) {
+		String flags = "(?iu)";
+		try {
+			return Pattern.compile(flags + "(?:" + text + ")");
+		} catch (PatternSyntaxException e) {
+			return Pattern.compile(flags + Pattern.quote(text));
+		}
+	}
+
+	/**
+	 * Searches a copy of the songs of the library, stopping as soon as
+	 * the query is cancelled
+	 */
+	private void run (long gen, String text) {
+		List<Song> songs;
+		synchronized (this.library) {
+			Iterable<ISong> all = this.library.getSongs();
+			songs = new ArrayList<>(all instanceof Collection<?> c ? c.size() : 16);
+			for (ISong s : all) {
+				songs.add((Song) s);
+			}
+		}
+		Matcher matcher = patternOf(text).matcher("");
+		CancellableText data = new CancellableText(() -> this.generation.get() != gen);
+		give(gen, () -> this.results.started(text));
+
+		List<ISong> page = new ArrayList<>();
+		long pageStart = System.nanoTime();
+		int total = 0;
+		try {
+			for (int i = 0; i < songs.size(); i++) {
+				if (i % CHECK_EVERY == 0 && data.cancelled()) {
+					return;
+				}
+				Song s = songs.get(i);
+				if (contains(s, matcher, data)) {
+					page.add(s);
+					total++;
+				}
+				if (page.size() >= this.pageSize
+						|| (!page.isEmpty() && System.nanoTime() - pageStart >= PAGE_NANOS)) {
+					List<ISong> found = page;
+					give(gen, () -> this.results.found(found));
+					page = new ArrayList<>();
+					pageStart = System.nanoTime();
+				}
+			}
+		} catch (CancellationException e) {
+			//the expression was stopped by the next query
+			return;
+		}
+		if (!page.isEmpty()) {
+			List<ISong> found = page;
+			give(gen, () -> this.results.found(found));
+		}
+		int count = total;
+		give(gen, () -> this.results.finished(count));
+	}
+
+	/**
+	 * Checks if the pattern of the given matcher is found in some data of
+	 * the given song, reading the data through the given text
+	 */
+	private static boolean contains (ISong song, Matcher matcher, CancellableText data) {
+		if (found(song.getSongTitle(), matcher, data) || found(song.getGenre(), matcher, data)
+				|| found(song.getAlbum(), matcher, data)) {
+			return true;
+		}
+		for (String artist : song.getArtists()) {
+			if (found(artist, matcher, data)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the pattern of the given matcher is found in the given
+	 * data of a song, possibly null
+	 */
+	private static boolean found (String field, Matcher matcher, CancellableText data) {
+		return field != null && matcher.reset(data.of(field)).find();
+	}
+
+	/**
+	 * Text given to the matcher that stops the match, with a
+	 * CancellationException, once the query is cancelled. Matching a
+	 * regular expression can take exponential time and does not check
+	 * interruptions by itself, but it keeps reading the text
+	 */
+	static final class CancellableText implements CharSequence {
+
+		//characters read between checks of cancellation
+		private static final int CHECK_EVERY_CHARS = 1 << 14;
+
+		private final BooleanSupplier stale;
+		private String text;
+		private int reads;
+
+		/**
+		 * CancellableText constructor
+		 *
+		 * @param stale tells if the query was replaced by another
+		 */
+		CancellableText (BooleanSupplier stale) {
+			this.stale = stale;
+			this.text = "";
+		}
+
+		/**
+		 * Makes this the given text
+		 *
+		 * @param text the text
+		 * @return this
+		 */
+		CancellableText of (String text) {
+			this.text = text;
+			return this;
+		}
+
+		/**
+		 * Checks if the query was cancelled
+		 *
+		 * @return true if the thread was interrupted or the query was
+		 *         replaced by another
+		 */
+		boolean cancelled () {
+			return Thread.currentThread().isInterrupted() || this.stale.getAsBoolean();
+		}
+
+		@Override
+		public char charAt (int index) {
+			if (++this.reads >= CHECK_EVERY_CHARS) {
+				this.reads = 0;
+				if (cancelled()) {
+					throw new CancellationException();
+				}
+			}
+			return this.text.charAt(index);
+		}
+
+		@Override
+		public int length () {
+			return this.text.length();
+		}
+
+		@Override
+		public CharSequence subSequence (int start, int end) {
+			return this.text.subSequence(start, end);
+		}
+
+		@Override
+		public String toString () {
+			return this.text;
+		}
+	}
+
+	/**
+	 * Gives something to the results, unless the query of the given
+	 * generation was cancelled by then
+	 */
+	private void give (long gen, Runnable r) {
+		if (this.generation.get() == gen) {
+			this.deliver.execute(() -> {
+				if (this.generation.get() == gen) {
+					r.run();
+				}
+			});
+		}
+	}
+
+}
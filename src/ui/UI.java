@@ -1,12 +1,20 @@
 package ui;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
@@ -20,10 +28,19 @@ import org.eclipse.swt.widgets.Sash;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.Table;
 import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
 import org.eclipse.swt.widgets.Tree;
 import org.eclipse.swt.widgets.TreeColumn;
 import org.eclipse.swt.widgets.TreeItem;
 
+import domain.core.MusicLibrary;
+import domain.core.RecencyIndex;
+import domain.core.SongAddedLibraryEvent;
+import domain.core.SongLibraryEvent;
+import domain.core.SongPlayedLibraryEvent;
+import domain.core.SongRatedLibraryEvent;
+import domain.core.SongsAddedLibraryEvent;
 import domain.facade.ISong;
 import domain.facade.MusicLibraryController;
 import domain.facade.PlaylistListController;
@@ -53,11 +70,40 @@ public class UI {
 	 */
 	private Map<TreeItem, RowAction> selections = new HashMap<>();
 
+	/**
+	 * Elemento cujas musicas estao na tabela
+	 */
+	private RowAction shown;
+
+	/**
+	 * Caixa de pesquisa (por cima da tabela) e as musicas encontradas
+	 */
+	private Text searchBox;
+	private SongSearch search;
+	private RowAction searchResults;
+	private boolean clearingSearch;
+
+	/**
+	 * Elemento com as musicas da biblioteca
+	 */
+	private RowAction librarySongs;
+
 	private MusicLibraryController songsLibraryController;
 	private PlaylistListController playlistsController;
 
 	private boolean selectedPlaylist;
 
+	/**
+	 * Intervalo minimo entre duas atualizacoes da tabela (uma por frame)
+	 */
+	private static final int FRAME_MILLIS = 16;
+
+	/**
+	 * Tempo sem escrever antes de pesquisar e musicas mostradas de cada vez
+	 */
+	private static final int SEARCH_DEBOUNCE_MILLIS = 250;
+	private static final int SEARCH_PAGE = 500;
+
 	public UI(PlaylistListController playlistListController,
 			MusicLibraryController musicLibraryController) {
 		this.playlistsController = playlistListController;
@@ -76,8 +122,7 @@ public class UI {
 			if (selectedPlaylist) {
 				playlistsController.selectSong(position);
 				playlistsController.play();
-			} else {
-				songsLibraryController.selectSong(position);
+			} else if (selectLibrarySong(position)) {
 				songsLibraryController.play();
 			}
 		}
@@ -89,11 +134,47 @@ public class UI {
 				playlistsController.selectSong(position);
 					}
 			else {
-				songsLibraryController.selectSong(position);
+				selectLibrarySong(position);
 				}
 		}
 	}
 
+	/**
+	 * Seleciona na biblioteca a musica da linha dada da tabela, que
+	 * nao e a posicao da musica na biblioteca se a tabela mostrar
+	 * o resultado de uma pesquisa
+	 *
+	 * @param position a linha da tabela
+	 * @return false se a linha e de uma musica que ja nao esta na biblioteca
+	 */
+	private boolean selectLibrarySong(int position) {
+		if (shown == searchResults) {
+			return 0 <= position && position < table.getItemCount()
+					&& songsLibraryController.selectSong(searchResults.getRow(position));
+		}
+		songsLibraryController.selectSong(position);
+		return true;
+	}
+
+	/**
+	 * Devolve as musicas dadas que ainda estao na biblioteca
+	 *
+	 * @param songs as musicas
+	 * @return uma nova lista com as musicas da biblioteca, pela mesma ordem
+	 */
+	private List<ISong> inLibrary(List<ISong> songs) {
+		MusicLibrary library = songsLibraryController.getLibrary();
+		List<ISong> kept = new ArrayList<>(songs.size());
+		synchronized (library) {
+			for (ISong s : songs) {
+				if (library.getSequence(s) != RecencyIndex.NO_SEQUENCE) {
+					kept.add(s);
+				}
+			}
+		}
+		return kept;
+	}
+
 	/**
 	 * @author fmartins
 	 *
@@ -102,6 +183,12 @@ public class UI {
 	private class TreeSelectionController implements Listener {
 		@Override
 		public void handleEvent(Event e) {
+			if (!searchBox.getText().isEmpty()) {
+				clearingSearch = true;
+				searchBox.setText("");
+				clearingSearch = false;
+				search.cancel();
+			}
 			for (TreeItem item : tree.getSelection()) {
 				RowAction a = selections.get(item);
 				if (a.getPos() != 0) {
@@ -109,11 +196,194 @@ public class UI {
 					selectedPlaylist = true;
 				} else
 					selectedPlaylist = false;
+				shown = a;
 				a.fillTable();
 			}
 		}
 	}
 
+	/**
+	 * Acompanha as alteracoes da biblioteca e do player, aplicando-as
+	 * as linhas da tabela que mudaram. As alteracoes chegam de outras
+	 * threads e sao juntadas, atualizando a tabela no maximo uma vez
+	 * por frame.
+	 */
+	private class LibraryChangesController
+			implements util.observer.Listener<SongLibraryEvent>, PropertyChangeListener {
+
+		private final Display display;
+		private final Set<ISong> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+		private boolean structural;
+		private boolean added;
+		private boolean playing;
+		private boolean scheduled;
+		private long lastRefresh;
+
+		LibraryChangesController(Display display) {
+			this.display = display;
+		}
+
+		@Override
+		public void processEvent(SongLibraryEvent e) {
+			synchronized (this) {
+				if (e instanceof SongRatedLibraryEvent || e instanceof SongPlayedLibraryEvent) {
+					changed.add(e.getSong());
+				} else {
+					structural = true;
+					added |= e instanceof SongAddedLibraryEvent || e instanceof SongsAddedLibraryEvent;
+				}
+			}
+			schedule();
+		}
+
+		@Override
+		public void propertyChange(PropertyChangeEvent evt) {
+			synchronized (this) {
+				playing = true;
+			}
+			schedule();
+		}
+
+		/**
+		 * Pede uma atualizacao da tabela, se nao houver uma pendente
+		 */
+		private void schedule() {
+			synchronized (this) {
+				if (scheduled) {
+					return;
+				}
+				scheduled = true;
+			}
+			if (!display.isDisposed()) {
+				display.asyncExec(this::refresh);
+			}
+		}
+
+		/**
+		 * Aplica as alteracoes pendentes a tabela, ou adia-as ate ao
+		 * proximo frame se a ultima atualizacao foi ha menos de um frame
+		 */
+		private void refresh() {
+			if (table.isDisposed()) {
+				return;
+			}
+			long wait = lastRefresh + FRAME_MILLIS - System.currentTimeMillis();
+			if (wait > 0) {
+				display.timerExec((int) wait, this::refresh);
+				return;
+			}
+			Set<ISong> songs;
+			boolean rows;
+			boolean newSongs;
+			boolean player;
+			synchronized (this) {
+				songs = Collections.newSetFromMap(new IdentityHashMap<>());
+				songs.addAll(changed);
+				changed.clear();
+				rows = structural;
+				newSongs = added;
+				player = playing;
+				structural = false;
+				added = false;
+				playing = false;
+				scheduled = false;
+			}
+			lastRefresh = System.currentTimeMillis();
+			RowAction a = shown;
+			if (a == null) {
+				return;
+			}
+			if (newSongs && a == searchResults) {
+				// as musicas novas podem ser encontradas pela pesquisa
+				search.query(searchBox.getText());
+			}
+			if (rows || (a.showsPlaylist() && !songs.isEmpty())) {
+				List<ISong> loaded;
+				synchronized (songsLibraryController.getLibrary()) {
+					loaded = a.loadRows();
+				}
+				a.updateRows(loaded);
+			}
+			if (!songs.isEmpty()) {
+				a.updateCells(songs);
+			}
+			if (player && a != searchResults) {
+				selectPlaying();
+			}
+		}
+
+		/**
+		 * Seleciona na tabela a musica selecionada no que esta a tocar,
+		 * que o player muda ao avancar para a musica seguinte
+		 */
+		private void selectPlaying() {
+			int position = -1;
+			if (selectedPlaylist) {
+				if (playlistsController.someSongSelected()) {
+					position = playlistsController.getSelectedPlaylist().getIndexSelected();
+				}
+			} else if (songsLibraryController.getSelectedSong().isPresent()) {
+				position = songsLibraryController.getLibrary().getIndexSelected();
+			}
+			if (0 <= position && position < table.getItemCount()) {
+				table.setSelection(position);
+			}
+		}
+	}
+
+	/**
+	 * Pesquisa a biblioteca enquanto se escreve na caixa de pesquisa,
+	 * mostrando as musicas encontradas a medida que chegam. Sem texto,
+	 * a tabela volta a mostrar a biblioteca.
+	 */
+	private class SearchController implements ModifyListener, SongSearch.Results {
+		@Override
+		public void modifyText(ModifyEvent e) {
+			if (clearingSearch) {
+				return;
+			}
+			String text = searchBox.getText();
+			if (text.isEmpty()) {
+				search.cancel();
+				selectedPlaylist = false;
+				shown = librarySongs;
+				librarySongs.fillTable();
+			} else {
+				search.query(text);
+			}
+		}
+
+		@Override
+		public void started(String query) {
+			selectedPlaylist = false;
+			shown = searchResults;
+			searchResults.showRows(new ArrayList<>());
+		}
+
+		@Override
+		public void found(List<ISong> songs) {
+			// deixa de fora as removidas depois de a pesquisa comecar
+			searchResults.appendRows(inLibrary(songs));
+		}
+
+		@Override
+		public void finished(int total) {
+			// as musicas ja estao todas na tabela
+		}
+	}
+
+	/**
+	 * Preenche as linhas da tabela virtual quando ficam visiveis.
+	 */
+	private class TableDataController implements Listener {
+		@Override
+		public void handleEvent(Event e) {
+			if (shown != null) {
+				shown.fillItem((TableItem) e.item, e.index);
+			}
+		}
+	}
+
 	/**
 	 * @author fmartins
 	 *
@@ -146,12 +416,21 @@ public class UI {
 		// cria os elementos da janela
 		createGUIControls(shell);
 
+		// acompanha as alteracoes da biblioteca e do player
+		LibraryChangesController changes = new LibraryChangesController(display);
+		MusicLibrary library = songsLibraryController.getLibrary();
+		library.registerListener(changes);
+		library.getPlayer().addListener(changes);
+
 		// despacha os eventos
 		shell.open();
 		while (!shell.isDisposed()) {
 			if (!display.readAndDispatch())
 				display.sleep();
 		}
+		search.close();
+		library.unregisterListener(changes);
+		library.getPlayer().removeListener(changes);
 		display.dispose();
 
 		/*		// play the selected music from the library
@@ -183,11 +462,11 @@ public class UI {
 		// Object filling the table with the music library
 		RowAction fillSongsLibrary = new RowAction (table, null, 0) {
 			@Override
-			void fillData() {
-				for (ISong s : songsLibraryController.getMatches(".*")) 
-					fillRow (s);
+			Iterable<ISong> fillData() {
+				return songsLibraryController.getSongs();
 			}
 		};
+		librarySongs = fillSongsLibrary;
 
 		// library
 		TreeItem root = new TreeItem(tree, 0);
@@ -225,14 +504,10 @@ public class UI {
 			String value = playlist.getName();
 			TreeItem tItem = new TreeItem(playlist instanceof SmartPlaylist ? smartPlaylists : playlists , 0);
 			tItem.setText(value);
-			selections.put(tItem, new RowAction (table, playlist, i) {
+			selections.put(tItem, new RowAction (table, playlist, i, true) {
 				@Override
-				void fillData() {
-					int j = 1;
-					for (Iterator<ISong> it = ((AbsPlaylist) criteria).iterator(); it.hasNext(); j++) {
-						ISong s = it.next();
-						fillRow (s, j);
-					}
+				Iterable<ISong> fillData() {
+					return (AbsPlaylist) criteria;
 				}
 			});
 		}		
@@ -267,13 +542,31 @@ public class UI {
 		data.right = new FormAttachment(sash, 0); // liga a cola
 		tree.setLayoutData(data);
 
+		// a caixa de pesquisa
+		SearchController searchController = new SearchController();
+		Display display = shell.getDisplay();
+		searchBox = new Text (shell, SWT.SEARCH | SWT.ICON_SEARCH | SWT.ICON_CANCEL);
+		searchBox.setMessage("Search");
+		searchBox.addModifyListener(searchController);
+		search = new SongSearch(songsLibraryController.getLibrary(), r -> {
+			if (!display.isDisposed()) {
+				display.asyncExec(r);
+			}
+		}, searchController, SEARCH_DEBOUNCE_MILLIS, SEARCH_PAGE);
+		data = new FormData();
+		data.top = new FormAttachment(0, 0);      // liga ao topo da janela
+		data.left = new FormAttachment(sash, 0);  // liga a cola
+		data.right = new FormAttachment(100, 0);  // liga ao lado direito da janela
+		searchBox.setLayoutData(data);
+
 		// a lista das musicas
 		table = new Table (shell, SWT.BORDER | SWT.FULL_SELECTION | SWT.VIRTUAL);
 		table.addSelectionListener(new TableSelectionController ());
+		table.addListener(SWT.SetData, new TableDataController ());
 		table.setLinesVisible (true);
 		table.setHeaderVisible (true);
 		data = new FormData();
-		data.top = new FormAttachment(0, 0);      // liga do topo da janela
+		data.top = new FormAttachment(searchBox, 0); // liga a caixa de pesquisa
 		data.bottom = new FormAttachment(100, 0); // liga ao fundo da janela
 		data.left = new FormAttachment(sash, 0);  // liga a cola
 		data.right = new FormAttachment(100, 0);  // liga ao lado direito da janela
@@ -285,6 +578,13 @@ public class UI {
 			tableColumn.setText (titles [i]);
 		}	
 
+		searchResults = new RowAction (table, null, 0) {
+			@Override
+			Iterable<ISong> fillData() {
+				return inLibrary(getRows());
+			}
+		};
+
 		// preenche a arvore
 		TreeColumn column = new TreeColumn(tree, SWT.LEAD);
 		column.setText("Layers");
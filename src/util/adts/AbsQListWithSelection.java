@@ -1,5 +1,6 @@
 package util.adts;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -10,15 +11,18 @@ import java.util.List;
  */
 public abstract class AbsQListWithSelection<E> implements QListWithSelection<E> {
 
+    //index used when there is no selected element
+    private static final int NONE = -1;
+
     private List<E> list;
-    private E selected;
+    private int selected;
 
     /**
      * Constructor that creates a list that can have 0 or 1 selected elements in it
      */
     protected AbsQListWithSelection() {
         this.list = createList();
-        this.selected = null;
+        this.selected = NONE;
     }
 
     /**
@@ -39,11 +43,11 @@ public abstract class AbsQListWithSelection<E> implements QListWithSelection<E>
      * Method that selects the element at a given index
      * @param i index of new selected element
      * @requires 0 <= i < size()
-     * @ensures this.selected = get(i)
+     * @ensures getSelected() == get(i) && getIndexSelected() == i
      */
     @Override
     public void select(int i) {
-        this.selected = list.get(i);
+        this.selected = i;
     }
 
     /**
@@ -51,12 +55,12 @@ public abstract class AbsQListWithSelection<E> implements QListWithSelection<E>
      * and selects it
 	 *
 	 * @param e the element to be added
-     * @ensures e == this.selected
+     * @ensures e == getSelected() && getIndexSelected() == size() - 1
 	 */
     @Override
     public void add(E e) {
         this.list.add(e);
-        this.selected = e;
+        this.selected = this.list.size() - 1;
     }
 
     /**
@@ -69,19 +73,19 @@ public abstract class AbsQListWithSelection<E> implements QListWithSelection<E>
 
     @Override
     public boolean someSelected() {
-        return (this.selected != null);
+        return (this.selected != NONE);
     }
 
     /**
      * Returns the index of the selected element
      *
-     * @requires someSelected()
-     * @return index of the selected element
-     * @ensures  0 <= \return < size()
+     * @return index of the selected element or -1 if
+     *         there is no element selected
+     * @ensures  someSelected() ==> 0 <= \return < size()
      */
     @Override
     public int getIndexSelected() {
-        return this.list.indexOf(this.selected);
+        return this.selected;
     }
 
     /**
@@ -92,11 +96,10 @@ public abstract class AbsQListWithSelection<E> implements QListWithSelection<E>
     @Override
     public void next() {
         if(someSelected()) {
-            int i = getIndexSelected();
-            if(i < this.list.size()-1) {
-                this.selected = list.get(i+1);
+            if(this.selected < this.list.size()-1) {
+                this.selected++;
             } else {
-                this.selected = null;
+                this.selected = NONE;
             }
 
         }
@@ -111,11 +114,10 @@ public abstract class AbsQListWithSelection<E> implements QListWithSelection<E>
     @Override
     public void previous() {
         if(someSelected()) {
-            int i = getIndexSelected();
-		    if(i > 0){
-                this.selected = list.get(i-1);
+		    if(this.selected > 0){
+                this.selected--;
 		    } else {
-			    this.selected = null;
+			    this.selected = NONE;
 		    }
         }
 
@@ -130,9 +132,55 @@ public abstract class AbsQListWithSelection<E> implements QListWithSelection<E>
     public void remove() {
         if(someSelected()) {
             this.list.remove(this.selected);
-            this.selected = null;
+            this.selected = NONE;
+        }
+
+    }
+
+    /**
+     * Moves the element at position i to position j, rotating only
+     * the elements between them. The selection stays on the same element
+     *
+     * @param i the current position of the element to move
+     * @param j the position where the element is going to be
+     * @requires 0 <= i < size() && 0 <= j < size()
+     * @ensures get(j) == \old(get(i)) && size() == \old(size())
+     * @ensures \old(someSelected()) ==> getSelected() == \old(getSelected())
+     */
+    @Override
+    public void moveTo(int i, int j) {
+        if(i < j) {
+            Collections.rotate(this.list.subList(i, j + 1), -1);
+        } else if(j < i) {
+            Collections.rotate(this.list.subList(j, i + 1), 1);
         }
 
+        if(this.selected == i) {
+            this.selected = j;
+        } else if(i < this.selected && this.selected <= j) {
+            this.selected--;
+        } else if(j <= this.selected && this.selected < i) {
+            this.selected++;
+        }
+    }
+
+    /**
+     * Inserts the element at position i, shifting the elements from
+     * position i on by one position. The selection stays on the same
+     * element
+     *
+     * @param i the position where the element is inserted
+     * @param e the element to insert
+     * @requires 0 <= i <= size()
+     * @ensures get(i) == e && size() == \old(size()) + 1
+     * @ensures \old(someSelected()) ==> getSelected() == \old(getSelected())
+     */
+    @Override
+    public void insert(int i, E e) {
+        this.list.add(i, e);
+        if(someSelected() && this.selected >= i) {
+            this.selected++;
+        }
     }
 
     /**
@@ -144,7 +192,7 @@ public abstract class AbsQListWithSelection<E> implements QListWithSelection<E>
      */
     @Override
     public E getSelected() {
-        return this.selected;
+        return someSelected() ? this.list.get(this.selected) : null;
     }
 
     /**
@@ -199,7 +247,7 @@ public abstract class AbsQListWithSelection<E> implements QListWithSelection<E>
     /**
      * Method that checks if a given object is equal to this one
      * Two AbsQListWithSelection are equal if they have the same
-     * List and the same song selected
+     * List and the same position selected
      *
      * @param other object to check
      * @return if other is equal to this
@@ -219,7 +267,7 @@ public abstract class AbsQListWithSelection<E> implements QListWithSelection<E>
 
         AbsQListWithSelection<?> list = (AbsQListWithSelection<?>) other;
 
-        return this.getSelected() == list.getSelected() &&
+        return this.getIndexSelected() == list.getIndexSelected() &&
                this.getList().equals(list.getList());
 
     }
@@ -0,0 +1,240 @@
+package util.adts;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type represent lists of distinct elements kept in the
+ * order they were added. Each element takes the next slot of an array and
+ * a Fenwick tree counts the slots in use, so adding at the end, removing
+ * at any position, getting the element at a position and finding the
+ * position of an element all take logarithmic time. Elements are
+ * identified by reference.
+ *
+ * @param <E> type of the elements of the list
+ */
+public class FenwickList<E> extends AbstractList<E> {
+
+	//capacity of the array of an empty list, must be a power of two
+	private static final int INITIAL_CAPACITY = 8;
+
+	private Object[] slots;
+	//tree[k] counts the slots in use in ]k - lowbit(k), k], 1-based
+	private int[] tree;
+	private Map<Object, Integer> slotOf;
+	private int used;
+	private int size;
+
+	/**
+	 * FenwickList constructor
+	 */
+	public FenwickList() {
+		this.slots = new Object[INITIAL_CAPACITY];
+		this.tree = new int[INITIAL_CAPACITY + 1];
+		this.slotOf = new IdentityHashMap<>();
+		this.used = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the number of elements in the list
+	 *
+	 * @return the number of elements in the list
+	 * @ensures \result >= 0
+	 */
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the element at position i
+	 *
+	 * @param i the position of the element to return
+	 * @requires 0 <= i < size()
+	 * @return the element at position i
+	 */
+	@Override
+	public E get(int i) {
+		checkIndex(i, this.size);
+		return elementAt(slotAt(i));
+	}
+
+	/**
+	 * Returns the position of the given element, compared by reference
+	 *
+	 * @param e the element to look for
+	 * @return the position of e or -1 if it is not in the list
+	 * @ensures \result == -1 || get(\result) == e
+	 */
+	public int positionOf(Object e) {
+		Integer slot = this.slotOf.get(e);
+		return slot == null ? -1 : count(slot + 1) - 1;
+	}
+
+	/**
+	 * Checks if the given element is in the list, compared by reference
+	 *
+	 * @param e the element to look for
+	 * @return true if e is in the list, false otherwise
+	 */
+	@Override
+	public boolean contains(Object e) {
+		return this.slotOf.containsKey(e);
+	}
+
+	/**
+	 * Inserts the element at position i, which must be the end of the list
+	 *
+	 * @param i the position where the element is inserted
+	 * @param e the element to insert
+	 * @requires i == size() && !contains(e)
+	 * @throws UnsupportedOperationException if i is not the end of the list
+	 * @throws IllegalArgumentException      if e is already in the list
+	 * @ensures get(i) == e && size() == \old(size()) + 1
+	 */
+	@Override
+	public void add(int i, E e) {
+		checkIndex(i, this.size + 1);
+		if (i != this.size) {
+			throw new UnsupportedOperationException("Elements can only be added at the end");
+		}
+		if (this.slotOf.containsKey(e)) {
+			throw new IllegalArgumentException("Element already in the list");
+		}
+		if (this.used == this.slots.length) {
+			//compacting is enough while at most half the slots are in use
+			rebuild(this.size * 2 <= this.used ? this.slots.length : this.slots.length * 2);
+		}
+		int slot = this.used++;
+		this.slots[slot] = e;
+		this.slotOf.put(e, slot);
+		update(slot, 1);
+		this.size++;
+		this.modCount++;
+	}
+
+	/**
+	 * Removes the element at position i, leaving its slot empty
+	 *
+	 * @param i the position of the element to remove
+	 * @requires 0 <= i < size()
+	 * @return the element removed
+	 * @ensures size() == \old(size()) - 1
+	 */
+	@Override
+	public E remove(int i) {
+		checkIndex(i, this.size);
+		int slot = slotAt(i);
+		E old = elementAt(slot);
+		this.slots[slot] = null;
+		this.slotOf.remove(old);
+		update(slot, -1);
+		this.size--;
+		this.modCount++;
+		return old;
+	}
+
+	/**
+	 * Removes all the elements of the list
+	 *
+	 * @ensures size() == 0
+	 */
+	@Override
+	public void clear() {
+		Arrays.fill(this.slots, 0, this.used, null);
+		Arrays.fill(this.tree, 0);
+		this.slotOf.clear();
+		this.used = 0;
+		this.size = 0;
+		this.modCount++;
+	}
+
+	/**
+	 * Moves the elements to the first slots of an array of the given
+	 * capacity and builds the tree again
+	 *
+	 * @param capacity the new capacity, a power of two
+	 */
+	private void rebuild(int capacity) {
+		Object[] moved = new Object[capacity];
+		int k = 0;
+		for (int slot = 0; slot < this.used; slot++) {
+			if (this.slots[slot] != null) {
+				moved[k] = this.slots[slot];
+				this.slotOf.put(moved[k], k);
+				k++;
+			}
+		}
+		this.slots = moved;
+		this.used = k;
+		this.tree = new int[capacity + 1];
+		for (int i = 1; i <= capacity; i++) {
+			this.tree[i] += i <= k ? 1 : 0;
+			int parent = i + (i & -i);
+			if (parent <= capacity) {
+				this.tree[parent] += this.tree[i];
+			}
+		}
+	}
+
+	/**
+	 * Adds delta to the count of the given slot
+	 */
+	private void update(int slot, int delta) {
+		for (int i = slot + 1; i < this.tree.length; i += i & -i) {
+			this.tree[i] += delta;
+		}
+	}
+
+	/**
+	 * Returns the number of slots in use among the first n slots
+	 */
+	private int count(int n) {
+		int total = 0;
+		for (int i = n; i > 0; i -= i & -i) {
+			total += this.tree[i];
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the slot of the element at position i, descending the tree
+	 * to the first slot preceded by i slots in use
+	 */
+	private int slotAt(int i) {
+		int pos = 0;
+		int remaining = i + 1;
+		for (int step = Integer.highestOneBit(this.tree.length - 1); step > 0; step >>= 1) {
+			int next = pos + step;
+			if (next < this.tree.length && this.tree[next] < remaining) {
+				pos = next;
+				remaining -= this.tree[next];
+			}
+		}
+		return pos;
+	}
+
+	/**
+	 * Returns the element in the given slot
+	 */
+	@SuppressWarnings("unchecked")
+	private E elementAt(int slot) {
+		return (E) this.slots[slot];
+	}
+
+	/**
+	 * Throws an IndexOutOfBoundsException if i is not in [0, bound[
+	 */
+	private static void checkIndex(int i, int bound) {
+		if (i < 0 || i >= bound) {
+			throw new IndexOutOfBoundsException("Index: " + i);
+		}
+	}
+
+}
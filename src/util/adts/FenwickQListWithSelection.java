@@ -0,0 +1,47 @@
+package util.adts;
+
+import java.util.List;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type represent lists with selection of distinct elements
+ * stored in a FenwickList, where removing any element and finding the
+ * position of an element take logarithmic time. Elements can only be
+ * added at the end and cannot change positions
+ *
+ * @param <E> type of the elements of the list
+ */
+public class FenwickQListWithSelection<E> extends AbsQListWithSelection<E> {
+
+    /**
+     * Constructor that creates a FenwickQListWithSelection
+     */
+    public FenwickQListWithSelection() {
+        super();
+    }
+
+    /**
+     * Method that creates a list that counts its positions in a Fenwick tree
+     * 
+     * @return a new FenwickList
+     * @ensures \result != null
+     */
+    @Override
+    protected List<E> createList() {
+        return new FenwickList<>();
+    }
+
+    /**
+     * Returns the position of the given element, compared by reference
+     * 
+     * @param e the element to look for
+     * @return the position of e or -1 if it is not in the list
+     * @ensures \result == -1 || get(\result) == e
+     */
+    public int indexOf(E e) {
+        return ((FenwickList<E>) getList()).positionOf(e);
+    }
+
+}
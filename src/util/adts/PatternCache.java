@@ -0,0 +1,114 @@
+package util.adts;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type represent a bounded cache of compiled regular
+ * expressions. When the cache is full the least recently used pattern
+ * is discarded
+ */
+public class PatternCache {
+
+	private final int capacity;
+	private final Map<String, Pattern> patterns;
+	private long hits;
+	private long misses;
+
+	/**
+	 * PatternCache constructor
+	 *
+	 * @param capacity maximum number of patterns kept in the cache
+	 * @requires capacity > 0
+	 */
+	public PatternCache(int capacity) {
+		this.capacity = capacity;
+		this.patterns = new LinkedHashMap<>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+				return size() > PatternCache.this.capacity;
+			}
+		};
+		this.hits = 0;
+		this.misses = 0;
+	}
+
+	/**
+	 * Method that returns the compiled pattern of the given regular expression,
+	 * compiling it only if it is not already in the cache
+	 *
+	 * @param regexp the regular expression
+	 * @requires regexp != null
+	 * @return the compiled pattern of regexp
+	 * @ensures \result != null && \result.pattern().equals(regexp)
+	 */
+	public synchronized Pattern get(String regexp) {
+		Pattern pattern = this.patterns.get(regexp);
+		if (pattern != null) {
+			this.hits++;
+			return pattern;
+		}
+		this.misses++;
+		pattern = Pattern.compile(regexp);
+		this.patterns.put(regexp, pattern);
+		return pattern;
+	}
+
+	/**
+	 * Method that returns the number of lookups answered by the cache
+	 *
+	 * @return the number of hits
+	 * @ensures \result >= 0
+	 */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Method that returns the number of lookups that needed a compilation
+	 *
+	 * @return the number of misses
+	 * @ensures \result >= 0
+	 */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * Returns the number of patterns in the cache
+	 *
+	 * @return the number of patterns in the cache
+	 * @ensures 0 <= \result <= getCapacity()
+	 */
+	public synchronized int size() {
+		return this.patterns.size();
+	}
+
+	/**
+	 * Returns the maximum number of patterns kept in the cache
+	 *
+	 * @return the capacity of the cache
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Removes every pattern from the cache and resets the counters
+	 *
+	 * @ensures size() == 0 && getHits() == 0 && getMisses() == 0
+	 */
+	public synchronized void clear() {
+		this.patterns.clear();
+		this.hits = 0;
+		this.misses = 0;
+	}
+
+}
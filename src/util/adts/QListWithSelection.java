@@ -58,6 +58,32 @@ public interface QListWithSelection<E> extends QList<E> {
      */
     void remove();
 
+    /**
+     * Moves the element at position i to position j, shifting the
+     * elements between them by one position. The selection stays
+     * on the same element
+     *
+     * @param i the current position of the element to move
+     * @param j the position where the element is going to be
+     * @requires 0 <= i < size() && 0 <= j < size()
+     * @ensures get(j) == \old(get(i)) && size() == \old(size())
+     * @ensures \old(someSelected()) ==> getSelected() == \old(getSelected())
+     */
+    void moveTo(int i, int j);
+
+    /**
+     * Inserts the element at position i, shifting the elements from
+     * position i on by one position. The selection stays on the same
+     * element
+     *
+     * @param i the position where the element is inserted
+     * @param e the element to insert
+     * @requires 0 <= i <= size()
+     * @ensures get(i) == e && size() == \old(size()) + 1
+     * @ensures \old(someSelected()) ==> getSelected() == \old(getSelected())
+     */
+    void insert(int i, E e);
+
     /**
      * Returns the selected element
      *
@@ -0,0 +1,193 @@
+package util.adts;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type represent lists stored in a circular array.
+ * Adding or removing at either end takes constant time and adding or
+ * removing in the middle only shifts the elements on the shorter side.
+ *
+ * @param <E> type of the elements of the list
+ */
+public class RingList<E> extends AbstractList<E> implements RandomAccess {
+
+	//capacity of the array of an empty list, must be a power of two
+	private static final int INITIAL_CAPACITY = 8;
+
+	private Object[] elements;
+	private int head;
+	private int size;
+
+	/**
+	 * RingList constructor
+	 */
+	public RingList() {
+		this.elements = new Object[INITIAL_CAPACITY];
+		this.head = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the number of elements in the list
+	 *
+	 * @return the number of elements in the list
+	 * @ensures \result >= 0
+	 */
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the element at position i
+	 *
+	 * @param i the position of the element to return
+	 * @requires 0 <= i < size()
+	 * @return the element at position i
+	 */
+	@Override
+	public E get(int i) {
+		checkIndex(i, this.size);
+		return elementAt(slot(i));
+	}
+
+	/**
+	 * Replaces the element at position i
+	 *
+	 * @param i the position of the element to replace
+	 * @param e the new element
+	 * @requires 0 <= i < size()
+	 * @return the element that was at position i
+	 */
+	@Override
+	public E set(int i, E e) {
+		checkIndex(i, this.size);
+		int slot = slot(i);
+		E old = elementAt(slot);
+		this.elements[slot] = e;
+		return old;
+	}
+
+	/**
+	 * Inserts the element at position i, shifting the elements on the
+	 * shorter side of i by one position
+	 *
+	 * @param i the position where the element is inserted
+	 * @param e the element to insert
+	 * @requires 0 <= i <= size()
+	 * @ensures get(i) == e && size() == \old(size()) + 1
+	 */
+	@Override
+	public void add(int i, E e) {
+		checkIndex(i, this.size + 1);
+		if (this.size == this.elements.length) {
+			grow();
+		}
+		if (i < this.size / 2) {
+			this.head = (this.head - 1) & mask();
+			for (int k = 0; k < i; k++) {
+				this.elements[slot(k)] = this.elements[slot(k + 1)];
+			}
+		} else {
+			for (int k = this.size; k > i; k--) {
+				this.elements[slot(k)] = this.elements[slot(k - 1)];
+			}
+		}
+		this.elements[slot(i)] = e;
+		this.size++;
+		this.modCount++;
+	}
+
+	/**
+	 * Removes the element at position i, shifting the elements on the
+	 * shorter side of i by one position
+	 *
+	 * @param i the position of the element to remove
+	 * @requires 0 <= i < size()
+	 * @return the element removed
+	 * @ensures size() == \old(size()) - 1
+	 */
+	@Override
+	public E remove(int i) {
+		checkIndex(i, this.size);
+		E old = elementAt(slot(i));
+		if (i < this.size / 2) {
+			for (int k = i; k > 0; k--) {
+				this.elements[slot(k)] = this.elements[slot(k - 1)];
+			}
+			this.elements[this.head] = null;
+			this.head = (this.head + 1) & mask();
+		} else {
+			for (int k = i; k < this.size - 1; k++) {
+				this.elements[slot(k)] = this.elements[slot(k + 1)];
+			}
+			this.elements[slot(this.size - 1)] = null;
+		}
+		this.size--;
+		this.modCount++;
+		return old;
+	}
+
+	/**
+	 * Removes all the elements of the list
+	 *
+	 * @ensures size() == 0
+	 */
+	@Override
+	public void clear() {
+		for (int k = 0; k < this.size; k++) {
+			this.elements[slot(k)] = null;
+		}
+		this.head = 0;
+		this.size = 0;
+		this.modCount++;
+	}
+
+	/**
+	 * Doubles the capacity of the array, moving the first element to its start
+	 */
+	private void grow() {
+		Object[] bigger = new Object[this.elements.length * 2];
+		for (int k = 0; k < this.size; k++) {
+			bigger[k] = this.elements[slot(k)];
+		}
+		this.elements = bigger;
+		this.head = 0;
+	}
+
+	/**
+	 * Returns the position in the array of the element at position i of the list
+	 */
+	private int slot(int i) {
+		return (this.head + i) & mask();
+	}
+
+	/**
+	 * Returns the mask that wraps positions around the array
+	 */
+	private int mask() {
+		return this.elements.length - 1;
+	}
+
+	/**
+	 * Returns the element in the given position of the array
+	 */
+	@SuppressWarnings("unchecked")
+	private E elementAt(int slot) {
+		return (E) this.elements[slot];
+	}
+
+	/**
+	 * Throws an IndexOutOfBoundsException if i is not in [0, bound[
+	 */
+	private static void checkIndex(int i, int bound) {
+		if (i < 0 || i >= bound) {
+			throw new IndexOutOfBoundsException("Index: " + i);
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+package util.adts;
+
+import java.util.List;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type represent lists with selection stored in a
+ * circular array, where adding and removing at both ends take
+ * constant time
+ *
+ * @param <E> type of the elements of the list
+ */
+public class RingQListWithSelection<E> extends AbsQListWithSelection<E> {
+
+    /**
+     * Constructor that creates a RingQListWithSelection
+     */
+    public RingQListWithSelection() {
+        super();
+    }
+
+    /**
+     * Method that creates a list based in a circular array
+     * 
+     * @return a new RingList
+     * @ensures \result != null
+     */
+    @Override
+    protected List<E> createList() {
+        return new RingList<>();
+    }
+
+}
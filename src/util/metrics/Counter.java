@@ -0,0 +1,73 @@
+package util.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Metric that counts how many times something happened. Counting does not
+ * allocate nor lock, so it can be done by several threads on hot paths
+ */
+public final class Counter implements Metric {
+
+	private final String name;
+	private final String help;
+	private final LongAdder count;
+
+	/**
+	 * Counter constructor
+	 *
+	 * @param name the name of the counter
+	 * @param help what the counter counts
+	 * @requires name != null && help != null
+	 */
+	Counter(String name, String help) {
+		this.name = name;
+		this.help = help;
+		this.count = new LongAdder();
+	}
+
+	/**
+	 * Counts one more occurrence
+	 */
+	public void inc() {
+		this.count.increment();
+	}
+
+	/**
+	 * Counts the given number of occurrences
+	 *
+	 * @param n the number of occurrences
+	 * @requires n >= 0
+	 */
+	public void add(long n) {
+		this.count.add(n);
+	}
+
+	/**
+	 * Returns the number of occurrences counted
+	 *
+	 * @return the count
+	 * @ensures \result >= 0
+	 */
+	public long get() {
+		return this.count.sum();
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public String getHelp() {
+		return this.help;
+	}
+
+	@Override
+	public MetricSnapshot snapshot() {
+		return MetricSnapshot.ofValue(this.name, this.help, MetricSnapshot.Type.COUNTER, get());
+	}
+
+}
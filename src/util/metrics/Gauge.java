@@ -0,0 +1,56 @@
+package util.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Metric whose value is read from the object it measures every time it is
+ * exported, so measuring it costs nothing until then
+ */
+public final class Gauge implements Metric {
+
+	private final String name;
+	private final String help;
+	private final DoubleSupplier value;
+
+	/**
+	 * Gauge constructor
+	 *
+	 * @param name  the name of the gauge
+	 * @param help  what the gauge measures
+	 * @param value where the value of the gauge is read from
+	 * @requires name != null && help != null && value != null
+	 */
+	Gauge(String name, String help, DoubleSupplier value) {
+		this.name = name;
+		this.help = help;
+		this.value = value;
+	}
+
+	/**
+	 * Returns the current value of the gauge
+	 *
+	 * @return the value read
+	 */
+	public double get() {
+		return this.value.getAsDouble();
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public String getHelp() {
+		return this.help;
+	}
+
+	@Override
+	public MetricSnapshot snapshot() {
+		return MetricSnapshot.ofValue(this.name, this.help, MetricSnapshot.Type.GAUGE, get());
+	}
+
+}
@@ -0,0 +1,145 @@
+package util.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Metric with the distribution of the durations of an operation, in
+ * nanoseconds. The buckets are log-linear: every power of two from 1us to
+ * about 137s is split in four buckets of the same width, so every duration
+ * is known within 25% of its value. Durations below 1us share the first
+ * bucket and the ones above the last power of two share the last one.
+ * Recording a duration only increments two striped counters, so it does
+ * not allocate nor lock
+ */
+public final class Histogram implements Metric {
+
+	//log2 of the sub-buckets of each power of two
+	private static final int SUB_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	//durations below 2^MIN_EXP ns go to the first bucket
+	private static final int MIN_EXP = 10;
+	//durations from 2^MAX_EXP ns go to the last bucket
+	private static final int MAX_EXP = 37;
+	private static final int OVERFLOW = 1 + (MAX_EXP - MIN_EXP) * SUB_BUCKETS;
+
+	private final String name;
+	private final String help;
+	private final LongAdder[] buckets;
+	private final LongAdder sum;
+
+	/**
+	 * Histogram constructor
+	 *
+	 * @param name the name of the histogram
+	 * @param help what the histogram measures
+	 * @requires name != null && help != null
+	 */
+	Histogram(String name, String help) {
+		this.name = name;
+		this.help = help;
+		this.buckets = new LongAdder[OVERFLOW + 1];
+		for (int i = 0; i < this.buckets.length; i++) {
+			this.buckets[i] = new LongAdder();
+		}
+		this.sum = new LongAdder();
+	}
+
+	/**
+	 * Records a duration
+	 *
+	 * @param nanos the duration, in nanoseconds; negative durations count as 0
+	 */
+	public void record(long nanos) {
+		long v = Math.max(0, nanos);
+		this.buckets[indexOf(v)].increment();
+		this.sum.add(v);
+	}
+
+	/**
+	 * Records the time passed since the given instant
+	 *
+	 * @param start the instant the operation started, from System.nanoTime()
+	 */
+	public void recordSince(long start) {
+		record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Returns the number of durations recorded
+	 *
+	 * @return the count of the histogram
+	 * @ensures \result >= 0
+	 */
+	public long getCount() {
+		long count = 0;
+		for (LongAdder bucket : this.buckets) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public String getHelp() {
+		return this.help;
+	}
+
+	@Override
+	public MetricSnapshot snapshot() {
+		long[] counts = new long[this.buckets.length];
+		long count = 0;
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = this.buckets[i].sum();
+			count += counts[i];
+		}
+		long[] bounds = new long[OVERFLOW];
+		for (int i = 0; i < bounds.length; i++) {
+			bounds[i] = upperBound(i);
+		}
+		return MetricSnapshot.ofHistogram(this.name, this.help, count, this.sum.sum(), bounds, counts);
+	}
+
+	/**
+	 * Returns the bucket of the given duration
+	 *
+	 * @param nanos the duration
+	 * @requires nanos >= 0
+	 * @return the index of the bucket
+	 * @ensures 0 <= \result <= OVERFLOW
+	 */
+	static int indexOf(long nanos) {
+		if (nanos < (1L << MIN_EXP)) {
+			return 0;
+		}
+		int exp = 63 - Long.numberOfLeadingZeros(nanos);
+		if (exp >= MAX_EXP) {
+			return OVERFLOW;
+		}
+		int sub = (int) (nanos >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return 1 + (exp - MIN_EXP) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Returns the duration below which the durations of the given bucket are
+	 *
+	 * @param i the index of the bucket
+	 * @requires 0 <= i < OVERFLOW
+	 * @return the exclusive upper bound of the bucket, in nanoseconds
+	 */
+	static long upperBound(int i) {
+		if (i == 0) {
+			return 1L << MIN_EXP;
+		}
+		int exp = MIN_EXP + (i - 1) / SUB_BUCKETS;
+		int sub = (i - 1) % SUB_BUCKETS;
+		return (long) (SUB_BUCKETS + sub + 1) << (exp - SUB_BITS);
+	}
+
+}
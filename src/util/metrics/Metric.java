@@ -0,0 +1,35 @@
+package util.metrics;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type are measures kept by a MetricsRegistry
+ */
+public interface Metric {
+
+	/**
+	 * Returns the name of the metric, as exported
+	 *
+	 * @return the name of the metric
+	 * @ensures \result != null
+	 */
+	String getName();
+
+	/**
+	 * Returns what the metric measures
+	 *
+	 * @return the description of the metric
+	 * @ensures \result != null
+	 */
+	String getHelp();
+
+	/**
+	 * Returns the current value of the metric
+	 *
+	 * @return a snapshot of the metric, not changed by later updates
+	 * @ensures \result != null
+	 */
+	MetricSnapshot snapshot();
+
+}
@@ -0,0 +1,84 @@
+package util.metrics;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * The value of a metric at a given moment. Counters and gauges only have
+ * a value; histograms have the number and the sum of the durations
+ * recorded and the number of durations in each bucket, where bucket i
+ * holds the durations below bounds[i] and the last bucket, which has no
+ * bound, the longest ones
+ *
+ * @param name   the name of the metric
+ * @param help   what the metric measures
+ * @param type   the type of the metric
+ * @param value  the value of a counter or a gauge, the count of a histogram
+ * @param count  the number of durations of a histogram
+ * @param sum    the sum of the durations of a histogram, in nanoseconds
+ * @param bounds the upper bounds of the buckets of a histogram, in nanoseconds
+ * @param counts the number of durations in each bucket of a histogram
+ */
+public record MetricSnapshot(String name, String help, Type type, double value, long count, long sum,
+		long[] bounds, long[] counts) {
+
+	/**
+	 * The types of metrics
+	 */
+	public enum Type {
+		COUNTER, GAUGE, HISTOGRAM
+	}
+
+	private static final long[] NONE = new long[0];
+
+	/**
+	 * Creates the snapshot of a counter or a gauge
+	 */
+	static MetricSnapshot ofValue(String name, String help, Type type, double value) {
+		return new MetricSnapshot(name, help, type, value, 0, 0, NONE, NONE);
+	}
+
+	/**
+	 * Creates the snapshot of a histogram
+	 */
+	static MetricSnapshot ofHistogram(String name, String help, long count, long sum, long[] bounds,
+			long[] counts) {
+		return new MetricSnapshot(name, help, Type.HISTOGRAM, count, count, sum, bounds, counts);
+	}
+
+	/**
+	 * Returns the mean of the durations of a histogram
+	 *
+	 * @return the mean duration, in nanoseconds, or 0 if there are none
+	 * @requires type() == Type.HISTOGRAM
+	 */
+	public double mean() {
+		return this.count == 0 ? 0 : (double) this.sum / this.count;
+	}
+
+	/**
+	 * Returns the duration below which the given fraction of the durations
+	 * of a histogram are
+	 *
+	 * @param q the fraction of the durations
+	 * @return the upper bound of the bucket where the quantile is, in
+	 *         nanoseconds, Long.MAX_VALUE if it is in the last bucket or 0 if
+	 *         there are no durations
+	 * @requires type() == Type.HISTOGRAM && 0 <= q <= 1
+	 */
+	public long quantile(double q) {
+		if (this.count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(q * this.count));
+		long seen = 0;
+		for (int i = 0; i < this.bounds.length; i++) {
+			seen += this.counts[i];
+			if (seen >= rank) {
+				return this.bounds[i];
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+}
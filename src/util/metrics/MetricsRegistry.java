@@ -0,0 +1,213 @@
+package util.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Objects of this type keep the metrics of the application by name. The
+ * classes that measure something take their metrics once, usually from
+ * the default registry, and update them without going through the registry
+ * again. The metrics can be read as snapshots or in the text format of
+ * Prometheus, where durations are in seconds
+ */
+public class MetricsRegistry {
+
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+	private static final Pattern VALID_NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	private final Map<String, Metric> metrics;
+
+	/**
+	 * MetricsRegistry constructor
+	 */
+	public MetricsRegistry() {
+		this.metrics = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Returns the registry used by the application
+	 *
+	 * @return the default registry
+	 * @ensures \result != null
+	 */
+	public static MetricsRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Returns the counter with the given name, creating it if needed
+	 *
+	 * @param name the name of the counter
+	 * @param help what the counter counts
+	 * @requires name != null && help != null
+	 * @return the counter
+	 * @throws IllegalArgumentException if the name is not valid or is the
+	 *                                  name of another type of metric
+	 */
+	public Counter counter(String name, String help) {
+		return get(name, Counter.class, this.metrics.computeIfAbsent(check(name), n -> new Counter(n, help)));
+	}
+
+	/**
+	 * Returns the histogram with the given name, creating it if needed
+	 *
+	 * @param name the name of the histogram
+	 * @param help what the histogram measures
+	 * @requires name != null && help != null
+	 * @return the histogram
+	 * @throws IllegalArgumentException if the name is not valid or is the
+	 *                                  name of another type of metric
+	 */
+	public Histogram histogram(String name, String help) {
+		return get(name, Histogram.class, this.metrics.computeIfAbsent(check(name), n -> new Histogram(n, help)));
+	}
+
+	/**
+	 * Registers a gauge with the given name, replacing the gauge that had
+	 * that name, if any
+	 *
+	 * @param name  the name of the gauge
+	 * @param help  what the gauge measures
+	 * @param value where the value of the gauge is read from
+	 * @requires name != null && help != null && value != null
+	 * @return the gauge
+	 * @throws IllegalArgumentException if the name is not valid or is the
+	 *                                  name of another type of metric
+	 */
+	public Gauge gauge(String name, String help, DoubleSupplier value) {
+		Gauge gauge = new Gauge(check(name), help, value);
+		return get(name, Gauge.class, this.metrics.merge(name, gauge, (old, g) -> old instanceof Gauge ? g : old));
+	}
+
+	/**
+	 * Removes the metric with the given name
+	 *
+	 * @param name the name of the metric
+	 * @return true if there was a metric with that name
+	 */
+	public boolean remove(String name) {
+		return this.metrics.remove(name) != null;
+	}
+
+	/**
+	 * Returns the metric with the given name
+	 *
+	 * @param name the name of the metric
+	 * @return the metric or null if there is none with that name
+	 */
+	public Metric get(String name) {
+		return this.metrics.get(name);
+	}
+
+	/**
+	 * Returns the current values of all the metrics
+	 *
+	 * @return the snapshots of the metrics, sorted by name
+	 * @ensures \result != null
+	 */
+	public List<MetricSnapshot> snapshot() {
+		List<MetricSnapshot> snapshots = new ArrayList<>(this.metrics.size());
+		for (Metric metric : this.metrics.values()) {
+			snapshots.add(metric.snapshot());
+		}
+		snapshots.sort(Comparator.comparing(MetricSnapshot::name));
+		return snapshots;
+	}
+
+	/**
+	 * Writes the current values of all the metrics in the text format of
+	 * Prometheus, with durations in seconds
+	 *
+	 * @param out where the metrics are written
+	 * @throws IOException if out could not be written
+	 */
+	public void writePrometheus(Appendable out) throws IOException {
+		for (MetricSnapshot s : snapshot()) {
+			String type = s.type().name().toLowerCase(Locale.ROOT);
+			out.append("# HELP ").append(s.name()).append(' ').append(escape(s.help())).append('\n');
+			out.append("# TYPE ").append(s.name()).append(' ').append(type).append('\n');
+			if (s.type() != MetricSnapshot.Type.HISTOGRAM) {
+				out.append(s.name()).append(' ').append(number(s.value())).append('\n');
+			} else {
+				long cumulative = 0;
+				for (int i = 0; i < s.bounds().length; i++) {
+					cumulative += s.counts()[i];
+					out.append(s.name()).append("_bucket{le=\"").append(number(s.bounds()[i] / NANOS_PER_SECOND))
+							.append("\"} ").append(Long.toString(cumulative)).append('\n');
+				}
+				out.append(s.name()).append("_bucket{le=\"+Inf\"} ").append(Long.toString(s.count())).append('\n');
+				out.append(s.name()).append("_sum ").append(number(s.sum() / NANOS_PER_SECOND)).append('\n');
+				out.append(s.name()).append("_count ").append(Long.toString(s.count())).append('\n');
+			}
+		}
+	}
+
+	/**
+	 * Returns the current values of all the metrics in the text format of
+	 * Prometheus
+	 *
+	 * @return the metrics, as writePrometheus writes them
+	 * @ensures \result != null
+	 */
+	public String toPrometheus() {
+		StringBuilder sb = new StringBuilder();
+		try {
+			writePrometheus(sb);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the given metric with the given type
+	 *
+	 * @throws IllegalArgumentException if the metric has another type
+	 */
+	private static <M extends Metric> M get(String name, Class<M> type, Metric metric) {
+		if (!type.isInstance(metric)) {
+			throw new IllegalArgumentException("Metric " + name + " is not a " + type.getSimpleName());
+		}
+		return type.cast(metric);
+	}
+
+	/**
+	 * Checks that the given name is a valid name for Prometheus
+	 *
+	 * @throws IllegalArgumentException if it is not
+	 */
+	private static String check(String name) {
+		if (!VALID_NAME.matcher(name).matches()) {
+			throw new IllegalArgumentException("Invalid metric name: " + name);
+		}
+		return name;
+	}
+
+	private static String escape(String help) {
+		return help.replace("\\", "\\\\").replace("\n", "\\n");
+	}
+
+	private static String number(double value) {
+		if (Double.isNaN(value)) {
+			return "NaN";
+		}
+		if (Double.isInfinite(value)) {
+			return value > 0 ? "+Inf" : "-Inf";
+		}
+		return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value)
+				: Double.toString(value);
+	}
+
+}
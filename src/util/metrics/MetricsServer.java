@@ -0,0 +1,96 @@
+package util.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Local HTTP endpoint where Prometheus scrapes the metrics of a registry.
+ * It only listens on the loopback address and answers GET /metrics with
+ * the metrics in the Prometheus text format, on a single daemon thread
+ */
+public class MetricsServer implements AutoCloseable {
+
+	//path where the metrics are served
+	public static final String PATH = "/metrics";
+
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final MetricsRegistry registry;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	/**
+	 * MetricsServer constructor, that starts serving the metrics
+	 *
+	 * @param registry the metrics to serve
+	 * @param port     the port to listen on, or 0 for any free port
+	 * @requires registry != null && 0 <= port <= 65535
+	 * @throws IOException if the server could not listen on the port
+	 */
+	public MetricsServer(MetricsRegistry registry, int port) throws IOException {
+		this.registry = registry;
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "MetricsServer");
+			t.setDaemon(true);
+			return t;
+		});
+		this.server.createContext(PATH, this::handle);
+		this.server.setExecutor(this.executor);
+		this.server.start();
+	}
+
+	/**
+	 * Returns the port the server listens on
+	 *
+	 * @return the port
+	 */
+	public int getPort() {
+		return this.server.getAddress().getPort();
+	}
+
+	/**
+	 * Stops serving the metrics
+	 */
+	@Override
+	public void close() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Answers a request with the current metrics of the registry
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			String method = exchange.getRequestMethod();
+			if (!"GET".equals(method) && !"HEAD".equals(method)) {
+				exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			byte[] body = this.registry.toPrometheus().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			if ("HEAD".equals(method)) {
+				exchange.sendResponseHeaders(200, -1);
+				return;
+			}
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+	}
+
+}
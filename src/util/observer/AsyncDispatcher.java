@@ -0,0 +1,214 @@
+package util.observer;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * @param <E>
+ *
+ * Delivers events to listeners on worker threads instead of the thread
+ * that emits them. Every listener has its own queue, drained in batches
+ * by one worker at a time, so each listener gets its events in the order
+ * they were dispatched while different listeners are served in parallel.
+ *
+ * Events are delivered without holding any lock, so the subject can go on
+ * changing while they are delivered. Listeners that read the state of the
+ * subject must take its lock themselves, for each event, and should not
+ * count on that state being the one of the moment the event happened.
+ */
+public class AsyncDispatcher<E extends Event> implements AutoCloseable {
+
+	//maximum number of events delivered to a listener before yielding the worker
+	private static final int BATCH_SIZE = 64;
+
+	private final ExecutorService workers;
+	private final Map<Listener<E>, Mailbox> mailboxes;
+	private final AtomicLong pending;
+	private final Object idle;
+	private final LongAdder delivered;
+	private final LongAdder batches;
+	private final LongAdder failures;
+
+	/**
+	 * The events waiting to be delivered to a listener
+	 */
+	private final class Mailbox {
+		private final Listener<E> listener;
+		private final Queue<E> queue = new ConcurrentLinkedQueue<>();
+		private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+		private Mailbox(Listener<E> listener) {
+			this.listener = listener;
+		}
+	}
+
+	/**
+	 * AsyncDispatcher constructor
+	 *
+	 * @param threads number of worker threads
+	 * @requires threads > 0
+	 */
+	public AsyncDispatcher(int threads) {
+		AtomicInteger count = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "event-dispatcher-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		this.mailboxes = new IdentityHashMap<>();
+		this.pending = new AtomicLong();
+		this.idle = new Object();
+		this.delivered = new LongAdder();
+		this.batches = new LongAdder();
+		this.failures = new LongAdder();
+	}
+
+	/**
+	 * Queues the given event to be delivered to the given listener
+	 * after the events already queued for it
+	 *
+	 * @param listener the listener
+	 * @param e        the event
+	 * @requires listener != null
+	 */
+	public void dispatch(Listener<E> listener, E e) {
+		Mailbox box;
+		synchronized (this.mailboxes) {
+			box = this.mailboxes.computeIfAbsent(listener, Mailbox::new);
+		}
+		this.pending.incrementAndGet();
+		box.queue.add(e);
+		schedule(box);
+	}
+
+	/**
+	 * Waits until every event dispatched so far has been delivered.
+	 * Must not be called by a listener or while holding a lock that
+	 * listeners take
+	 */
+	public void flush() {
+		synchronized (this.idle) {
+			while (this.pending.get() > 0) {
+				try {
+					this.idle.wait();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of events dispatched but not delivered yet
+	 *
+	 * @return the number of pending events
+	 * @ensures \result >= 0
+	 */
+	public long getPending() {
+		return this.pending.get();
+	}
+
+	/**
+	 * Returns the number of events delivered
+	 *
+	 * @return the number of delivered events
+	 * @ensures \result >= 0
+	 */
+	public long getDelivered() {
+		return this.delivered.sum();
+	}
+
+	/**
+	 * Returns the number of batches in which the events were delivered
+	 *
+	 * @return the number of batches
+	 * @ensures \result >= 0
+	 */
+	public long getBatches() {
+		return this.batches.sum();
+	}
+
+	/**
+	 * Returns the number of events whose listener threw an exception
+	 *
+	 * @return the number of failed deliveries
+	 * @ensures \result >= 0
+	 */
+	public long getFailures() {
+		return this.failures.sum();
+	}
+
+	/**
+	 * Delivers the pending events and stops the worker threads
+	 */
+	@Override
+	public void close() {
+		flush();
+		this.workers.shutdown();
+	}
+
+	/**
+	 * Gives the mailbox to a worker, unless one already has it
+	 *
+	 * @param box the mailbox
+	 */
+	private void schedule(Mailbox box) {
+		if (box.scheduled.compareAndSet(false, true)) {
+			this.workers.execute(() -> drain(box));
+		}
+	}
+
+	/**
+	 * Delivers up to BATCH_SIZE events of the mailbox and, if more events
+	 * arrived meanwhile, schedules the mailbox again
+	 *
+	 * @param box the mailbox
+	 */
+	private void drain(Mailbox box) {
+		int count = deliver(box);
+		this.batches.increment();
+		this.delivered.add(count);
+		if (this.pending.addAndGet(-count) == 0) {
+			synchronized (this.idle) {
+				this.idle.notifyAll();
+			}
+		}
+		box.scheduled.set(false);
+		if (!box.queue.isEmpty()) {
+			schedule(box);
+		}
+	}
+
+	/**
+	 * Delivers up to BATCH_SIZE events of the mailbox, in order
+	 *
+	 * @param box the mailbox
+	 * @return the number of events delivered
+	 */
+	private int deliver(Mailbox box) {
+		int count = 0;
+		E e;
+		while (count < BATCH_SIZE && (e = box.queue.poll()) != null) {
+			try {
+				box.listener.processEvent(e);
+			} catch (RuntimeException ex) {
+				this.failures.increment();
+			}
+			count++;
+		}
+		return count;
+	}
+
+}
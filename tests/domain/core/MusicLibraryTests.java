@@ -0,0 +1,157 @@
+package domain.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.facade.ISong;
+import domain.playlists.ManualPlaylist;
+import domain.playlists.MostLikedSongsPlaylist;
+import domain.playlists.MostRecentlyAddedSongsPlaylist;
+import domain.playlists.Playlist;
+import domain.playlists.PlaylistList;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the searches of the MusicLibrary over large libraries and
+ * for the asynchronous delivery of its events
+ *
+ */
+public class MusicLibraryTests {
+
+	//enough songs for the parallel search to split the library in chunks
+	private static final int SONGS = 10000;
+	private static final String[] GENRES = { "Fado", "Rock", "Jazz", "Classical", "Pop" };
+
+	private MusicLibrary library;
+
+	/**
+	 * Method that sets up a library with many songs before each test
+	 */
+	@BeforeEach
+	void setUp() {
+		this.library = new MusicLibrary();
+		List<Song> songs = new ArrayList<>(SONGS);
+		for (int i = 0; i < SONGS; i++) {
+			String genre = GENRES[(i * 7) % GENRES.length];
+			songs.add(new Song("song" + i + ".mp3", new SongMetaInfo("Song " + i, "Album " + (i / 12),
+					genre, Arrays.asList("Artist " + (i % 97)))));
+		}
+		this.library.addAll(songs);
+	}
+
+	/**
+	 * Returns a copy of the given songs
+	 */
+	private static List<ISong> listOf(Iterable<ISong> songs) {
+		List<ISong> list = new ArrayList<>();
+		for (ISong s : songs) {
+			list.add(s);
+		}
+		return list;
+	}
+
+	/**
+	 * Tests if the parallel search finds the same songs as the sequential
+	 * one, in the same order
+	 */
+	@Test
+	public void parallelMatchesTest() {
+		String[] patterns = { ".*Fado.*", ".*7.*", "Song 1.*", ".*Artist 96.*", ".*Blues.*" };
+		List<List<ISong>> sequential = new ArrayList<>();
+		this.library.setParallelThreshold(Integer.MAX_VALUE);
+		for (String p : patterns) {
+			sequential.add(listOf(this.library.getMatches(p)));
+		}
+
+		this.library.setParallelThreshold(1);
+		assertEquals(1, this.library.getParallelThreshold());
+		for (int i = 0; i < patterns.length; i++) {
+			assertIterableEquals(sequential.get(i), this.library.getMatches(patterns[i]));
+		}
+		assertTrue(sequential.get(1).size() > SONGS / 10);
+		assertEquals(0, sequential.get(4).size());
+	}
+
+	/**
+	 * Adds, rates, plays and removes songs of a new library with playlists,
+	 * optionally delivering its events asynchronously
+	 *
+	 * @param async true to deliver the events of the library asynchronously
+	 * @return the filenames of the songs of each playlist, once every event
+	 *         was delivered
+	 */
+	private static List<List<String>> changePlaylists(boolean async) {
+		MusicLibrary lib = new MusicLibrary();
+		List<Song> first = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			first.add(new Song("fado" + i + ".mp3", new SongMetaInfo("Fado " + i, "Fados", "Fado", Arrays.asList("Ana"))));
+		}
+		lib.addAll(first);
+		ManualPlaylist manual = new ManualPlaylist("Mine", lib);
+		for (int i = 0; i < 20; i += 3) {
+			manual.add(lib.get(i));
+		}
+		PlaylistList playlists = new PlaylistList(lib, List.of(new MostLikedSongsPlaylist(lib, 5),
+				new MostRecentlyAddedSongsPlaylist(lib, 6), manual));
+		if (async) {
+			lib.enableAsyncEvents(2);
+			assertTrue(lib.isAsync());
+		}
+
+		Rate[] rates = Rate.values();
+		for (int i = 0; i < 20; i++) {
+			lib.rate(lib.get(i), rates[(i * 3) % rates.length]);
+			if (i % 4 == 0) {
+				lib.incTimesPlayed(lib.get(i));
+			}
+		}
+		for (int i = 0; i < 5; i++) {
+			lib.add(new Song("rock" + i + ".mp3", new SongMetaInfo("Rock " + i, "Rocks", "Rock", Arrays.asList("Rui"))));
+		}
+		//the indexes of the library change at once, even before the events are delivered
+		assertEquals(5, listOf(lib.search("rock")).size());
+		lib.remove(lib.get(3));
+		lib.remove(lib.get(9));
+		lib.rate(lib.get(20), Rate.AMAZING);
+		lib.rate(lib.get(0), Rate.UNRATED);
+		lib.remove(lib.get(lib.size() - 1));
+		assertEquals(4, listOf(lib.search("rock")).size());
+
+		lib.flush();
+		List<List<String>> contents = new ArrayList<>();
+		for (Playlist p : playlists) {
+			List<String> filenames = new ArrayList<>();
+			for (ISong s : p) {
+				filenames.add(s.getFilename());
+			}
+			contents.add(filenames);
+		}
+		lib.disableAsyncEvents();
+		return contents;
+	}
+
+	/**
+	 * Tests if the playlists of a library that delivers its events
+	 * asynchronously end up as they do with synchronous events, once
+	 * the events are flushed
+	 */
+	@Test
+	public void asyncEventsTest() {
+		List<List<String>> sync = changePlaylists(false);
+		List<List<String>> async = changePlaylists(true);
+		assertIterableEquals(sync, async);
+		assertEquals(5, sync.get(0).size());
+		assertEquals(6, sync.get(1).size());
+	}
+
+}
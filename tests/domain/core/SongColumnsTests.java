@@ -0,0 +1,161 @@
+package domain.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the SongColumns of the MusicLibrary
+ */
+public class SongColumnsTests {
+
+	private MusicLibrary library;
+	private List<Song> songs;
+
+	/**
+	 * Creates a library with 100 songs; song i was played i % 7 times
+	 * and has the rating of ordinal i % 6
+	 */
+	@BeforeEach
+	void setUp() {
+		this.library = new MusicLibrary();
+		this.songs = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			SongMetaInfo info = new SongMetaInfo("Title " + i, "Album", "Rock", List.of("Artist"));
+			this.songs.add(new Song("song" + i + ".mp3", info, Rate.values()[i % 6], i % 7));
+		}
+		this.library.addAll(this.songs.subList(0, 50));
+		for (Song s : this.songs.subList(50, 100)) {
+			this.library.add(s);
+		}
+	}
+
+	/**
+	 * Tests the aggregations over the columns
+	 */
+	@Test
+	public void aggregationTest() {
+		long plays = 0;
+		int[] rates = new int[Rate.values().length];
+		for (Song s : this.songs) {
+			plays += s.getTimesPlayed();
+			rates[s.getRating().ordinal()]++;
+		}
+		assertEquals(plays, this.library.getTotalPlays());
+		assertArrayEquals(rates, this.library.getRatingDistribution());
+
+		this.library.incTimesPlayed(this.songs.get(3));
+		this.library.rate(this.songs.get(3), Rate.AMAZING);
+		assertEquals(plays + 1, this.library.getTotalPlays());
+		assertEquals(4, this.songs.get(3).getTimesPlayed());
+		assertEquals(Rate.AMAZING, this.songs.get(3).getRating());
+		assertEquals(rates[Rate.AMAZING.ordinal()] + 1, this.library.getRatingDistribution()[Rate.AMAZING.ordinal()]);
+	}
+
+	/**
+	 * Tests that the most played songs come from the most played down,
+	 * the first added first among songs played the same number of times
+	 */
+	@Test
+	public void mostPlayedTest() {
+		for (int k = 0; k < 10; k++) {
+			this.library.incTimesPlayed(this.songs.get(42));
+		}
+		assertEquals(List.of(this.songs.get(42), this.songs.get(6), this.songs.get(13)),
+				this.library.getMostPlayed(3));
+		//the songs i with i % 7 == 0 were never played, except song 42
+		assertEquals(100 - 15 + 1, this.library.getMostPlayed(1000).size());
+	}
+
+	/**
+	 * Tests that removed songs keep their values and free their ordinals
+	 * for the songs added after them
+	 */
+	@Test
+	public void removeTest() {
+		Song removed = this.songs.get(10);
+		int ordinal = removed.getOrdinal();
+		this.library.remove(removed);
+		assertEquals(SongColumns.NO_ORDINAL, removed.getOrdinal());
+		this.library.rate(this.songs.get(11), Rate.BAD);
+		removed.incTimesPlayed();
+		assertEquals(10 % 7 + 1, removed.getTimesPlayed());
+		assertEquals(Rate.values()[10 % 6], removed.getRating());
+		assertEquals(99, this.library.getColumns().size());
+
+		Song added = new Song("new.mp3", new SongMetaInfo("New", "Album", "Rock", List.of("Artist")));
+		this.library.add(added);
+		assertEquals(ordinal, added.getOrdinal());
+		assertEquals(100, this.library.getColumns().getLimit());
+		assertTrue(this.library.getColumns().songAt(ordinal) == added);
+	}
+
+	/**
+	 * Tests that a song added twice keeps its ordinal until both copies
+	 * are removed
+	 */
+	@Test
+	public void duplicateTest() {
+		Song song = this.songs.get(20);
+		int ordinal = song.getOrdinal();
+		long plays = this.library.getTotalPlays();
+		this.library.add(song);
+		assertEquals(ordinal, song.getOrdinal());
+		assertEquals(100, this.library.getColumns().size());
+		assertEquals(plays, this.library.getTotalPlays());
+
+		this.library.remove(song);
+		assertEquals(ordinal, song.getOrdinal());
+		this.library.incTimesPlayed(song);
+		assertEquals(plays + 1, this.library.getTotalPlays());
+		this.library.remove(song);
+		assertEquals(SongColumns.NO_ORDINAL, song.getOrdinal());
+		assertEquals(99, this.library.getColumns().size());
+		assertEquals(20 % 7 + 1, song.getTimesPlayed());
+	}
+
+	/**
+	 * Tests that a song added to a second library still counts in the
+	 * first one with its current values, and leaves it when removed
+	 */
+	@Test
+	public void movedTest() {
+		Song song = this.songs.get(5);
+		long plays = this.library.getTotalPlays();
+		int[] rates = this.library.getRatingDistribution();
+		MusicLibrary other = new MusicLibrary();
+		other.add(song);
+		other.incTimesPlayed(song);
+		other.rate(song, Rate.AMAZING);
+
+		assertEquals(plays + 1, this.library.getTotalPlays());
+		rates[5 % 6]--;
+		rates[Rate.AMAZING.ordinal()]++;
+		assertArrayEquals(rates, this.library.getRatingDistribution());
+		assertEquals(List.of(song), this.library.getMostPlayed(1));
+		assertEquals(6, other.getTotalPlays());
+
+		//the song comes back to the columns of the first library
+		this.library.add(song);
+		assertEquals(6, song.getTimesPlayed());
+		assertEquals(6, other.getTotalPlays());
+		assertEquals(plays + 1, this.library.getTotalPlays());
+
+		this.library.remove(song);
+		this.library.remove(song);
+		assertEquals(99, this.library.getColumns().size());
+		assertEquals(plays + 1 - 6, this.library.getTotalPlays());
+		assertEquals(6, other.getTotalPlays());
+		assertEquals(1, other.getRatingDistribution()[Rate.AMAZING.ordinal()]);
+	}
+
+}
@@ -0,0 +1,114 @@
+package domain.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.facade.ISong;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the SongIndex kept by the MusicLibrary
+ *
+ */
+public class SongIndexTests {
+
+	private MusicLibrary library;
+	private Song fado;
+	private Song tordo;
+	private Song rock;
+
+	/**
+	 * Method that sets up a library with three songs before each test
+	 */
+	@BeforeEach
+	void setUp() {
+		this.library = new MusicLibrary();
+		this.fado = new Song("fado.mp3", new SongMetaInfo("Meu Fado", "Canções", "Fado", Arrays.asList("Amália")));
+		this.tordo = new Song("tordo.mp3", new SongMetaInfo("Fado Tordo", "Tordo", "Fado", Arrays.asList("Fernando Tordo")));
+		this.rock = new Song("rock.mp3", new SongMetaInfo("Demons", "Night Visions", "Rock", Arrays.asList("Imagine Dragons")));
+		library.add(fado);
+		library.add(tordo);
+		library.add(rock);
+	}
+
+	/**
+	 * Tests if keyword queries come back in library order, ignoring case and accents
+	 */
+	@Test
+	public void keywordTest() {
+		assertIterableEquals(Arrays.asList(fado, tordo), library.search("FADO"));
+		assertIterableEquals(Arrays.asList(fado), library.search("amalia"));
+		assertIterableEquals(Arrays.asList(tordo), library.search("fado tordo"));
+		assertIterableEquals(Arrays.asList(), library.search("jazz"));
+	}
+
+	/**
+	 * Tests if words ending in '*' match by prefix
+	 */
+	@Test
+	public void prefixTest() {
+		assertIterableEquals(Arrays.asList(fado, tordo), library.search("fa*"));
+		assertIterableEquals(Arrays.asList(tordo), library.search("f* t*"));
+		assertIterableEquals(Arrays.asList(rock), library.search("dem*"));
+	}
+
+	/**
+	 * Tests if a '*' in the middle of a word is taken literally
+	 */
+	@Test
+	public void midWordWildcardTest() {
+		assertIterableEquals(Arrays.asList(), library.search("fa*do"));
+		assertIterableEquals(Arrays.asList(), library.search("fado t*rdo"));
+		assertIterableEquals(Arrays.asList(fado, tordo), library.search("fado*"));
+	}
+
+	/**
+	 * Tests if prefixes that cover many words merge their songs in library
+	 * order, without repetitions, alone and together with other words
+	 */
+	@Test
+	public void widePrefixTest() {
+		List<Song> added = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Song song = new Song("t" + i + ".mp3", new SongMetaInfo("Tune T" + i, "Tunes", i % 2 == 0 ? "Fado" : "Rock",
+					Arrays.asList("Tomas" + (20 - i))));
+			added.add(song);
+			library.add(song);
+		}
+		List<ISong> all = new ArrayList<>(Arrays.asList(tordo));
+		all.addAll(added);
+		assertIterableEquals(all, library.search("t*"));
+
+		List<ISong> fados = new ArrayList<>(Arrays.asList(tordo));
+		for (int i = 0; i < added.size(); i += 2) {
+			fados.add(added.get(i));
+		}
+		assertIterableEquals(fados, library.search("fado t*"));
+		int count = 0;
+		for (ISong s : library.search("*")) {
+			count++;
+		}
+		assertEquals(23, count);
+	}
+
+	/**
+	 * Tests if removed songs leave the index
+	 */
+	@Test
+	public void removeTest() {
+		library.select(0);
+		library.remove();
+		assertIterableEquals(Arrays.asList(tordo), library.search("fado"));
+		assertEquals(2, library.getIndex().size());
+	}
+
+}
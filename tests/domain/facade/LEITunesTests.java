@@ -0,0 +1,49 @@
+package domain.facade;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import servicos.LibraryJournal;
+import servicos.TagCache;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the cache of tags kept by LEITunes
+ *
+ */
+public class LEITunesTests {
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * Tests if the tags read by a system are saved when it closes and
+	 * found by the next system on the same journal
+	 */
+	@Test
+	public void tagCacheTest() throws IOException {
+		Path song = Files.copy(Paths.get("songs", "MeuFado.mp3"), this.dir.resolve("MeuFado.mp3"));
+		Path library = this.dir.resolve("library");
+		try (LibraryJournal journal = new LibraryJournal(library)) {
+			LEITunes tunes = new LEITunes(journal);
+			tunes.getMusicLibraryController().addSong(song.toString());
+			tunes.close();
+		}
+		Path saved = library.resolve("tags.cache");
+		assertTrue(Files.exists(saved));
+		TagCache cache = new TagCache(saved);
+		cache.load();
+		assertEquals(1, cache.size());
+	}
+
+}
@@ -0,0 +1,135 @@
+package domain.facade;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import domain.core.MusicLibrary;
+import domain.core.SongLibraryEvent;
+import domain.core.SongsAddedLibraryEvent;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the imports of the MusicLibraryController
+ *
+ */
+public class MusicLibraryControllerTests {
+
+	@TempDir
+	Path dir;
+
+	private MusicLibrary library;
+	private MusicLibraryController controller;
+	private List<SongLibraryEvent> events;
+	//the copies of the bundled songs, sorted by path
+	private List<Path> songs;
+	private Path junk;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		this.library = new MusicLibrary();
+		this.controller = new MusicLibraryController(this.library);
+		this.events = new ArrayList<>();
+		this.library.registerListener(this.events::add);
+
+		this.songs = new ArrayList<>();
+		Path nested = Files.createDirectories(this.dir.resolve("nested"));
+		int i = 0;
+		try (DirectoryStream<Path> bundled = Files.newDirectoryStream(Paths.get("songs"), "*.mp3")) {
+			for (Path song : bundled) {
+				Path target = (i++ % 2 == 0 ? this.dir : nested).resolve(song.getFileName());
+				this.songs.add(Files.copy(song, target));
+			}
+		}
+		Collections.sort(this.songs);
+		this.junk = Files.write(nested.resolve("junk.mp3"), new byte[] { 1, 2, 3, 4, 5 });
+		Files.writeString(this.dir.resolve("notes.txt"), "not a song");
+	}
+
+	/**
+	 * Returns the filenames of the songs of the library, in order
+	 */
+	private List<String> filenames() {
+		List<String> filenames = new ArrayList<>();
+		for (ISong song : this.library.getSongs()) {
+			filenames.add(song.getFilename());
+		}
+		return filenames;
+	}
+
+	/**
+	 * Tests if a directory import adds every readable mp3 file in path
+	 * order, with a single event, and reports the file it could not read
+	 */
+	@Test
+	public void addDirectoryTest() {
+		ImportReport report = this.controller.addSongs(this.dir);
+
+		assertEquals(this.songs.size() + 1, report.found());
+		assertEquals(this.songs.size(), report.added());
+		assertEquals(List.of(this.junk), report.failures());
+		assertEquals(1, report.failed());
+		List<String> expected = new ArrayList<>();
+		for (Path song : this.songs) {
+			expected.add(song.toString());
+		}
+		assertIterableEquals(expected, filenames());
+		assertEquals(1, this.events.size());
+		SongsAddedLibraryEvent added = assertInstanceOf(SongsAddedLibraryEvent.class, this.events.get(0));
+		assertIterableEquals(this.library.getSongs(), added.getSongs());
+	}
+
+	/**
+	 * Tests if the files of a collection are added sorted by path,
+	 * whatever their order in the collection
+	 */
+	@Test
+	public void addCollectionTest() {
+		List<Path> files = new ArrayList<>(this.songs);
+		files.add(this.junk);
+		Collections.reverse(files);
+		ImportReport report = this.controller.addSongs(files);
+
+		assertEquals(files.size(), report.found());
+		assertEquals(this.songs.size(), report.added());
+		assertEquals(List.of(this.junk), report.failures());
+		List<String> expected = new ArrayList<>();
+		for (Path song : this.songs) {
+			expected.add(song.toString());
+		}
+		assertIterableEquals(expected, filenames());
+		assertEquals(1, this.events.size());
+	}
+
+	/**
+	 * Tests if importing a directory that does not exist only reports it
+	 * as a failure
+	 */
+	@Test
+	public void missingRootTest() {
+		Path missing = this.dir.resolve("missing");
+		ImportReport report = this.controller.addSongs(missing);
+
+		assertEquals(0, report.found());
+		assertEquals(0, report.added());
+		assertEquals(List.of(missing), report.failures());
+		assertEquals(0, this.library.size());
+		assertEquals(0, this.events.size());
+	}
+
+}
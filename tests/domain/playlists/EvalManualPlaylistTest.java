@@ -77,9 +77,24 @@ public class EvalManualPlaylistTest {
 	public void testMoveSelected() {
 		playlist.add(song1);
 		playlist.add(song2);
-		playlist.select(0);
-		assertTrue(playlist.moveUpSelected(1));
+		playlist.select(1);
+		assertTrue(playlist.moveUpSelected(0));
 		assertEquals(song2, playlist.getSelected());
+		assertEquals(0, playlist.getIndexSelected());
+		assertIterableEquals(Arrays.asList(song2, song1), playlist);
+		assertFalse(playlist.moveUpSelected(1));
+	}
+
+	@Test
+	public void testMoveDownSelected() {
+		playlist.add(song1);
+		playlist.add(song2);
+		playlist.select(0);
+		assertTrue(playlist.moveDownSelected(1));
+		assertEquals(song1, playlist.getSelected());
+		assertEquals(1, playlist.getIndexSelected());
+		assertIterableEquals(Arrays.asList(song2, song1), playlist);
+		assertFalse(playlist.moveDownSelected(0));
 	}
 
 	@Test
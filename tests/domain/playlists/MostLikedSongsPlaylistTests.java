@@ -0,0 +1,150 @@
+package domain.playlists;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.facade.ISong;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the top N ranking of the MostLikedSongsPlaylist
+ *
+ */
+public class MostLikedSongsPlaylistTests {
+
+	private MusicLibrary library;
+	private MostLikedSongsPlaylist playlist;
+	private Song[] songs;
+
+	/**
+	 * Method that sets up a library with four songs and a top 2 playlist
+	 */
+	@BeforeEach
+	void setUp() {
+		this.library = new MusicLibrary();
+		this.playlist = new MostLikedSongsPlaylist(library, 2);
+		library.registerListener(playlist);
+		this.songs = new Song[4];
+		for (int i = 0; i < songs.length; i++) {
+			songs[i] = new Song("song" + i + ".mp3", new SongMetaInfo("Title " + i, "Album", "Genre", Arrays.asList("Artist")));
+			library.add(songs[i]);
+		}
+	}
+
+	/**
+	 * Rates the song at the given index of the library the given number of times
+	 */
+	private void rate(int index, int times) {
+		library.select(index);
+		for (int i = 0; i < times; i++) {
+			library.incRateSelected();
+		}
+	}
+
+	/**
+	 * Tests if the lowest rated song leaves when a better one is rated
+	 */
+	@Test
+	public void lowestLeavesTest() {
+		rate(0, 1);
+		rate(1, 2);
+		rate(2, 3);
+		assertEquals(2, playlist.getN());
+		assertIterableEquals(Arrays.asList(songs[1], songs[2]), playlist);
+	}
+
+	/**
+	 * Tests if a song that drops below one outside the playlist is replaced
+	 */
+	@Test
+	public void demotionTest() {
+		rate(0, 3);
+		rate(1, 4);
+		rate(2, 2);
+		library.select(0);
+		library.decRateSelected();
+		library.decRateSelected();
+		assertIterableEquals(Arrays.asList(songs[1], songs[2]), playlist);
+	}
+
+	/**
+	 * Tests if a removed song is replaced by the best song left in the library
+	 */
+	@Test
+	public void removalTest() {
+		rate(0, 1);
+		rate(1, 2);
+		rate(2, 3);
+		library.select(2);
+		library.remove();
+		assertIterableEquals(Arrays.asList(songs[1], songs[0]), playlist);
+	}
+
+	/**
+	 * Tests if, after many ratings and removals in a larger library, the
+	 * playlist has the highest rated songs, in a playlist created before
+	 * and in one created after the songs were rated
+	 */
+	@Test
+	public void largeLibraryTest() {
+		MusicLibrary library = new MusicLibrary();
+		MostLikedSongsPlaylist top = new MostLikedSongsPlaylist(library, 20);
+		library.registerListener(top);
+		List<Song> added = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			added.add(new Song("more" + i + ".mp3", new SongMetaInfo("More " + i, "Album", "Genre", Arrays.asList("Artist"))));
+		}
+		library.addAll(added);
+		Random random = new Random(1);
+		Rate[] rates = Rate.values();
+		for (int i = 0; i < 2000; i++) {
+			int index = random.nextInt(library.size());
+			if (i % 50 == 49) {
+				library.select(index);
+				library.remove();
+			} else {
+				library.rate(library.get(index), rates[random.nextInt(rates.length)]);
+			}
+		}
+		checkTop(library, top, 20);
+		checkTop(library, new MostLikedSongsPlaylist(library, 20), 20);
+	}
+
+	/**
+	 * Checks if the given playlist has the n highest rated songs of the given library
+	 */
+	private static void checkTop(MusicLibrary library, MostLikedSongsPlaylist top, int n) {
+		Set<ISong> members = Collections.newSetFromMap(new IdentityHashMap<>());
+		Rate lowest = Rate.values()[Rate.values().length - 1];
+		for (ISong song : top) {
+			members.add(song);
+			lowest = song.getRating().compareTo(lowest) < 0 ? song.getRating() : lowest;
+		}
+		assertEquals(n, members.size());
+		assertEquals(n, top.size());
+		for (ISong song : library.getSongs()) {
+			if (!members.contains(song)) {
+				assertTrue(song.getRating().compareTo(lowest) <= 0);
+			}
+		}
+	}
+
+}
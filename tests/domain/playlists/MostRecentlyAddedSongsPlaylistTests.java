@@ -0,0 +1,86 @@
+package domain.playlists;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the ring of the MostRecentlyAddedSongsPlaylist
+ *
+ */
+public class MostRecentlyAddedSongsPlaylistTests {
+
+	private MusicLibrary library;
+	private Song[] songs;
+
+	/**
+	 * Method that sets up a library with five songs
+	 */
+	@BeforeEach
+	void setUp() {
+		this.library = new MusicLibrary();
+		this.songs = new Song[5];
+		for (int i = 0; i < songs.length; i++) {
+			songs[i] = new Song("song" + i + ".mp3", new SongMetaInfo("Title " + i, "Album", "Genre", Arrays.asList("Artist")));
+			library.add(songs[i]);
+		}
+	}
+
+	/**
+	 * Tests if a new playlist has the most recent songs of the library
+	 * and if the oldest one leaves when a song is added
+	 */
+	@Test
+	public void addTest() {
+		MostRecentlyAddedSongsPlaylist playlist = new MostRecentlyAddedSongsPlaylist(library, 2);
+		library.registerListener(playlist);
+		assertEquals(2, playlist.getN());
+		assertIterableEquals(Arrays.asList(songs[3], songs[4]), playlist);
+		Song last = new Song("last.mp3", new SongMetaInfo("Last", "Album", "Genre", Arrays.asList("Artist")));
+		library.add(last);
+		assertIterableEquals(Arrays.asList(songs[4], last), playlist);
+	}
+
+	/**
+	 * Tests if a removed song is replaced by the song added before the oldest one
+	 */
+	@Test
+	public void removalTest() {
+		MostRecentlyAddedSongsPlaylist playlist = new MostRecentlyAddedSongsPlaylist(library, 3);
+		library.registerListener(playlist);
+		library.select(3);
+		library.remove();
+		assertIterableEquals(Arrays.asList(songs[1], songs[2], songs[4]), playlist);
+		library.select(0);
+		library.remove();
+		assertIterableEquals(Arrays.asList(songs[1], songs[2], songs[4]), playlist);
+	}
+
+	/**
+	 * Tests if only the last songs of a batch added to the library stay
+	 */
+	@Test
+	public void batchTest() {
+		MostRecentlyAddedSongsPlaylist playlist = new MostRecentlyAddedSongsPlaylist(library, 3);
+		library.registerListener(playlist);
+		Song[] batch = new Song[4];
+		for (int i = 0; i < batch.length; i++) {
+			batch[i] = new Song("batch" + i + ".mp3", new SongMetaInfo("Batch " + i, "Album", "Genre", Arrays.asList("Artist")));
+		}
+		library.addAll(Arrays.asList(batch));
+		assertEquals(9, library.size());
+		assertIterableEquals(Arrays.asList(batch[1], batch[2], batch[3]), playlist);
+	}
+
+}
@@ -0,0 +1,64 @@
+package servicos;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the AudioSources
+ *
+ */
+public class AudioSourceTests {
+
+	private static final String SONG = "songs/MeuFado.mp3";
+
+	/**
+	 * Reads the whole stream, the first byte alone and the others in
+	 * reads of an odd size
+	 */
+	private static byte[] readAll(AudioSource source) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = source.open(SONG)) {
+			out.write(in.read());
+			byte[] b = new byte[4097];
+			int n;
+			while ((n = in.read(b, 0, b.length)) != -1) {
+				out.write(b, 0, n);
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Tests if every source gives the bytes of the file
+	 */
+	@Test
+	public void sameBytesTest() throws IOException {
+		byte[] expected = Files.readAllBytes(Paths.get(SONG));
+		assertArrayEquals(expected, readAll(new StreamAudioSource()));
+		assertArrayEquals(expected, readAll(new MappedAudioSource()));
+		assertArrayEquals(expected, readAll(new MappedAudioSource(false)));
+		assertArrayEquals(expected, readAll(new ReadAheadAudioSource()));
+		assertArrayEquals(expected, readAll(new ReadAheadAudioSource(1)));
+	}
+
+	/**
+	 * Tests if the window of the read ahead source is a whole number of chunks
+	 */
+	@Test
+	public void windowTest() {
+		assertEquals(1, new ReadAheadAudioSource(1).getWindowChunks());
+		assertEquals(2, new ReadAheadAudioSource(ReadAheadAudioSource.CHUNK_SIZE + 1).getWindowChunks());
+	}
+
+}
@@ -0,0 +1,62 @@
+package servicos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mpatric.mp3agic.ID3v2;
+import com.mpatric.mp3agic.InvalidDataException;
+import com.mpatric.mp3agic.Mp3File;
+
+import domain.core.SongMetaInfo;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the Id3TagReader
+ *
+ */
+public class Id3TagReaderTests {
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * Tests if the tags of the songs are the ones mp3agic reads, without
+	 * reading the whole files
+	 */
+	@Test
+	public void sameAsMp3agicTest() throws Exception {
+		Id3TagReader reader = new Id3TagReader();
+		long size = 0;
+		for (String name : new String[] { "MeuFado.mp3", "Exsultate.mp3", "Fado Tordo.mp3" }) {
+			Path song = Paths.get("songs", name);
+			size += Files.size(song);
+			ID3v2 tag = new Mp3File(song.toString()).getId3v2Tag();
+			SongMetaInfo expected = new SongMetaInfo(tag.getTitle(), tag.getAlbum(), tag.getGenreDescription(),
+					Arrays.asList(tag.getArtist().split(";")));
+			assertEquals(expected, reader.read(song));
+		}
+		assertTrue(reader.getBytesRead() < size / 10);
+	}
+
+	/**
+	 * Tests if a file that is not mpeg audio is left to mp3agic
+	 */
+	@Test
+	public void notAudioTest() throws IOException {
+		Path file = Files.writeString(dir.resolve("notes.mp3"), "not a song");
+		assertThrows(InvalidDataException.class, () -> new Id3TagReader().read(file));
+	}
+
+}
@@ -0,0 +1,77 @@
+package servicos;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.beans.PropertyChangeListener;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import domain.player.Player;
+import javazoom.jl.player.NullAudioDevice;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the JLPlayer
+ *
+ */
+public class JLPlayerTests {
+
+	/**
+	 * Player that only counts the songs stopped
+	 */
+	private static class StopCounter implements Player {
+		private final CountDownLatch stopped = new CountDownLatch(1);
+
+		public boolean load(String filename) { return true; }
+		public void play() { }
+		public void still() { }
+		public void stop() { }
+		public void hasStopedSong() { this.stopped.countDown(); }
+		public void hasEndedSong() { }
+		public void addListener(PropertyChangeListener listener) { }
+		public void removeListener(PropertyChangeListener listener) { }
+	}
+
+	/**
+	 * Tests if a loaded song that is not playing yet or paused does not use
+	 * the CPU and if stopping it wakes its thread at once
+	 */
+	@Test
+	public void idleTest() throws Exception {
+		StopCounter counter = new StopCounter();
+		JLPlayer player = new JLPlayer(new BufferedInputStream(new FileInputStream("songs/MeuFado.mp3")),
+				new NullAudioDevice(), counter);
+		Thread decoder = player.getThread();
+		assertTrue(decoder.isAlive());
+		assertIdle(decoder);
+
+		player.play();
+		Thread.sleep(20);
+		player.still();
+		Thread.sleep(20);
+		assertIdle(decoder);
+
+		player.stop();
+		assertTrue(counter.stopped.await(1, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Checks that the given thread uses almost no CPU for half a second
+	 */
+	private static void assertIdle(Thread thread) throws InterruptedException {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long before = threads.getThreadCpuTime(thread.getId());
+		Thread.sleep(500);
+		long used = threads.getThreadCpuTime(thread.getId()) - before;
+		assertTrue(used < TimeUnit.MILLISECONDS.toNanos(50), "idle player used " + used + " ns of CPU");
+	}
+
+}
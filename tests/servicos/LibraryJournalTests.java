@@ -0,0 +1,149 @@
+package servicos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.playlists.MostLikedSongsPlaylist;
+import domain.playlists.Playlist;
+import domain.playlists.PlaylistList;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the LibraryJournal
+ *
+ */
+public class LibraryJournalTests {
+
+	@TempDir
+	Path dir;
+
+	private static Song song(String name) {
+		return new Song("songs/" + name + ".mp3", new SongMetaInfo(name, "Album", "Fado", Arrays.asList("Ana")));
+	}
+
+	/**
+	 * Tests if the changes synced before a crash are replayed
+	 */
+	@Test
+	public void replayTest() throws Exception {
+		LibraryJournal journal = new LibraryJournal(dir);
+		MusicLibrary library = journal.open().getLibrary();
+		library.add(song("A"));
+		library.addAll(new ArrayList<>(List.of(song("B"), song("C"))));
+		library.rate(library.get(1), Rate.GOOD);
+		library.incTimesPlayed(library.get(1));
+		library.remove(library.get(0));
+		journal.sync();
+
+		LibraryJournal reopened = new LibraryJournal(dir);
+		MusicLibrary restored = reopened.open().getLibrary();
+		assertIterableEquals(library.getSongs(), restored.getSongs());
+		assertEquals(Rate.GOOD, restored.get(0).getRating());
+		assertEquals(1, restored.get(0).getTimesPlayed());
+		reopened.close();
+	}
+
+	/**
+	 * Tests if a compacted journal keeps the changes made before and after
+	 * the compaction and ignores a record that was not completely written
+	 */
+	@Test
+	public void compactionTest() throws Exception {
+		LibraryJournal journal = new LibraryJournal(dir);
+		MusicLibrary library = journal.open().getLibrary();
+		library.add(song("A"));
+		journal.compact().get();
+		library.add(song("B"));
+		library.incTimesPlayed(library.get(0));
+		journal.close();
+		Path segment = dir.resolve("journal-" + journal.getGeneration() + ".log");
+		Files.write(segment, new byte[] { 0, 0, 0, 40, 1, 2 }, StandardOpenOption.APPEND);
+
+		LibraryJournal reopened = new LibraryJournal(dir);
+		MusicLibrary restored = reopened.open().getLibrary();
+		assertIterableEquals(library.getSongs(), restored.getSongs());
+		assertEquals(1, restored.get(0).getTimesPlayed());
+		reopened.close();
+	}
+
+	/**
+	 * Tests if a compaction that could not write the snapshot is reported
+	 * once by sync and keeps the journal of the changes it did not compact
+	 */
+	@Test
+	public void failedCompactionTest() throws Exception {
+		LibraryJournal journal = new LibraryJournal(dir);
+		MusicLibrary library = journal.open().getLibrary();
+		library.add(song("A"));
+		Path snapshot = dir.resolve("library.snapshot");
+		Files.createDirectories(snapshot);
+		Files.write(snapshot.resolve("blocker"), new byte[] { 1 });
+		assertThrows(ExecutionException.class, () -> journal.compact().get());
+		assertThrows(IOException.class, journal::sync);
+		library.add(song("B"));
+		journal.sync();
+		journal.close();
+
+		Files.delete(snapshot.resolve("blocker"));
+		Files.delete(snapshot);
+		LibraryJournal reopened = new LibraryJournal(dir);
+		MusicLibrary restored = reopened.open().getLibrary();
+		assertIterableEquals(library.getSongs(), restored.getSongs());
+		reopened.close();
+	}
+
+	/**
+	 * Tests if the changes of a library with asynchronous events are
+	 * replayed as they happened, even when the song changed again before
+	 * the event of its addition was delivered, and if the rated songs
+	 * replayed enter the Most Liked playlist
+	 */
+	@Test
+	public void asyncReplayTest() throws Exception {
+		LibraryJournal journal = new LibraryJournal(dir);
+		MusicLibrary library = journal.open().getLibrary();
+		library.enableAsyncEvents(2);
+		Song a = song("A");
+		library.add(a);
+		library.incTimesPlayed(a);
+		library.incTimesPlayed(a);
+		library.incTimesPlayed(a);
+		library.rate(a, Rate.GOOD);
+		library.add(song("B"));
+		journal.close();
+		library.disableAsyncEvents();
+
+		LibraryJournal reopened = new LibraryJournal(dir);
+		PlaylistList restored = reopened.open();
+		assertEquals(3, restored.getLibrary().get(0).getTimesPlayed());
+		assertEquals(Rate.GOOD, restored.getLibrary().get(0).getRating());
+		MostLikedSongsPlaylist liked = null;
+		for (Playlist p : restored) {
+			if (p instanceof MostLikedSongsPlaylist) {
+				liked = (MostLikedSongsPlaylist) p;
+			}
+		}
+		assertIterableEquals(List.of(restored.getLibrary().get(0)), liked);
+		reopened.close();
+	}
+
+}
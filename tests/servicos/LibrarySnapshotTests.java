@@ -0,0 +1,110 @@
+package servicos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.playlists.ManualPlaylist;
+import domain.playlists.MostLikedSongsPlaylist;
+import domain.playlists.MostRecentlyAddedSongsPlaylist;
+import domain.playlists.Playlist;
+import domain.playlists.PlaylistList;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the LibrarySnapshot
+ *
+ */
+public class LibrarySnapshotTests {
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * Tests if the songs, their ratings and the playlists survive a save and a load
+	 */
+	@Test
+	public void roundTripTest() throws IOException {
+		MusicLibrary library = new MusicLibrary();
+		library.add(new Song("songs/MeuFado.mp3", new SongMetaInfo("Meu Fado", "Fados", "Fado", Arrays.asList("Ana", "Rui"))));
+		library.add(new Song("songs/Exsultate.mp3", new SongMetaInfo("Exsultate", "Motets", "Classical", Arrays.asList("Mozart"))));
+		library.incRateSelected();
+		library.getSelected().incTimesPlayed();
+		ManualPlaylist mine = new ManualPlaylist("Mine", library);
+		mine.add(library.get(1));
+		mine.add(library.get(0));
+		PlaylistList playlists = new PlaylistList(library, List.of(new MostLikedSongsPlaylist(library, 3),
+				new MostRecentlyAddedSongsPlaylist(library, 4), mine));
+
+		Path file = dir.resolve("library.bin");
+		LibrarySnapshot snapshot = new LibrarySnapshot();
+		snapshot.save(file, playlists);
+		PlaylistList loaded = snapshot.load(file);
+
+		MusicLibrary restored = loaded.getLibrary();
+		assertIterableEquals(library.getSongs(), restored.getSongs());
+		assertEquals(Rate.TERRIBLE, restored.get(1).getRating());
+		assertEquals(1, restored.get(1).getTimesPlayed());
+		assertEquals(3, loaded.size());
+		assertEquals(3, ((MostLikedSongsPlaylist) loaded.get(0)).getN());
+		assertEquals(4, ((MostRecentlyAddedSongsPlaylist) loaded.get(1)).getN());
+		Playlist restoredMine = loaded.get(2);
+		assertInstanceOf(ManualPlaylist.class, restoredMine);
+		assertEquals("Mine", restoredMine.getName());
+		assertIterableEquals(List.of(restored.get(1), restored.get(0)), restoredMine);
+	}
+
+	/**
+	 * Tests if a file that is not a snapshot is rejected
+	 */
+	@Test
+	public void invalidFileTest() throws IOException {
+		Path file = dir.resolve("other.bin");
+		Files.writeString(file, "not a snapshot");
+		assertThrows(IOException.class, () -> new LibrarySnapshot().load(file));
+	}
+
+	/**
+	 * Tests if snapshots with counts bigger than the file or cut short are
+	 * rejected as corrupted instead of allocating what they claim
+	 */
+	@Test
+	public void corruptedFileTest() throws IOException {
+		MusicLibrary library = new MusicLibrary();
+		library.add(new Song("songs/MeuFado.mp3", new SongMetaInfo("Meu Fado", "Fados", "Fado", Arrays.asList("Ana"))));
+		Path file = dir.resolve("library.bin");
+		LibrarySnapshot snapshot = new LibrarySnapshot();
+		snapshot.save(file, new PlaylistList(library, List.of()));
+		byte[] saved = Files.readAllBytes(file);
+
+		byte[] huge = saved.clone();
+		ByteBuffer.wrap(huge).putInt(16, Integer.MAX_VALUE);
+		Files.write(file, huge);
+		assertThrows(IOException.class, () -> snapshot.load(file));
+
+		Files.write(file, Arrays.copyOf(saved, saved.length - 6));
+		assertThrows(IOException.class, () -> snapshot.load(file));
+
+		Files.write(file, saved);
+		snapshot.save(file, snapshot.load(file));
+		assertIterableEquals(library.getSongs(), snapshot.load(file).getLibrary().getSongs());
+	}
+
+}
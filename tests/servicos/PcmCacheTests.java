@@ -0,0 +1,69 @@
+package servicos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the PcmCache
+ *
+ */
+public class PcmCacheTests {
+
+	private static final short[] SONG = new short[100];
+
+	/**
+	 * Tests if the least recently used song is evicted to make room
+	 */
+	@Test
+	public void lruTest() {
+		PcmCache cache = new PcmCache(2 * SONG.length * Short.BYTES, PcmCache.Eviction.LRU, false);
+		cache.put("a", SONG, SONG.length);
+		cache.put("b", SONG, SONG.length);
+		cache.get("a");
+		cache.put("c", SONG, SONG.length);
+		assertNotNull(cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals(2 * SONG.length * Short.BYTES, cache.getBytes());
+		assertEquals(1, cache.getEvictions());
+	}
+
+	/**
+	 * Tests if the least frequently used song is evicted to make room
+	 */
+	@Test
+	public void lfuTest() {
+		PcmCache cache = new PcmCache(2 * SONG.length * Short.BYTES, PcmCache.Eviction.LFU, true);
+		cache.put("a", SONG, SONG.length);
+		cache.put("b", SONG, SONG.length);
+		cache.get("a");
+		cache.get("a");
+		cache.get("b");
+		cache.put("c", SONG, SONG.length);
+		assertNotNull(cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals(0.8, cache.getHitRatio(), 1e-9);
+	}
+
+	/**
+	 * Tests if a song bigger than the budget is not kept and the samples
+	 * kept are the ones given
+	 */
+	@Test
+	public void samplesTest() {
+		PcmCache cache = new PcmCache(8, PcmCache.Eviction.LRU, true);
+		cache.put("big", new short[5], 5);
+		assertEquals(0, cache.size());
+		cache.put("small", new short[] { 1, 2, 3, 9 }, 3);
+		short[] copy = new short[3];
+		cache.get("small").copy(0, copy, 0, 3);
+		assertEquals(3, copy[2]);
+		assertEquals(6, cache.getBytes());
+	}
+
+}
@@ -0,0 +1,95 @@
+package servicos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import domain.core.SongMetaInfo;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the TagCache
+ *
+ */
+public class TagCacheTests {
+
+	@TempDir
+	Path dir;
+
+	private static final SongMetaInfo INFO = new SongMetaInfo("Meu Fado", "Fados", "Fado", Arrays.asList("Ana"));
+
+	/**
+	 * Tests if the tags are found while the file does not change and survive
+	 * a save and a load
+	 */
+	@Test
+	public void hitTest() throws IOException {
+		Path song = Files.writeString(dir.resolve("song.mp3"), "tags");
+		TagCache cache = new TagCache(dir.resolve("tags.cache"));
+		cache.put(song, Files.readAttributes(song, BasicFileAttributes.class), INFO);
+		cache.save();
+
+		TagCache loaded = new TagCache(dir.resolve("tags.cache"));
+		loaded.load();
+		assertEquals(INFO, loaded.get(song, Files.readAttributes(song, BasicFileAttributes.class)));
+		assertEquals(1.0, loaded.getHitRate());
+	}
+
+	/**
+	 * Tests if the tags of a file that changed are not used
+	 */
+	@Test
+	public void changedFileTest() throws IOException {
+		Path song = Files.writeString(dir.resolve("song.mp3"), "tags");
+		TagCache cache = new TagCache(dir.resolve("tags.cache"));
+		cache.put(song, Files.readAttributes(song, BasicFileAttributes.class), INFO);
+		Files.writeString(song, "other tags");
+		assertNull(cache.get(song, Files.readAttributes(song, BasicFileAttributes.class)));
+		assertEquals(1, cache.getMisses());
+	}
+
+	/**
+	 * Tests if the entries of files that no longer exist are evicted first
+	 */
+	@Test
+	public void evictionTest() throws IOException {
+		TagCache cache = new TagCache(dir.resolve("tags.cache"), 4);
+		Path kept = Files.writeString(dir.resolve("kept.mp3"), "tags");
+		BasicFileAttributes attrs = Files.readAttributes(kept, BasicFileAttributes.class);
+		cache.put(kept, attrs, INFO);
+		for (int i = 0; i < 4; i++) {
+			cache.put(dir.resolve("gone" + i + ".mp3"), attrs, INFO);
+		}
+		assertEquals(1, cache.size());
+		assertEquals(INFO, cache.get(kept, attrs));
+	}
+
+	/**
+	 * Tests if a file reached through a symbolic link to its folder uses
+	 * the entry of the file itself
+	 */
+	@Test
+	public void symbolicLinkTest() throws IOException {
+		Path folder = Files.createDirectories(dir.resolve("music"));
+		Path song = Files.writeString(folder.resolve("song.mp3"), "tags");
+		Path link = Files.createSymbolicLink(dir.resolve("link"), folder);
+		TagCache cache = new TagCache(dir.resolve("tags.cache"));
+		cache.put(song, Files.readAttributes(song, BasicFileAttributes.class), INFO);
+
+		Path linked = link.resolve("song.mp3");
+		assertEquals(INFO, cache.get(linked, Files.readAttributes(linked, BasicFileAttributes.class)));
+		cache.put(linked, Files.readAttributes(linked, BasicFileAttributes.class), INFO);
+		assertEquals(1, cache.size());
+	}
+
+}
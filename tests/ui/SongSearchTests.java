@@ -0,0 +1,165 @@
+package ui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.facade.ISong;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the SongSearch
+ */
+public class SongSearchTests {
+
+	private static final int SONGS = 10_000;
+
+	private MusicLibrary library;
+
+	/**
+	 * Records what the search gives to the results
+	 */
+	private static class Recorder implements SongSearch.Results {
+		private final List<String> queries = new ArrayList<>();
+		private final List<List<ISong>> pages = new ArrayList<>();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private int total = -1;
+
+		@Override
+		public synchronized void started(String query) {
+			queries.add(query);
+		}
+
+		@Override
+		public synchronized void found(List<ISong> songs) {
+			pages.add(songs);
+		}
+
+		@Override
+		public synchronized void finished(int total) {
+			this.total = total;
+			done.countDown();
+		}
+
+		private synchronized List<ISong> songs() {
+			List<ISong> all = new ArrayList<>();
+			pages.forEach(all::addAll);
+			return all;
+		}
+	}
+
+	/**
+	 * Creates a library where every tenth song is by "Fire Band"
+	 */
+	@BeforeEach
+	void setUp() {
+		this.library = new MusicLibrary();
+		List<Song> songs = new ArrayList<>();
+		for (int i = 0; i < SONGS; i++) {
+			String artist = i % 10 == 0 ? "Fire Band" : "Artist " + i;
+			songs.add(new Song("song" + i + ".mp3", new SongMetaInfo("Title " + i, "Album", "Rock", List.of(artist))));
+		}
+		this.library.addAll(songs);
+	}
+
+	/**
+	 * Tests that only the last of a burst of queries runs and that its
+	 * songs are given in pages, in library order
+	 */
+	@Test
+	public void debounceTest() throws InterruptedException {
+		Recorder recorder = new Recorder();
+		try (SongSearch search = new SongSearch(this.library, Runnable::run, recorder, 100, 64)) {
+			search.query("f");
+			search.query("fi");
+			search.query("fire");
+			assertTrue(recorder.done.await(10, TimeUnit.SECONDS));
+		}
+		assertEquals(List.of("fire"), recorder.queries);
+		assertEquals(SONGS / 10, recorder.total);
+		List<ISong> found = recorder.songs();
+		assertEquals(SONGS / 10, found.size());
+		for (int i = 0; i < found.size(); i++) {
+			assertEquals("song" + (i * 10) + ".mp3", found.get(i).getFilename());
+		}
+		for (List<ISong> page : recorder.pages) {
+			assertTrue(page.size() <= 64);
+		}
+	}
+
+	/**
+	 * Tests that nothing of a cancelled query is given to the results
+	 */
+	@Test
+	public void cancelTest() throws InterruptedException {
+		Recorder recorder = new Recorder();
+		try (SongSearch search = new SongSearch(this.library, Runnable::run, recorder, 50, 64)) {
+			search.query("fire");
+			search.cancel();
+			assertTrue(!recorder.done.await(300, TimeUnit.MILLISECONDS));
+		}
+		assertTrue(recorder.queries.isEmpty());
+		assertTrue(recorder.pages.isEmpty());
+	}
+
+	/**
+	 * Tests that text that is not a valid regular expression is
+	 * searched as plain text
+	 */
+	@Test
+	public void invalidRegexTest() {
+		assertTrue(SongSearch.patternOf("fire").matcher("Fire Band").find());
+		assertTrue(SongSearch.patternOf("(band").matcher("The (Band)").find());
+		assertTrue(!SongSearch.patternOf("(band").matcher("The Band").find());
+	}
+
+	/**
+	 * Tests that a query whose expression backtracks for a very long time
+	 * is stopped by the next query
+	 */
+	@Test
+	public void backtrackingTest() throws InterruptedException {
+		this.library.add(new Song("slow.mp3", new SongMetaInfo("a".repeat(40) + "!", "Album", "Rock", List.of("Slow"))));
+		Recorder slow = new Recorder();
+		Recorder recorder = new Recorder();
+		List<SongSearch.Results> current = new ArrayList<>(List.of(slow));
+		SongSearch.Results results = new SongSearch.Results() {
+			@Override
+			public void started(String query) {
+				current.get(0).started(query);
+			}
+
+			@Override
+			public void found(List<ISong> songs) {
+				current.get(0).found(songs);
+			}
+
+			@Override
+			public void finished(int total) {
+				current.get(0).finished(total);
+			}
+		};
+		try (SongSearch search = new SongSearch(this.library, Runnable::run, results, 0, 64)) {
+			search.query("((a+)+)+b");
+			assertTrue(!slow.done.await(300, TimeUnit.MILLISECONDS));
+			current.set(0, recorder);
+			search.query("fire");
+			assertTrue(recorder.done.await(10, TimeUnit.SECONDS));
+		}
+		assertEquals(SONGS / 10, recorder.total);
+		assertEquals(-1, slow.total);
+	}
+
+}
@@ -3,6 +3,7 @@ package util.adts;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -198,6 +199,38 @@ public class ArrayQListWithSelectionTests {
 		assertNotNull(array.getList());
 	}
 
+	/**
+	 * Tests if the selection follows positions when the list holds equal elements
+	 */
+	@Test
+	public void equalElementsTest() {
+		array.add(e1);
+		assertEquals(2, array.getIndexSelected());
+		array.previous();
+		assertEquals(1, array.getIndexSelected());
+		array.select(2);
+		array.remove();
+		assertEquals(2, array.size());
+		assertEquals(e1, array.get(0));
+		assertEquals(e2, array.get(1));
+	}
+
+	/**
+	 * Tests if the method moveTo rotates the elements and keeps the selection
+	 */
+	@Test
+	public void moveToTest() {
+		array.add(3);
+		array.add(4);
+		array.select(1);
+		array.moveTo(3, 0);
+		assertIterableEquals(List.of(4, 1, 2, 3), array);
+		assertEquals(e2, array.getSelected());
+		array.moveTo(2, 3);
+		assertIterableEquals(List.of(4, 1, 3, 2), array);
+		assertEquals(3, array.getIndexSelected());
+	}
+
 	/**
 	 * Test for the method equals
 	 */
@@ -0,0 +1,77 @@
+package util.adts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the FenwickList
+ *
+ */
+public class FenwickListTests {
+
+	private FenwickList<String> list;
+
+	/**
+	 * Method that sets up the FenwickList object to test before each test
+	 */
+	@BeforeEach
+	void setUp() {
+		this.list = new FenwickList<>();
+	}
+
+	/**
+	 * Tests adding at the end, removing in the middle and finding positions
+	 */
+	@Test
+	public void positionsTest() {
+		list.addAll(Arrays.asList("a", "b", "c", "d"));
+		assertEquals("b", list.remove(1));
+		assertIterableEquals(Arrays.asList("a", "c", "d"), list);
+		assertEquals(1, list.positionOf("c"));
+		assertEquals(-1, list.positionOf("b"));
+		assertThrows(UnsupportedOperationException.class, () -> list.add(0, "e"));
+		assertThrows(IllegalArgumentException.class, () -> list.add("a"));
+	}
+
+	/**
+	 * Tests if the FenwickList behaves like an ArrayList while growing
+	 * and reusing its slots
+	 */
+	@Test
+	public void sameAsArrayListTest() {
+		List<String> expected = new ArrayList<>();
+		Random random = new Random(0);
+		for (int i = 0; i < 5000; i++) {
+			if (expected.isEmpty() || random.nextInt(5) < 3) {
+				String e = "e" + i;
+				expected.add(e);
+				list.add(e);
+			} else {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index), list.remove(index));
+			}
+			if (i % 100 == 0) {
+				assertIterableEquals(expected, list);
+				for (int k = 0; k < expected.size(); k++) {
+					assertEquals(k, list.positionOf(expected.get(k)));
+				}
+			}
+		}
+		assertEquals(expected.size(), list.size());
+		list.clear();
+		assertEquals(0, list.size());
+	}
+
+}
@@ -0,0 +1,70 @@
+package util.adts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the PatternCache
+ *
+ */
+public class PatternCacheTests {
+
+	private PatternCache cache;
+
+	/**
+	 * Method that sets up the PatternCache object to test before each test
+	 */
+	@BeforeEach
+	void setUp() {
+		this.cache = new PatternCache(2);
+	}
+
+	/**
+	 * Tests if a pattern is compiled only once
+	 */
+	@Test
+	public void getTest() {
+		Pattern p = cache.get(".*Fado.*");
+		assertEquals(".*Fado.*", p.pattern());
+		assertSame(p, cache.get(".*Fado.*"));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	/**
+	 * Tests if the least recently used pattern is the one discarded
+	 */
+	@Test
+	public void evictionTest() {
+		Pattern a = cache.get("a");
+		Pattern b = cache.get("b");
+		cache.get("a");
+		cache.get("c");
+		assertEquals(2, cache.size());
+		assertSame(a, cache.get("a"));
+		assertNotSame(b, cache.get("b"));
+	}
+
+	/**
+	 * Test for the method clear()
+	 */
+	@Test
+	public void clearTest() {
+		cache.get("a");
+		cache.get("a");
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHits());
+		assertEquals(0, cache.getMisses());
+	}
+
+}
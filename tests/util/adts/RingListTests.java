@@ -0,0 +1,69 @@
+package util.adts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the RingList
+ *
+ */
+public class RingListTests {
+
+	private RingList<Integer> ring;
+
+	/**
+	 * Method that sets up the RingList object to test before each test
+	 */
+	@BeforeEach
+	void setUp() {
+		this.ring = new RingList<>();
+	}
+
+	/**
+	 * Tests adding and removing at both ends
+	 */
+	@Test
+	public void endsTest() {
+		ring.add(2);
+		ring.add(0, 1);
+		ring.add(3);
+		ring.add(0, 0);
+		assertIterableEquals(Arrays.asList(0, 1, 2, 3), ring);
+		assertEquals(0, ring.remove(0));
+		assertEquals(3, ring.remove(2));
+		assertIterableEquals(Arrays.asList(1, 2), ring);
+	}
+
+	/**
+	 * Tests if the RingList behaves like an ArrayList while wrapping
+	 * around and growing
+	 */
+	@Test
+	public void sameAsArrayListTest() {
+		List<Integer> expected = new ArrayList<>();
+		Random random = new Random(0);
+		for (int i = 0; i < 2000; i++) {
+			if (expected.isEmpty() || random.nextInt(3) > 0) {
+				int index = random.nextInt(expected.size() + 1);
+				expected.add(index, i);
+				ring.add(index, i);
+			} else {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index), ring.remove(index));
+			}
+		}
+		assertIterableEquals(expected, ring);
+	}
+
+}
@@ -0,0 +1,115 @@
+package util.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the MetricsRegistry, its metrics and the MetricsServer
+ */
+public class MetricsRegistryTests {
+
+	/**
+	 * Tests that metrics are created once and that names are checked
+	 */
+	@Test
+	public void registerTest() {
+		MetricsRegistry registry = new MetricsRegistry();
+		Counter c = registry.counter("ops_total", "Operations");
+		assertSame(c, registry.counter("ops_total", "Operations"));
+		c.inc();
+		c.add(2);
+		assertEquals(3L, c.get());
+		assertThrows(IllegalArgumentException.class, () -> registry.histogram("ops_total", "Operations"));
+		assertThrows(IllegalArgumentException.class, () -> registry.counter("bad name", "Operations"));
+
+		double[] value = { 1 };
+		registry.gauge("level", "Level", () -> value[0]);
+		value[0] = 7;
+		assertEquals(7.0, registry.gauge("level", "Level", () -> value[0]).get());
+	}
+
+	/**
+	 * Tests that the buckets of the histograms are contiguous and
+	 * within a quarter of their values
+	 */
+	@Test
+	public void bucketsTest() {
+		assertEquals(0, Histogram.indexOf(0));
+		assertEquals(0, Histogram.indexOf(1023));
+		assertEquals(1, Histogram.indexOf(1024));
+		for (int i = 1; i < Histogram.indexOf(Long.MAX_VALUE); i++) {
+			long lower = Histogram.upperBound(i - 1);
+			long upper = Histogram.upperBound(i);
+			assertEquals(i, Histogram.indexOf(lower));
+			assertEquals(i, Histogram.indexOf(upper - 1));
+			assertTrue(upper - lower <= lower / 4);
+		}
+	}
+
+	/**
+	 * Tests the count, mean and quantiles of a histogram
+	 */
+	@Test
+	public void histogramTest() {
+		Histogram h = new MetricsRegistry().histogram("op_seconds", "Operation");
+		for (int i = 1; i <= 100; i++) {
+			h.record(i * 10_000L);
+		}
+		h.record(-5);
+		MetricSnapshot s = h.snapshot();
+		assertEquals(101L, s.count());
+		assertEquals(50_500_000L, s.sum());
+		long median = s.quantile(0.5);
+		assertTrue(500_000 <= median && median <= 500_000 * 5 / 4);
+		long p99 = s.quantile(0.99);
+		assertTrue(990_000 <= p99 && p99 <= 990_000 * 5 / 4);
+	}
+
+	/**
+	 * Tests the metrics in the Prometheus text format, served over HTTP
+	 */
+	@Test
+	public void prometheusTest() throws IOException {
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.counter("ops_total", "Operations").add(5);
+		registry.gauge("level", "Level", () -> 0.5);
+		Histogram h = registry.histogram("op_seconds", "Operation");
+		h.record(2_000_000_000L);
+
+		try (MetricsServer server = new MetricsServer(registry, 0)) {
+			URL url = new URL("http://127.0.0.1:" + server.getPort() + MetricsServer.PATH);
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			assertEquals(200, connection.getResponseCode());
+			String body;
+			try (InputStream in = connection.getInputStream()) {
+				body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+			}
+			List<String> lines = body.lines().toList();
+			assertTrue(lines.contains("# TYPE ops_total counter"));
+			assertTrue(lines.contains("ops_total 5"));
+			assertTrue(lines.contains("level 0.5"));
+			assertTrue(lines.contains("# TYPE op_seconds histogram"));
+			assertTrue(lines.contains("op_seconds_bucket{le=\"1.879048192\"} 0"));
+			assertTrue(lines.contains("op_seconds_bucket{le=\"2.147483648\"} 1"));
+			assertTrue(lines.contains("op_seconds_bucket{le=\"+Inf\"} 1"));
+			assertTrue(lines.contains("op_seconds_sum 2"));
+			assertTrue(lines.contains("op_seconds_count 1"));
+			assertEquals(body, registry.toPrometheus());
+		}
+	}
+
+}
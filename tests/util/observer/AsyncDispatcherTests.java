@@ -0,0 +1,124 @@
+package util.observer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author André Reis fc58192
+ * @author Martim Pereira fc58223
+ *
+ * Tests for the AsyncDispatcher
+ *
+ */
+public class AsyncDispatcherTests {
+
+	private AsyncDispatcher<NumberEvent> dispatcher;
+
+	/**
+	 * Event with a number, to check the order of the deliveries
+	 */
+	private record NumberEvent(int number) implements Event {
+	}
+
+	/**
+	 * Listener that records the numbers of the events it gets
+	 */
+	private static class Recorder implements Listener<NumberEvent> {
+		private final List<Integer> numbers = new ArrayList<>();
+
+		@Override
+		public void processEvent(NumberEvent e) {
+			if (e.number() < 0) {
+				throw new IllegalArgumentException();
+			}
+			this.numbers.add(e.number());
+		}
+	}
+
+	/**
+	 * Method that sets up the AsyncDispatcher object to test before each test
+	 */
+	@BeforeEach
+	void setUp() {
+		this.dispatcher = new AsyncDispatcher<>(3);
+	}
+
+	/**
+	 * Method that stops the workers of the dispatcher after each test
+	 */
+	@AfterEach
+	void tearDown() {
+		this.dispatcher.close();
+	}
+
+	/**
+	 * Tests if every listener gets all its events in order after flush()
+	 */
+	@Test
+	public void orderTest() {
+		Recorder first = new Recorder();
+		Recorder second = new Recorder();
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			dispatcher.dispatch(first, new NumberEvent(i));
+			dispatcher.dispatch(second, new NumberEvent(i));
+			expected.add(i);
+		}
+		dispatcher.flush();
+		assertEquals(expected, first.numbers);
+		assertEquals(expected, second.numbers);
+		assertEquals(0, dispatcher.getPending());
+		assertEquals(2000, dispatcher.getDelivered());
+	}
+
+	/**
+	 * Tests if a listener that fails does not stop the next deliveries
+	 */
+	@Test
+	public void failureTest() {
+		Recorder recorder = new Recorder();
+		dispatcher.dispatch(recorder, new NumberEvent(1));
+		dispatcher.dispatch(recorder, new NumberEvent(-1));
+		dispatcher.dispatch(recorder, new NumberEvent(2));
+		dispatcher.flush();
+		assertEquals(List.of(1, 2), recorder.numbers);
+		assertEquals(1, dispatcher.getFailures());
+	}
+
+	/**
+	 * Tests if different listeners are served at the same time, each
+	 * waiting inside its delivery until the other one is delivered too
+	 */
+	@Test
+	public void parallelTest() {
+		CountDownLatch both = new CountDownLatch(2);
+		AtomicInteger met = new AtomicInteger();
+		Listener<NumberEvent> waiting = e -> {
+			both.countDown();
+			try {
+				if (both.await(5, TimeUnit.SECONDS)) {
+					met.incrementAndGet();
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		Listener<NumberEvent> other = e -> waiting.processEvent(e);
+		dispatcher.dispatch(waiting, new NumberEvent(1));
+		dispatcher.dispatch(other, new NumberEvent(1));
+		dispatcher.flush();
+		assertEquals(2, met.get());
+		assertTrue(dispatcher.getBatches() >= 2);
+	}
+
+}